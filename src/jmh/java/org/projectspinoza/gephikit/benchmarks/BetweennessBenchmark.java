@@ -0,0 +1,40 @@
+package org.projectspinoza.gephikit.benchmarks;
+
+import org.gephi.graph.api.Graph;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Param;
+import org.projectspinoza.gephikit.statistics.CsrBetweenness;
+
+/**
+ * {@link CsrBetweenness} searching from every node against searching from
+ * @samples sampled nodes. Exact betweenness grows with nodes times edges,
+ * so run it with <code>-p nodes=10000,100000</code> only when there is
+ * time to spare.
+ */
+public class BetweennessBenchmark extends GraphBenchmark {
+
+	@Param("256")
+	public int samples;
+
+	private Graph graph;
+
+	@Override
+	protected void prepare() {
+		graph = basicGraph.getGraphModel().getGraph();
+	}
+
+	@Benchmark
+	public void exactBetweenness() {
+		CsrBetweenness betweenness = new CsrBetweenness();
+		betweenness.setParallelism(configuration.getParallelism());
+		betweenness.execute(graph, basicGraph.getAttributeModel());
+	}
+
+	@Benchmark
+	public void sampledBetweenness() {
+		CsrBetweenness betweenness = new CsrBetweenness();
+		betweenness.setSamples(samples);
+		betweenness.setParallelism(configuration.getParallelism());
+		betweenness.execute(graph, basicGraph.getAttributeModel());
+	}
+}
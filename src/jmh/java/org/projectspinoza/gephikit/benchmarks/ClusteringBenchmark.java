@@ -0,0 +1,36 @@
+package org.projectspinoza.gephikit.benchmarks;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.projectspinoza.gephikit.statistics.CsrChineseWhispers;
+
+import de.uni_leipzig.informatik.asv.gephi.chinesewhispers.ChineseWhispersClusterer;
+
+/**
+ * DeployServer.chineseWhispersClusterer as run for /gsakkit, and the two
+ * implementations it can choose from: the gephi-cw plugin, run with the
+ * workspace of the graph selected as gephi's current one, and
+ * {@link CsrChineseWhispers}
+ */
+public class ClusteringBenchmark extends GraphBenchmark {
+
+	@Benchmark
+	public void chineseWhispers() {
+		server.chineseWhispersClusterer(workspace, configuration);
+	}
+
+	@Benchmark
+	public void gephiChineseWhispers() {
+		workspace.runAsCurrent(() -> {
+			ChineseWhispersClusterer cwc = new ChineseWhispersClusterer();
+			cwc.execute(workspace.getGraphModel());
+		});
+	}
+
+	@Benchmark
+	public int csrChineseWhispers() {
+		CsrChineseWhispers cw = new CsrChineseWhispers();
+		cw.setParallelism(configuration.getParallelism());
+		return cw.execute(workspace.getGraphModel(),
+				workspace.getAttributeModel());
+	}
+}
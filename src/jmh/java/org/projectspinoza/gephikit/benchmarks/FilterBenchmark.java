@@ -0,0 +1,62 @@
+package org.projectspinoza.gephikit.benchmarks;
+
+import org.gephi.data.attributes.api.AttributeColumn;
+import org.gephi.graph.api.Graph;
+import org.gephi.graph.api.GraphModel;
+import org.gephi.graph.api.GraphView;
+import org.gephi.graph.api.Node;
+import org.gephi.statistics.plugin.PageRank;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.TearDown;
+import org.projectspinoza.gephikit.filters.GraphFilter;
+
+/**
+ * GraphFilter.removePercentageNodes by page rank, the pageRankThreashhold
+ * filter, which runs on a FilterEngine, against the full sort it used
+ * before. Every invocation removes the nodes from a fresh copy of the
+ * visible view, so the graph of the trial is never changed.
+ */
+public class FilterBenchmark extends GraphBenchmark {
+
+	/** percentage of nodes removed */
+	@Param("10")
+	public double threshold;
+
+	private final GraphFilter graphFilter = new GraphFilter();
+	private AttributeColumn column;
+	private GraphView view;
+	private Graph graph;
+
+	@Setup(Level.Invocation)
+	public void copyView() {
+		GraphModel graphModel = basicGraph.getGraphModel();
+		column = basicGraph.getAttributeModel().getNodeTable()
+				.getColumn(PageRank.PAGERANK);
+		view = graphModel.copyView(graphModel.getVisibleView());
+		graph = graphModel.getGraph(view);
+	}
+
+	@TearDown(Level.Invocation)
+	public void destroyView() {
+		basicGraph.getGraphModel().destroyView(view);
+	}
+
+	@Benchmark
+	public Graph removePercentageNodes() {
+		return graphFilter.removePercentageNodes(graph, column,
+				threshold / 100, PageRank.PAGERANK);
+	}
+
+	@Benchmark
+	public Graph sortAndRemove() {
+		Node[] nodes = graphFilter.sortgraphBasedonColoumnValue(graph, column);
+		int remove = (int) Math.ceil(nodes.length * threshold / 100);
+		for (int i = 0; i < remove; i++) {
+			graph.removeNode(nodes[i]);
+		}
+		return graph;
+	}
+}
@@ -0,0 +1,76 @@
+package org.projectspinoza.gephikit.benchmarks;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.projectspinoza.gephikit.BasicGraph;
+import org.projectspinoza.gephikit.DeployServer;
+import org.projectspinoza.gephikit.GephiWorkspace;
+import org.projectspinoza.gephikit.configuration.Configuration;
+
+/**
+ * Base of the benchmarks of the stages that run on a loaded graph. Each
+ * trial builds a graph of @nodes nodes from synthetic tweets the way a
+ * /gsakkit request does: in its own workspace, from a tweet file, with the
+ * page rank of every node calculated.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = "-Xmx4g")
+public abstract class GraphBenchmark {
+
+	@Param({ "1000", "10000", "100000" })
+	public int nodes;
+
+	@Param("configuration.json")
+	public String configurationFile;
+
+	protected DeployServer server;
+	protected Configuration configuration;
+	protected GephiWorkspace workspace;
+	protected BasicGraph basicGraph;
+	private Path tweets;
+
+	@Setup
+	public void buildGraph() throws Exception {
+		server = new DeployServer(configurationFile);
+		configuration = server.getConfigurationManager()
+				.newRequestConfiguration();
+		tweets = Files.createTempFile("gsakkit-tweets", ".txt");
+		new SyntheticHashtags(nodes, 1).writeTweets(tweets, nodes);
+		configuration.setSelectedDataSource("file");
+		configuration.getDatasource().setFilePath(tweets.toString());
+		workspace = GephiWorkspace.open();
+		basicGraph = new BasicGraph(configuration, workspace, null, null,
+				null);
+		server.calculatePageRank(true, basicGraph.getGraphModel(),
+				basicGraph.getAttributeModel(), configuration);
+		prepare();
+	}
+
+	/** called once the graph is built, for settings of a subclass */
+	protected void prepare() {
+	}
+
+	@TearDown
+	public void closeWorkspace() throws IOException {
+		workspace.close();
+		Files.deleteIfExists(tweets);
+	}
+}
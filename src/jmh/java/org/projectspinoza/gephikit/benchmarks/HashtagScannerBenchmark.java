@@ -0,0 +1,113 @@
+package org.projectspinoza.gephikit.benchmarks;
+
+import java.io.BufferedReader;
+import java.io.FileReader;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.projectspinoza.gephikit.datasource.HashtagScanner;
+
+/**
+ * Hashtag extraction of all lines of a tweets file, read the way FileLoader
+ * reads it: {@link HashtagScanner} against the replaceAll chain it replaced.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class HashtagScannerBenchmark {
+
+	@Param("tweets.txt")
+	public String filePath;
+
+	private List<String> tweets;
+
+	@Setup
+	public void readTweets() throws IOException {
+		tweets = new ArrayList<String>();
+		try (BufferedReader reader = new BufferedReader(new FileReader(
+				filePath))) {
+			String line;
+			while ((line = reader.readLine()) != null) {
+				tweets.add(line);
+			}
+		}
+	}
+
+	@Benchmark
+	public int scanner() {
+		int found = 0;
+		for (String tweet : tweets) {
+			Set<String> tags = new HashSet<String>();
+			HashtagScanner.scan(tweet, tags);
+			found += tags.size();
+		}
+		return found;
+	}
+
+	@Benchmark
+	public int legacy() {
+		int found = 0;
+		for (String tweet : tweets) {
+			Set<String> tags = new HashSet<String>();
+			legacyExtractTags(tweet, tags);
+			found += tags.size();
+		}
+		return found;
+	}
+
+	/**
+	 * FileLoader.extractTags before it was replaced by HashtagScanner
+	 */
+	private static void legacyExtractTags(String tweet, Set<String> tags) {
+
+		String parts[] = tweet.replaceAll("/[^A-Za-z0-9 #]/", " ")
+				.replace("\n", " ").replace("\r", " ")
+				.replaceAll("\\P{Print}", " ").split(" ");
+
+		for (String part : parts) {
+			part = part.trim();
+			if (part.length() < 2 || part.length() > 20)
+				continue;
+			if (part.equals("#rt"))
+				continue;
+
+			if (part.startsWith("#")) {
+				// . splits hashtags of type: #tag1#tag2...
+				if ((part.length() - part.replace("#", "").length()) > 1) {
+					String[] subParts = part.split("#");
+					for (String sb : subParts) {
+						sb = sb.replaceAll("[^a-zA-Z0-9_-]", "").trim();
+						sb = sb.replace("\\s", "");
+						if (sb.length() > 1) {
+							tags.add(sb);
+						}
+					}
+					continue;
+				}
+				part = part.replaceAll("[^a-zA-Z0-9_-]", "").trim();
+				part = part.replace("\\s", "");
+				if (part.length() > 1) {
+					tags.add(part);
+				}
+			}
+		}
+	}
+}
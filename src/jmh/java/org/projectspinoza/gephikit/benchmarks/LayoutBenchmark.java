@@ -0,0 +1,58 @@
+package org.projectspinoza.gephikit.benchmarks;
+
+import java.util.Random;
+
+import org.gephi.graph.api.Node;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Setup;
+import org.projectspinoza.gephikit.layouts.LayoutBudget;
+import org.projectspinoza.gephikit.layouts.LayoutManager;
+import org.projectspinoza.gephikit.layouts.LayoutRun;
+
+/**
+ * A fixed number of iterations of each LayoutManager algorithm. Time budget
+ * and convergence test are switched off, and every invocation starts from
+ * the same random positions.
+ * <p>
+ * FruchtermanReingold computes all pairwise forces; at 100000 nodes a single
+ * iteration takes minutes, pass e.g. -p iterations=1 to keep runs short.
+ */
+public class LayoutBenchmark extends GraphBenchmark {
+
+	@Param({ "YifanHuLayout", "FruchtermanReingold", "ForceAtlas2" })
+	public String layout;
+
+	@Param("10")
+	public int iterations;
+
+	private Node[] graphNodes;
+
+	@Override
+	protected void prepare() {
+		configuration.getLayout().getYiFanHuLayout().setIteration(iterations);
+		configuration.getLayout().getFruchtermanReingold()
+				.setIteration(iterations);
+		configuration.getLayout().getForceAtlas2().setIteration(iterations);
+		configuration.getLayout().setBudget(new LayoutBudget());
+		graphNodes = basicGraph.getGraphModel().getGraphVisible().getNodes()
+				.toArray();
+	}
+
+	@Setup(Level.Invocation)
+	public void scatter() {
+		Random random = new Random(nodes);
+		float size = (float) Math.sqrt(graphNodes.length) * 10;
+		for (Node node : graphNodes) {
+			node.getNodeData().setX((random.nextFloat() - 0.5f) * size);
+			node.getNodeData().setY((random.nextFloat() - 0.5f) * size);
+		}
+	}
+
+	@Benchmark
+	public LayoutRun apply() {
+		return new LayoutManager(layout, basicGraph.getGraphModel(),
+				configuration).getRun();
+	}
+}
@@ -0,0 +1,91 @@
+package org.projectspinoza.gephikit.benchmarks;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import org.gephi.io.importer.api.Container;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.projectspinoza.gephikit.configuration.Configuration;
+import org.projectspinoza.gephikit.configuration.ConfigurationManager;
+import org.projectspinoza.gephikit.datasource.ElasticSearchDataLoader;
+import org.projectspinoza.gephikit.datasource.FileLoader;
+
+/**
+ * Building the gephi import container from a tweet file and from
+ * elasticsearch documents, the first stage of every graph request. Both
+ * sources hold one synthetic tweet per node.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = "-Xmx4g")
+public class LoadBenchmark {
+
+	private static final String FIELD = "keywords";
+	private static final String SPLIT_BY = ",";
+
+	@Param({ "1000", "10000", "100000" })
+	public int nodes;
+
+	@Param("configuration.json")
+	public String configurationFile;
+
+	private Configuration configuration;
+	private Path tweets;
+	private List<Map<String, Object>> documents;
+	private List<Map<String, Object>> fields;
+
+	@Setup
+	public void generate() throws IOException {
+		ConfigurationManager configurationManager = new ConfigurationManager();
+		configurationManager.setInitialConfiguration(configurationFile);
+		configuration = configurationManager.getConfiguration();
+		tweets = Files.createTempFile("gsakkit-tweets", ".txt");
+		new SyntheticHashtags(nodes, 1).writeTweets(tweets, nodes);
+		documents = new SyntheticHashtags(nodes, 2).documents(nodes, FIELD,
+				SPLIT_BY);
+		Map<String, Object> field = new HashMap<String, Object>();
+		field.put("name", FIELD);
+		field.put("splitBy", SPLIT_BY);
+		fields = new ArrayList<Map<String, Object>>();
+		fields.add(field);
+	}
+
+	@TearDown
+	public void deleteTweets() throws IOException {
+		Files.deleteIfExists(tweets);
+	}
+
+	@Benchmark
+	public Container fileLoader() throws IOException {
+		FileLoader fileLoader = new FileLoader(tweets.toString(), configuration
+				.getDatasource().isFileStreaming());
+		fileLoader.setParallelism(configuration.getParallelism());
+		return fileLoader.load();
+	}
+
+	@Benchmark
+	public Container elasticSearchDataLoader() {
+		return new ElasticSearchDataLoader(documents, fields, configuration)
+				.load();
+	}
+}
@@ -0,0 +1,35 @@
+package org.projectspinoza.gephikit.benchmarks;
+
+import org.gephi.statistics.plugin.PageRank;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.projectspinoza.gephikit.statistics.CsrPageRank;
+
+/**
+ * DeployServer.calculatePageRank, run on graph requests that filter, size
+ * or answer by page rank, and the two implementations it can choose from:
+ * gephi's PageRank statistic and {@link CsrPageRank}
+ */
+public class PageRankBenchmark extends GraphBenchmark {
+
+	@Benchmark
+	public void calculatePageRank() {
+		server.calculatePageRank(true, basicGraph.getGraphModel(),
+				basicGraph.getAttributeModel(), configuration);
+	}
+
+	@Benchmark
+	public void gephiPageRank() {
+		PageRank pr = new PageRank();
+		pr.setDirected(true);
+		pr.setEpsilon(0.001);
+		pr.setProbability(0.85);
+		pr.execute(basicGraph.getGraphModel(), basicGraph.getAttributeModel());
+	}
+
+	@Benchmark
+	public void csrPageRank() {
+		CsrPageRank pr = new CsrPageRank();
+		pr.setParallelism(configuration.getParallelism());
+		pr.execute(basicGraph.getGraphModel(), basicGraph.getAttributeModel());
+	}
+}
@@ -0,0 +1,41 @@
+package org.projectspinoza.gephikit.benchmarks;
+
+import java.io.IOException;
+
+import org.gephi.graph.api.Graph;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.projectspinoza.gephikit.BufferOutputStream;
+import org.projectspinoza.gephikit.datasource.SigmaGraphWriter;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import io.vertx.core.buffer.Buffer;
+
+/**
+ * Turning the graph into the sigma json of a response: SigmaGraph.build
+ * followed by Jackson, as for legacyGraphResponse, against
+ * SigmaGraphWriter streaming the same json into a buffer.
+ */
+public class SerializationBenchmark extends GraphBenchmark {
+
+	private final ObjectMapper mapper = new ObjectMapper();
+	private final SigmaGraphWriter writer = new SigmaGraphWriter();
+
+	@Benchmark
+	public String sigmaGraph() throws IOException {
+		Graph graph = basicGraph.getGraphModel().getDirectedGraph();
+		return server.getSigmaGraph(graph, configuration);
+	}
+
+	@Benchmark
+	public Buffer sigmaGraphWriter() throws IOException {
+		Graph graph = basicGraph.getGraphModel().getDirectedGraph();
+		Buffer body = Buffer.buffer();
+		try (JsonGenerator generator = mapper.getFactory().createGenerator(
+				new BufferOutputStream(body))) {
+			writer.write(generator, graph, configuration);
+		}
+		return body;
+	}
+}
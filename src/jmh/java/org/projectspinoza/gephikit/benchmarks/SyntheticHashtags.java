@@ -0,0 +1,120 @@
+package org.projectspinoza.gephikit.benchmarks;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.Set;
+
+/**
+ * Generates tweets whose hashtags follow a power law, like real hashtags do:
+ * the tag of rank r is drawn with a probability proportional to
+ * 1 / r^exponent. Every tag is used by at least one tweet, so a graph built
+ * from tagCount tweets has exactly tagCount nodes. The same seed always
+ * gives the same tweets.
+ */
+public class SyntheticHashtags {
+
+	public static final double EXPONENT = 1.1;
+	public static final int MAX_TAGS_PER_TWEET = 6;
+
+	private final int tagCount;
+	private final double[] cumulative;
+	private final Random random;
+
+	public SyntheticHashtags(int tagCount, long seed) {
+		this(tagCount, EXPONENT, seed);
+	}
+
+	public SyntheticHashtags(int tagCount, double exponent, long seed) {
+		this.tagCount = tagCount;
+		this.random = new Random(seed);
+		cumulative = new double[tagCount];
+		double sum = 0;
+		for (int rank = 0; rank < tagCount; rank++) {
+			sum += 1 / Math.pow(rank + 1, exponent);
+			cumulative[rank] = sum;
+		}
+		for (int rank = 0; rank < tagCount; rank++) {
+			cumulative[rank] /= sum;
+		}
+	}
+
+	/** name of the tag of @rank, a valid hashtag of at most 8 characters */
+	public static String tag(int rank) {
+		return "t" + Integer.toString(rank, 36);
+	}
+
+	/** rank of a tag drawn from the power law */
+	public int nextRank() {
+		int rank = Arrays.binarySearch(cumulative, random.nextDouble());
+		return Math.min(rank < 0 ? -rank - 1 : rank, tagCount - 1);
+	}
+
+	/**
+	 * @param index
+	 *            of the tweet; tweet i always holds tag i modulo tagCount
+	 * @return the distinct tags of the next tweet, 1 to MAX_TAGS_PER_TWEET
+	 */
+	public Set<String> nextTags(int index) {
+		Set<String> tags = new LinkedHashSet<String>();
+		tags.add(tag(index % tagCount));
+		int extra = random.nextInt(MAX_TAGS_PER_TWEET);
+		for (int i = 0; i < extra; i++) {
+			tags.add(tag(nextRank()));
+		}
+		return tags;
+	}
+
+	/**
+	 * writes @count tweets, one per line, in the text format FileLoader reads
+	 *
+	 * @param file
+	 * @param count
+	 * @throws IOException
+	 */
+	public void writeTweets(Path file, int count) throws IOException {
+		try (BufferedWriter writer = Files.newBufferedWriter(file,
+				StandardCharsets.UTF_8)) {
+			for (int i = 0; i < count; i++) {
+				writer.write("status " + i + " rt @user" + random.nextInt(1000)
+						+ ":");
+				for (String tag : nextTags(i)) {
+					writer.write(" #");
+					writer.write(tag);
+				}
+				writer.write(" http://t.co/x" + i);
+				writer.newLine();
+			}
+		}
+	}
+
+	/**
+	 * @param count
+	 * @param field
+	 *            document field receiving the tags
+	 * @param separator
+	 *            put between the tags, the splitBy of @field
+	 * @return @count elasticsearch documents
+	 */
+	public List<Map<String, Object>> documents(int count, String field,
+			String separator) {
+		List<Map<String, Object>> documents = new ArrayList<Map<String, Object>>(
+				count);
+		for (int i = 0; i < count; i++) {
+			Map<String, Object> document = new HashMap<String, Object>();
+			document.put("id", i);
+			document.put(field, String.join(separator, nextTags(i)));
+			documents.add(document);
+		}
+		return documents;
+	}
+}
@@ -1,10 +1,13 @@
 package org.projectspinoza.gephikit;
 
+import java.nio.ByteBuffer;
 import java.util.ArrayList;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
 
-import org.gephi.graph.api.GraphController;
+import org.gephi.data.attributes.api.AttributeModel;
 import org.gephi.graph.api.GraphModel;
 import org.gephi.io.importer.api.Container;
 import org.gephi.io.importer.api.ImportController;
@@ -15,12 +18,20 @@ import org.gephi.project.api.ProjectController;
 import org.gephi.project.api.Workspace;
 import org.gephi.ranking.api.RankingController;
 import org.openide.util.Lookup;
+import org.projectspinoza.gephikit.cache.GraphSnapshot;
+import org.projectspinoza.gephikit.cache.GraphSnapshotStore;
 import org.projectspinoza.gephikit.configuration.Configuration;
 import org.projectspinoza.gephikit.datasource.DataLoader;
+import org.projectspinoza.gephikit.datasource.ElasticSearchClients;
 import org.projectspinoza.gephikit.datasource.ElasticSearchDataLoader;
 import org.projectspinoza.gephikit.datasource.ElasticSearchDocuments;
 import org.projectspinoza.gephikit.datasource.FileLoader;
 import org.projectspinoza.gephikit.filters.GraphPreview;
+import org.projectspinoza.gephikit.metrics.RequestTimings;
+import org.projectspinoza.gephikit.statistics.GraphStatistics;
+import org.projectspinoza.gephikit.statistics.Statistic;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
 
 public class BasicGraph {
 	ProjectController pc;
@@ -36,27 +47,68 @@ public class BasicGraph {
 	RankingController rankingController;
 	Configuration conf;
 	List<Map<String, Object>> documents;
-	public BasicGraph(Configuration config) throws Exception {
-		initialize(config);
-		processDataSource();
+	AttributeModel attributeModel;
+	ElasticSearchClients elasticSearchClients;
+	RequestTimings timings;
+	private final GraphStatistics statistics = new GraphStatistics();
+	private GraphSnapshotStore snapshotStore;
+	private String snapshotKey;
+	/** statistics of the snapshot the graph was loaded from, or null if built */
+	private Set<Statistic> snapshotStatistics;
+	private int documentCount;
 
+	/**
+	 * builds the graph of @config in @gephiWorkspace, or loads it from its
+	 * snapshot in @snapshotStore if there is one
+	 * 
+	 * @param config
+	 * @param gephiWorkspace
+	 * @param elasticSearchClients
+	 *            shared clients, or null for clients of this graph's own
+	 * @param timings
+	 *            receives the fetch, load and import stages, or null
+	 * @param snapshotStore
+	 *            or null to always build the graph
+	 * @throws Exception
+	 */
+	public BasicGraph(Configuration config, GephiWorkspace gephiWorkspace,
+			ElasticSearchClients elasticSearchClients, RequestTimings timings,
+			GraphSnapshotStore snapshotStore) throws Exception {
+		this.elasticSearchClients = elasticSearchClients;
+		this.timings = timings;
+		initialize(config, gephiWorkspace);
+		if (snapshotStore != null && snapshotStore.covers(config)) {
+			this.snapshotStore = snapshotStore;
+			snapshotKey = snapshotStore.key(config);
+			if (loadSnapshot()) {
+				return;
+			}
+		}
+		processDataSource();
 	}
 
-
-	public void initialize(Configuration config) {
+	/**
+	 * binds this graph to the given request workspace
+	 * 
+	 * @param config
+	 * @param gephiWorkspace
+	 */
+	public void initialize(Configuration config, GephiWorkspace gephiWorkspace) {
 		configuration = config;
 		pc = Lookup.getDefault().lookup(ProjectController.class);
-		pc.newProject();
-		workSpace = pc.getCurrentWorkspace();
-		graphModel = Lookup.getDefault().lookup(GraphController.class)
-				.getModel();
-		workspace = pc.getCurrentWorkspace();
+		workSpace = gephiWorkspace.getWorkspace();
+		graphModel = gephiWorkspace.getGraphModel();
+		attributeModel = gephiWorkspace.getAttributeModel();
+		workspace = gephiWorkspace.getWorkspace();
 		importController = Lookup.getDefault().lookup(ImportController.class);
 		previewModel = Lookup.getDefault().lookup(PreviewController.class)
-                .getModel();
+                .getModel(workspace);
 		graphPreview = new GraphPreview(); 
 		rankingController = Lookup.getDefault().lookup(RankingController.class);
 		conf = config;
+		if (timings == null) {
+			timings = new RequestTimings();
+		}
 	}
 	
     /**
@@ -67,29 +119,111 @@ public class BasicGraph {
 		
 		if (configuration.getSelectedDataSource().trim().equals("file")) {
 			
-			dataloader = new FileLoader(configuration.getDatasource().getFilePath());
+			long start = System.nanoTime();
+			FileLoader fileLoader = new FileLoader(configuration.getDatasource().getFilePath(),
+					configuration.getDatasource().isFileStreaming());
+			fileLoader.setParallelism(configuration.getParallelism());
+			dataloader = fileLoader;
 			container = dataloader.load();
+			timings.stageDone(RequestTimings.LOAD, start);
+			documentCount = fileLoader.getLineCount();
+			timings.setDocuments(documentCount);
 		}else if(configuration.getSelectedDataSource().trim().equals("elasticsearch")){
 			
-			String host = configuration.getDatasource().getElasticsearchDocument().getHost();
-			int port = configuration.getDatasource().getElasticsearchDocument().getPort();
-			String clusterName = configuration.getDatasource().getElasticsearchDocument().getClusterName();
-			String index = configuration.getDatasource().getElasticsearchDocument().getIndex();
-			String type = configuration.getDatasource().getElasticsearchDocument().getType();
-			List<String> searchFields = configuration.getDatasource().getElasticsearchDocument().getSearchFields();
-			String searchValue = configuration.getDatasource().getElasticsearchDocument().getSearchValue();
-			List<String> returnFields = configuration.getDatasource().getElasticsearchDocument().getReturnFields();
-			int documentsLimit = configuration.getDatasource().getElasticsearchDocument().getDocumentsLimit();
-			
-			ElasticSearchDocuments esd = new ElasticSearchDocuments(host, port, clusterName, index, type, searchFields, searchValue, returnFields, documentsLimit);
-			dataloader = new ElasticSearchDataLoader(esd.getDocuments(), configuration.getDatasource().getElasticsearchDataLoad().getFields(), conf);
-				setDocuments(esd.getDocuments());
+			// the request's own copy of the configured search
+			ElasticSearchDocuments esd = configuration.getDatasource().getElasticsearchDocument();
+			List<Map<String, Object>> loadFields = configuration.getDatasource().getElasticsearchDataLoad().getFields();
+			esd.setClients(elasticSearchClients);
+			esd.setExtraSourceFields(ElasticSearchDataLoader.fieldNames(loadFields));
+			long start = System.nanoTime();
+			if (esd.isScroll()) {
+				// the graph is built page by page while the search scrolls
+				ElasticSearchDataLoader pagedLoader = new ElasticSearchDataLoader(loadFields, conf);
+				esd.setPageListener(pagedLoader::addDocuments);
+				try {
+					esd.startProcess();
+				} catch (Exception e) {
+					pagedLoader.abort();
+					throw e;
+				}
+				dataloader = pagedLoader;
+			} else {
+				esd.startProcess();
+				dataloader = new ElasticSearchDataLoader(esd.getDocuments(), loadFields, conf);
+			}
+			setDocuments(esd.getDocuments());
+			timings.stageDone(RequestTimings.FETCH, start);
+			documentCount = esd.getDocuments().size();
+			timings.setDocuments(documentCount);
+			start = System.nanoTime();
 			container = dataloader.load();
+			timings.stageDone(RequestTimings.LOAD, start);
 			
 		}
+		long start = System.nanoTime();
 		importController.process(container, new DefaultProcessor(), workspace);
-	   
-         
+		timings.stageDone(RequestTimings.IMPORT, start);
+		timings.setGraphSize(graphModel.getGraph().getNodeCount(), graphModel
+				.getGraph().getEdgeCount());
+	}
+
+	/**
+	 * adds the nodes, edges and statistics of the snapshot of this graph to
+	 * the workspace
+	 * 
+	 * @return false if there is no snapshot
+	 * @throws Exception
+	 */
+	@SuppressWarnings("unchecked")
+	private boolean loadSnapshot() throws Exception {
+		long start = System.nanoTime();
+		GraphSnapshot snapshot = snapshotStore.open(snapshotKey);
+		if (snapshot == null) {
+			return false;
+		}
+		snapshot.addTo(graphModel, attributeModel);
+		snapshotStatistics = snapshot.getStatistics();
+		for (Statistic statistic : snapshotStatistics) {
+			statistics.markComputed(statistic);
+		}
+		Map<String, Object> meta = new ObjectMapper().readValue(
+				snapshot.getMeta(), Map.class);
+		setDocuments((List<Map<String, Object>>) meta.get("documents"));
+		documentCount = ((Number) meta.get("documentCount")).intValue();
+		timings.stageDone(RequestTimings.SNAPSHOT_LOAD, start);
+		timings.setDocuments(documentCount);
+		timings.setGraphSize(snapshot.nodeCount(), snapshot.edgeCount());
+		return true;
+	}
+
+	/**
+	 * saves the graph and the statistics computed for it, unless it was
+	 * loaded from a snapshot that holds them all already; call before
+	 * filters remove nodes. Clusters are never saved, they are taken after
+	 * the layout.
+	 * 
+	 * @throws Exception
+	 */
+	public void saveSnapshot() throws Exception {
+		if (snapshotStore == null) {
+			return;
+		}
+		Set<Statistic> computed = statistics.getComputed();
+		computed.remove(Statistic.CLUSTERS);
+		if (snapshotStatistics != null
+				&& snapshotStatistics.containsAll(computed)) {
+			return;
+		}
+		long start = System.nanoTime();
+		Map<String, Object> meta = new LinkedHashMap<String, Object>();
+		meta.put("documents", documents);
+		meta.put("documentCount", documentCount);
+		ByteBuffer snapshot = GraphSnapshot.encode(graphModel.getGraph(),
+				attributeModel, computed,
+				new ObjectMapper().writeValueAsBytes(meta));
+		snapshotStore.save(snapshotKey, snapshot);
+		snapshotStatistics = computed;
+		timings.stageDone(RequestTimings.SNAPSHOT_SAVE, start);
 	}
 
 	
@@ -110,4 +244,19 @@ public class BasicGraph {
 	}
 
 
+	public AttributeModel getAttributeModel() {
+		return attributeModel;
+	}
+
+
+	public RequestTimings getTimings() {
+		return timings;
+	}
+
+	/** statistics computed for this graph so far */
+	public GraphStatistics getStatistics() {
+		return statistics;
+	}
+
+
 }
@@ -0,0 +1,32 @@
+package org.projectspinoza.gephikit;
+
+import io.vertx.core.buffer.Buffer;
+
+import java.io.OutputStream;
+
+/**
+ * Appends everything written to a Vert.x buffer, so responses can be
+ * serialized straight into the buffer they are sent from.
+ */
+public class BufferOutputStream extends OutputStream {
+
+	private final Buffer buffer;
+
+	public BufferOutputStream(Buffer buffer) {
+		this.buffer = buffer;
+	}
+
+	@Override
+	public void write(int b) {
+		buffer.appendByte((byte) b);
+	}
+
+	@Override
+	public void write(byte[] b, int off, int len) {
+		buffer.appendBytes(b, off, len);
+	}
+
+	public Buffer getBuffer() {
+		return buffer;
+	}
+}
@@ -0,0 +1,117 @@
+package org.projectspinoza.gephikit;
+
+import io.vertx.core.buffer.Buffer;
+import io.vertx.core.http.HttpServerResponse;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.io.OutputStream;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Sends everything written to a chunked http response, one chunk whenever
+ * chunkSize bytes have been collected, so the client receives the first
+ * nodes of a graph while the rest is still being serialized. Must be used
+ * from a worker thread: a write blocks while the response write queue is
+ * full. If a copy buffer is given, all bytes are also appended to it, e.g.
+ * for the response cache.
+ */
+public class ChunkedResponseStream extends OutputStream {
+
+	private final HttpServerResponse response;
+	private final int chunkSize;
+	private final Buffer copy;
+	private Buffer chunk;
+	private boolean committed;
+
+	/**
+	 * @param response
+	 * @param chunkSize
+	 *            bytes per chunk
+	 * @param copy
+	 *            buffer receiving a copy of the body, or null
+	 */
+	public ChunkedResponseStream(HttpServerResponse response, int chunkSize,
+			Buffer copy) {
+		this.response = response;
+		this.chunkSize = chunkSize;
+		this.copy = copy;
+		this.chunk = Buffer.buffer(chunkSize);
+		response.setChunked(true);
+	}
+
+	@Override
+	public void write(int b) throws IOException {
+		chunk.appendByte((byte) b);
+		if (chunk.length() >= chunkSize) {
+			flush();
+		}
+	}
+
+	@Override
+	public void write(byte[] b, int off, int len) throws IOException {
+		chunk.appendBytes(b, off, len);
+		if (chunk.length() >= chunkSize) {
+			flush();
+		}
+	}
+
+	/**
+	 * sends the collected bytes as one chunk
+	 */
+	@Override
+	public void flush() throws IOException {
+		if (chunk.length() == 0) {
+			return;
+		}
+		if (response.closed()) {
+			throw new IOException("connection closed by client");
+		}
+		awaitDrain();
+		if (copy != null) {
+			copy.appendBuffer(chunk);
+		}
+		response.write(chunk);
+		committed = true;
+		chunk = Buffer.buffer(chunkSize);
+	}
+
+	/**
+	 * whether a chunk was sent; until then the response can still be
+	 * replaced by an error body
+	 */
+	public boolean isCommitted() {
+		return committed;
+	}
+
+	/**
+	 * sends the last chunk and ends the response
+	 */
+	@Override
+	public void close() throws IOException {
+		flush();
+		response.end();
+	}
+
+	private void awaitDrain() throws IOException {
+		if (!response.writeQueueFull()) {
+			return;
+		}
+		CountDownLatch drained = new CountDownLatch(1);
+		response.drainHandler(v -> drained.countDown());
+		// the queue may have drained before the handler was set
+		try {
+			while (response.writeQueueFull()
+					&& !drained.await(100, TimeUnit.MILLISECONDS)) {
+				if (response.closed()) {
+					throw new IOException("connection closed by client");
+				}
+			}
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new InterruptedIOException();
+		}
+		response.drainHandler(null);
+	}
+}
@@ -1,27 +1,53 @@
 package org.projectspinoza.gephikit;
 
 import java.io.IOException;
+import java.io.OutputStream;
+import java.util.Arrays;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
 
 import org.apache.log4j.Logger;
 import org.elasticsearch.client.transport.NoNodeAvailableException;
-import org.gephi.data.attributes.api.AttributeController;
 import org.gephi.data.attributes.api.AttributeModel;
+import org.gephi.data.attributes.api.AttributeTable;
 import org.gephi.graph.api.Graph;
 import org.gephi.graph.api.GraphModel;
-import org.gephi.preview.api.PreviewController;
-import org.gephi.preview.api.PreviewModel;
-import org.gephi.ranking.api.RankingController;
+import org.gephi.statistics.plugin.GraphDistance;
 import org.gephi.statistics.plugin.PageRank;
-import org.openide.util.Lookup;
+import org.projectspinoza.gephikit.cache.CacheSettings;
+import org.projectspinoza.gephikit.cache.GraphResponseCache;
+import org.projectspinoza.gephikit.cache.GraphSnapshotStore;
+import org.projectspinoza.gephikit.cache.SnapshotSettings;
+import org.projectspinoza.gephikit.configuration.Configuration;
 import org.projectspinoza.gephikit.configuration.ConfigurationManager;
+import org.projectspinoza.gephikit.datasource.BinaryGraphWriter;
+import org.projectspinoza.gephikit.datasource.EdgePipeline;
+import org.projectspinoza.gephikit.datasource.ElasticSearchClients;
 import org.projectspinoza.gephikit.datasource.SigmaGraph;
+import org.projectspinoza.gephikit.datasource.SigmaGraphWriter;
+import org.projectspinoza.gephikit.filters.FilterEngine;
 import org.projectspinoza.gephikit.filters.FilterImplemintation;
-import org.projectspinoza.gephikit.filters.GraphFilter;
-import org.projectspinoza.gephikit.filters.GraphPreview;
+import org.projectspinoza.gephikit.layouts.ForceAtlas2;
+import org.projectspinoza.gephikit.layouts.ForceAtlas2Engine;
+import org.projectspinoza.gephikit.layouts.LayoutBudget;
 import org.projectspinoza.gephikit.layouts.LayoutManager;
-
+import org.projectspinoza.gephikit.layouts.LayoutPositionStore;
+import org.projectspinoza.gephikit.layouts.LayoutRun;
+import org.projectspinoza.gephikit.layouts.WarmStart;
+import org.projectspinoza.gephikit.metrics.GraphMetrics;
+import org.projectspinoza.gephikit.metrics.RequestTimings;
+import org.projectspinoza.gephikit.statistics.BetweennessSettings;
+import org.projectspinoza.gephikit.statistics.ClusteringSettings;
+import org.projectspinoza.gephikit.statistics.CsrBetweenness;
+import org.projectspinoza.gephikit.statistics.CsrChineseWhispers;
+import org.projectspinoza.gephikit.statistics.CsrDegree;
+import org.projectspinoza.gephikit.statistics.CsrPageRank;
+import org.projectspinoza.gephikit.statistics.PageRankSettings;
+import org.projectspinoza.gephikit.statistics.Statistic;
+import org.projectspinoza.gephikit.statistics.StatisticsPlan;
+
+import com.fasterxml.jackson.core.JsonGenerator;
 import com.fasterxml.jackson.core.JsonParseException;
 import com.fasterxml.jackson.core.JsonProcessingException;
 import com.fasterxml.jackson.core.type.TypeReference;
@@ -30,29 +56,45 @@ import com.fasterxml.jackson.databind.ObjectMapper;
 
 import de.uni_leipzig.informatik.asv.gephi.chinesewhispers.ChineseWhispersClusterer;
 import io.vertx.core.AbstractVerticle;
+import io.vertx.core.Future;
+import io.vertx.core.buffer.Buffer;
 import io.vertx.core.http.HttpMethod;
 import io.vertx.core.http.HttpServer;
+import io.vertx.core.http.HttpServerOptions;
 import io.vertx.core.http.HttpServerResponse;
 import io.vertx.ext.web.Router;
+import io.vertx.ext.web.RoutingContext;
 import io.vertx.ext.web.handler.CorsHandler;
 
+/**
+ * Graph routes run on worker threads without ordering, so several requests
+ * are processed at the same time. Everything a request touches (its
+ * configuration, gephi workspace, graph and response) is created per request;
+ * the fields of this verticle are shared, read only services.
+ */
 public class DeployServer extends AbstractVerticle {
     String response;
     ConfigurationManager configurationManager;
     ObjectMapper mapper;
-    BasicGraph basicGraph;
-    SigmaGraph sigmaGraph;
-    LayoutManager layoutManager;
-    AttributeModel attributeModel;
-    GraphFilter graphFilter;
-    Map<String, Object> responseMap;
     FilterImplemintation filterImplementation;
     HttpServer server;
     Router router;
+    GraphResponseCache responseCache;
+    GraphSnapshotStore snapshotStore;
+    SigmaGraphWriter sigmaGraphWriter;
+    BinaryGraphWriter binaryGraphWriter;
+    LayoutPositionStore layoutPositions;
+    ElasticSearchClients elasticSearchClients;
+    GraphMetrics metrics;
 
     private static org.apache.log4j.Logger log = Logger
             .getLogger(DeployServer.class);
 
+    /** how a graph route treats an optional settings parameter */
+    private enum Param {
+        IGNORED, OPTIONAL, REQUIRED
+    }
+
     public DeployServer(String configurationFilePath)
             throws JsonParseException, JsonMappingException, IOException {
         initialize(configurationFilePath);
@@ -72,18 +114,37 @@ public class DeployServer extends AbstractVerticle {
         mapper = new ObjectMapper();
         configurationManager = new ConfigurationManager();
         configurationManager.setInitialConfiguration(configurationFilePath);
-        graphFilter = new GraphFilter();
-        responseMap = new HashMap<String, Object>();
         filterImplementation = new FilterImplemintation();
-        layoutManager = null;
+        sigmaGraphWriter = new SigmaGraphWriter();
+        binaryGraphWriter = new BinaryGraphWriter();
+        metrics = new GraphMetrics();
+        CacheSettings cacheSettings = configurationManager.getConfiguration()
+                .getCache();
+        if (cacheSettings != null && cacheSettings.isEnabled()) {
+            responseCache = new GraphResponseCache(cacheSettings);
+        }
+        SnapshotSettings snapshotSettings = configurationManager
+                .getConfiguration().getSnapshot();
+        if (snapshotSettings != null && snapshotSettings.isEnabled()) {
+            snapshotStore = new GraphSnapshotStore(snapshotSettings);
+        }
+        WarmStart warmStart = configurationManager.getConfiguration()
+                .getLayout().getWarmStart();
+        if (warmStart != null && warmStart.isEnabled()) {
+            layoutPositions = new LayoutPositionStore(warmStart);
+        }
     }
 
     /**
      * Deploying the verical
      */
     @Override
-    public void start() {
-        server = vertx.createHttpServer();
+    public void start(Future<Void> startFuture) {
+        elasticSearchClients = new ElasticSearchClients();
+        // gzip or deflate, as negotiated through accept-encoding
+        server = vertx.createHttpServer(new HttpServerOptions()
+                .setCompressionSupported(configurationManager
+                        .getConfiguration().isCompressionSupported()));
         router = Router.router(vertx);
         router.route()
                 .handler(CorsHandler.create("*").allowedMethod(HttpMethod.GET)
@@ -94,7 +155,24 @@ public class DeployServer extends AbstractVerticle {
         registerHandlers();
         server.requestHandler(router::accept).listen(
                 configurationManager.getConfiguration().getPort(),
-                configurationManager.getConfiguration().getHost());
+                configurationManager.getConfiguration().getHost(),
+                listening -> {
+                    if (listening.succeeded()) {
+                        startFuture.complete();
+                    } else {
+                        startFuture.fail(listening.cause());
+                    }
+                });
+    }
+
+    /**
+     * closes the shared elasticsearch clients when the verticle is undeployed
+     */
+    @Override
+    public void stop() {
+        if (elasticSearchClients != null) {
+            elasticSearchClients.close();
+        }
     }
 
     /**
@@ -106,234 +184,370 @@ public class DeployServer extends AbstractVerticle {
             HttpServerResponse response = routingContext.response();
             response.end(graphJson);
         });
-        // gephi route to generate simple gephi graph
-        router.route("/gephi").blockingHandler(routingContext -> {
-            String graphJson = "";
+        // response cache statistics
+        router.route("/cache").handler(routingContext -> {
             HttpServerResponse response = routingContext.response();
             enableCors(response);
+            Map<String, Object> stats = new HashMap<String, Object>();
+            stats.put("enabled", responseCache != null);
+            if (responseCache != null) {
+                stats.put("hits", responseCache.getHits());
+                stats.put("misses", responseCache.getMisses());
+                stats.put("evictions", responseCache.getEvictions());
+                stats.put("entries", responseCache.size());
+                stats.put("bytes", responseCache.getBytes());
+            }
             try {
-                if (routingContext.request()
-                        .getParam("basicSettings") != null) {
-                    HashMap<String, Object> basicCofiguration = mapper
-                            .readValue(
-                                    routingContext.request()
-                                            .getParam("basicSettings"),
-                                    new TypeReference<HashMap<String, Object>>() {
-                                    });
-                    applyBasicConfiguration(basicCofiguration,
-                            configurationManager);
-                }
-                basicGraph = getBasicgraph();
-                calculatePageRank(true, basicGraph.getGraphModel(),
-                        getAttributeModel());
-                graphJson = getSigmaGraph(
-                        basicGraph.getGraphModel().getDirectedGraph());
-                responseMap.put("graph",graphJson );
-                responseMap.put("documents",mapper.writeValueAsString(basicGraph.getDocuments()) );
-                graphJson = mapper.writeValueAsString(responseMap);
-            } catch (NoNodeAvailableException e) {
-                log.error("ElasticSearch Connectivity Error ");
-                graphJson = "{error : ElasticSearch Connectivity Error }";
-            } catch (IOException ioException) {
-                log.error("Exception Reading Text File");
-                graphJson = "{error : Exception Reading Text File}";
-            } catch (Exception ex) {
-                ex.printStackTrace();
-                graphJson = "{error:" + ex.getMessage() + "}";
+                response.end(mapper.writeValueAsString(stats));
+            } catch (JsonProcessingException e) {
+                response.setStatusCode(500).end();
             }
-
-            response.end(graphJson);
         });
-
-        // layout route to generate graph with the required layout
-        router.route("/layout").blockingHandler(routingContext -> {
+        // elasticsearch client reuse and connectivity
+        router.route("/elasticsearch").handler(routingContext -> {
             HttpServerResponse response = routingContext.response();
             enableCors(response);
-            String graphJson = "";
+            Map<String, Object> stats = new HashMap<String, Object>();
+            stats.put("clients", elasticSearchClients.size());
+            stats.put("created", elasticSearchClients.getCreated());
+            stats.put("reused", elasticSearchClients.getReused());
+            stats.put("healthy", elasticSearchClients.isHealthy());
+            stats.put("connectedNodes", elasticSearchClients.health());
             try {
-                HashMap<String, Object> settings = mapper.readValue(
-                        routingContext.request().getParam("layoutSettings"),
-                        new TypeReference<HashMap<String, Object>>() {
-                        });
-                if (routingContext.request()
-                        .getParam("basicSettings") != null) {
-                    HashMap<String, Object> basicCofiguration = mapper
-                            .readValue(
-                                    routingContext.request()
-                                            .getParam("basicSettings"),
-                                    new TypeReference<HashMap<String, Object>>() {
-                                    });
-                    applyBasicConfiguration(basicCofiguration,
-                            configurationManager);
-                }
-                basicGraph = getBasicgraph();
-                calculatePageRank(true, basicGraph.getGraphModel(),
-                        getAttributeModel());
-                applyLayout(settings, basicGraph.graphModel);
-                ChineseWhispersClusterer cwc = new ChineseWhispersClusterer();
-                cwc.execute(basicGraph.getGraphModel());
-                graphJson = getSigmaGraph(
-                        basicGraph.graphModel.getDirectedGraph());
-                responseMap.put("graph",graphJson );
-                responseMap.put("documents",mapper.writeValueAsString(basicGraph.getDocuments()) );
-                graphJson = mapper.writeValueAsString(responseMap);
-            } catch (NoNodeAvailableException e) {
-                log.error("ElasticSearch Connectivity Error ");
-                graphJson = "{error : ElasticSearch Connectivity Error }";
-            } catch (IOException ioException) {
-                log.error("Exception Reading Text File");
-                graphJson = "{error : Exception Reading Text File}";
-            } catch (Exception ex) {
-                ex.printStackTrace();
-                graphJson = "{error:" + ex.getMessage() + "}";
+                response.end(mapper.writeValueAsString(stats));
+            } catch (JsonProcessingException e) {
+                response.setStatusCode(500).end();
             }
-            response.end(graphJson);
         });
-
-        // filter route to generate graph with the required filters
-        router.route("/filter").blockingHandler(routingContext -> {
+        // stage throughput and queue depth of the document pipelines
+        router.route("/pipeline").handler(routingContext -> {
             HttpServerResponse response = routingContext.response();
             enableCors(response);
-            String graphJson = "";
             try {
-                HashMap<String, Object> settings = mapper.readValue(
-                        routingContext.request().getParam("filterSettings"),
-                        new TypeReference<HashMap<String, Object>>() {
-                        });
-                if (routingContext.request()
-                        .getParam("basicSettings") != null) {
-                    HashMap<String, Object> basicCofiguration = mapper
-                            .readValue(
-                                    routingContext.request()
-                                            .getParam("basicSettings"),
-                                    new TypeReference<HashMap<String, Object>>() {
-                                    });
-                    applyBasicConfiguration(basicCofiguration,
-                            configurationManager);
-                }
-                basicGraph = getBasicgraph();
-                calculatePageRank(true, basicGraph.getGraphModel(),
-                        getAttributeModel());
-                applyFilters(settings, basicGraph.graphModel.getGraph());
-                ChineseWhispersClusterer cwc = new ChineseWhispersClusterer();
-                cwc.execute(basicGraph.getGraphModel());
-                graphJson = getSigmaGraph(
-                        basicGraph.graphModel.getDirectedGraph());
-                responseMap.put("graph",graphJson );
-                responseMap.put("documents",mapper.writeValueAsString(basicGraph.getDocuments()) );
-                graphJson = mapper.writeValueAsString(responseMap);
-            } catch (NoNodeAvailableException e) {
-                log.error("ElasticSearch Connectivity Error ");
-                graphJson = "{error : ElasticSearch Connectivity Error }";
-            } catch (IOException ioException) {
-                log.error("Exception Reading Text File");
-                graphJson = "{error : Exception Reading Text File}";
-
-            } catch (Exception ex) {
-                ex.printStackTrace();
-                graphJson = "{error:" + ex.getMessage() + "}";
+                response.end(mapper.writeValueAsString(EdgePipeline.STATS
+                        .snapshot()));
+            } catch (JsonProcessingException e) {
+                response.setStatusCode(500).end();
             }
-            response.end(graphJson);
-
         });
-
+        // stage latencies and graph sizes for prometheus
+        router.route("/metrics").handler(routingContext -> {
+            routingContext.response()
+                    .putHeader("content-type", GraphMetrics.CONTENT_TYPE)
+                    .end(metrics.toPrometheus());
+        });
+        // gephi route to generate simple gephi graph
+        registerGraphRoute("/gephi", Param.IGNORED, Param.IGNORED, false);
+        // layout route to generate graph with the required layout
+        registerGraphRoute("/layout", Param.REQUIRED, Param.IGNORED, true);
+        // filter route to generate graph with the required filters
+        registerGraphRoute("/filter", Param.IGNORED, Param.REQUIRED, true);
         // gsakkit route to generate graph with the required filters and layouts
-        router.route("/gsakkit").blockingHandler(routingContext -> {
-            HttpServerResponse response = routingContext.response();
-            enableCors(response);
-            String graphJson = "";
-            try {
-                System.out.println(
-                        routingContext.request().getParam("basicSettings"));
-                if (routingContext.request()
-                        .getParam("basicSettings") != null) {
-
-                    HashMap<String, Object> basicCofiguration = mapper
-                            .readValue(
-                                    routingContext.request()
-                                            .getParam("basicSettings"),
-                                    new TypeReference<HashMap<String, Object>>() {
-                                    });
-                    applyBasicConfiguration(basicCofiguration,
-                            configurationManager);
-                }
-                basicGraph = getBasicgraph();
-                calculatePageRank(true, basicGraph.getGraphModel(),
-                        getAttributeModel());
-                if (routingContext.request()
-                        .getParam("filterSettings") != null) {
-                    HashMap<String, Object> filters = mapper.readValue(
-                            routingContext.request().getParam("filterSettings"),
-                            new TypeReference<HashMap<String, Object>>() {
-                            });
-                    applyFilters(filters, basicGraph.graphModel.getGraph());
-                }
+        registerGraphRoute("/gsakkit", Param.OPTIONAL, Param.OPTIONAL, true);
+    }
 
-                if (routingContext.request()
-                        .getParam("layoutSettings") != null) {
-                    HashMap<String, Object> layouts = mapper.readValue(
-                            routingContext.request().getParam("layoutSettings"),
-                            new TypeReference<HashMap<String, Object>>() {
-                            });
-                    applyLayout(layouts, basicGraph.getGraphModel());
+    private void registerGraphRoute(String route, Param layout, Param filter,
+            boolean cluster) {
+        router.route(route).blockingHandler(
+                routingContext -> handleGraphRequest(routingContext, route,
+                        layout, filter, cluster), false);
+    }
+
+    /**
+     * builds the graph of a single request in its own workspace: the
+     * statistics its filters, node sizes and response fields need, then
+     * filters, layout and clustering as far as the route asks for them
+     */
+    private void handleGraphRequest(RoutingContext routingContext,
+            String route, Param layout, Param filter, boolean cluster) {
+        HttpServerResponse response = routingContext.response();
+        enableCors(response);
+        String graphJson = "";
+        Buffer body = null;
+        ChunkedResponseStream stream = null;
+        GephiWorkspace workspace = null;
+        RequestTimings timings = new RequestTimings();
+        GraphMetrics.Result result = GraphMetrics.Result.ERROR;
+        try {
+            Configuration configuration = configurationManager
+                    .newRequestConfiguration();
+            HashMap<String, Object> basicCofiguration = readSettings(
+                    routingContext, "basicSettings");
+            HashMap<String, Object> layouts = readSettings(routingContext,
+                    "layoutSettings", layout);
+            HashMap<String, Object> filters = readSettings(routingContext,
+                    "filterSettings", filter);
+            if (basicCofiguration != null) {
+                applyBasicConfiguration(basicCofiguration, configuration);
+            }
+            boolean binary = "binary".equals(routingContext.request()
+                    .getParam("format"));
+            if (binary) {
+                response.putHeader("content-type", "application/octet-stream");
+            }
+            String fieldsParam = routingContext.request().getParam("fields");
+            List<String> fields = fieldsParam != null ? Arrays
+                    .asList(fieldsParam.split(",")) : configuration
+                    .getResponseFields();
+            String cacheRoute = binary ? route + "?format=binary" : route;
+            if (fieldsParam != null) {
+                cacheRoute += (binary ? "&" : "?") + "fields=" + fieldsParam;
+            }
+            String cacheKey = cacheKey(cacheRoute, basicCofiguration, layouts,
+                    filters, configuration);
+            if (serveFromCache(cacheKey, response)) {
+                result = GraphMetrics.Result.CACHED;
+                return;
+            }
+            workspace = GephiWorkspace.open();
+            BasicGraph basicGraph = getBasicgraph(configuration, workspace,
+                    timings);
+            StatisticsPlan plan = StatisticsPlan.of(filters,
+                    configuration.getNodeSizeBy(), fields, cluster);
+            // taken on the whole graph, before filters remove nodes
+            for (Statistic statistic : plan.getStatistics()) {
+                if (statistic != Statistic.CLUSTERS) {
+                    computeStatistic(statistic, basicGraph, workspace,
+                            configuration, timings);
                 }
-                ChineseWhispersClusterer cwc = new ChineseWhispersClusterer();
-                cwc.execute(basicGraph.getGraphModel());
-                graphJson = getSigmaGraph(
-                        basicGraph.graphModel.getDirectedGraph());
-                responseMap.put("graph",graphJson );
-                responseMap.put("documents",mapper.writeValueAsString(basicGraph.getDocuments()) );
-                graphJson = mapper.writeValueAsString(responseMap);
-
-            } catch (NoNodeAvailableException e) {
-                log.error("ElasticSearch Connectivity Error ");
-                graphJson = "{error : ElasticSearch Connectivity Error }";
-            } catch (IOException ioException) {
-                log.error("Exception Reading Text File");
-                graphJson = "{error : Exception Reading Text File}";
-            } catch (Exception ex) {
-                ex.printStackTrace();
-                graphJson = "{error:" + ex.getMessage() + "}";
             }
-
+            basicGraph.saveSnapshot();
+            long start;
+            if (filters != null) {
+                start = System.nanoTime();
+                applyFilters(filters, basicGraph.getGraphModel().getGraph(),
+                        basicGraph.getAttributeModel(), configuration);
+                timings.stageDone(RequestTimings.FILTER, start);
+            }
+            LayoutRun layoutRun = null;
+            if (layouts != null) {
+                start = System.nanoTime();
+                layoutRun = applyLayout(layouts, basicGraph.getGraphModel(),
+                        configuration);
+                timings.stageDone(RequestTimings.LAYOUT, start);
+            }
+            if (plan.needs(Statistic.CLUSTERS)) {
+                computeStatistic(Statistic.CLUSTERS, basicGraph, workspace,
+                        configuration, timings);
+            }
+            start = System.nanoTime();
+            if (!binary && configuration.getResponseChunkSize() > 0) {
+                Buffer copy = cacheKey != null ? Buffer.buffer() : null;
+                stream = new ChunkedResponseStream(response,
+                        configuration.getResponseChunkSize(), copy);
+                writeGraphResponse(stream, basicGraph, layoutRun,
+                        configuration, binary);
+                stream.close();
+                timings.stageDone(RequestTimings.SERIALIZATION, start);
+                result = GraphMetrics.Result.OK;
+                cacheResponse(cacheKey, copy);
+                return;
+            }
+            body = Buffer.buffer();
+            writeGraphResponse(new BufferOutputStream(body), basicGraph,
+                    layoutRun, configuration, binary);
+            timings.stageDone(RequestTimings.SERIALIZATION, start);
+            result = GraphMetrics.Result.OK;
+            cacheResponse(cacheKey, body);
+        } catch (NoNodeAvailableException e) {
+            log.error("ElasticSearch Connectivity Error ");
+            graphJson = "{error : ElasticSearch Connectivity Error }";
+        } catch (IOException ioException) {
+            log.error("Exception Reading Text File");
+            graphJson = "{error : Exception Reading Text File}";
+        } catch (Exception ex) {
+            log.error("Graph request " + route + " failed", ex);
+            graphJson = "{error:" + ex.getMessage() + "}";
+        } finally {
+            if (workspace != null) {
+                workspace.close();
+            }
+            metrics.record(route, result, timings);
+        }
+        if (stream != null && (stream.isCommitted() || response.closed())) {
+            // part of the graph is sent already, an error body would only
+            // corrupt it
+            response.close();
+        } else if (body != null) {
+            response.end(body);
+        } else {
+            response.putHeader("content-type", "text/plain");
             response.end(graphJson);
+        }
+    }
 
-        });
+    /**
+     * serializes the response of a graph request to @out. Graph,
+     * documents and layout run are nested json objects; with
+     * legacyGraphResponse graph and documents are sent as json strings, as
+     * older clients expect. A binary response holds the graph in the
+     * {@link BinaryGraphWriter} format with documents and layout run as its
+     * json meta data
+     * 
+     * @param out
+     *            response body, not closed
+     * @param basicGraph
+     * @param layoutRun
+     *            or null if no layout was applied
+     * @param configuration
+     * @param binary
+     * @throws IOException
+     */
+    private void writeGraphResponse(OutputStream out, BasicGraph basicGraph,
+            LayoutRun layoutRun, Configuration configuration, boolean binary)
+            throws IOException {
+        Graph graph = basicGraph.getGraphModel().getDirectedGraph();
+        if (binary) {
+            Map<String, Object> meta = new HashMap<String, Object>();
+            meta.put("documents", basicGraph.getDocuments());
+            if (layoutRun != null) {
+                meta.put("layout", layoutRun);
+            }
+            if (configuration.isResponseTimings()) {
+                meta.put("timings", basicGraph.getTimings().toMap());
+            }
+            out.write(binaryGraphWriter.write(graph, configuration,
+                    mapper.writeValueAsBytes(meta)));
+            return;
+        }
+        if (configuration.isLegacyGraphResponse()) {
+            Map<String, Object> responseMap = new HashMap<String, Object>();
+            responseMap.put("graph", getSigmaGraph(graph, configuration));
+            responseMap.put("documents",
+                    mapper.writeValueAsString(basicGraph.getDocuments()));
+            if (layoutRun != null) {
+                responseMap.put("layout", layoutRun);
+            }
+            if (configuration.isResponseTimings()) {
+                responseMap.put("timings", basicGraph.getTimings().toMap());
+            }
+            out.write(mapper.writeValueAsBytes(responseMap));
+            return;
+        }
+        try (JsonGenerator generator = mapper.getFactory().createGenerator(out)
+                .disable(JsonGenerator.Feature.AUTO_CLOSE_TARGET)) {
+            generator.writeStartObject();
+            generator.writeFieldName("graph");
+            sigmaGraphWriter.write(generator, graph, configuration);
+            generator.writeObjectField("documents", basicGraph.getDocuments());
+            if (layoutRun != null) {
+                generator.writeObjectField("layout", layoutRun);
+            }
+            if (configuration.isResponseTimings()) {
+                generator.writeObjectField("timings", basicGraph.getTimings()
+                        .toMap());
+            }
+            generator.writeEndObject();
+        }
+    }
+
+    /**
+     * reads a json settings map from the given request parameter
+     * 
+     * @return settings or null if the parameter is not present
+     * @throws IOException
+     */
+    private HashMap<String, Object> readSettings(RoutingContext routingContext,
+            String param) throws IOException {
+        String value = routingContext.request().getParam(param);
+        if (value == null) {
+            return null;
+        }
+        return mapper.readValue(value,
+                new TypeReference<HashMap<String, Object>>() {
+                });
+    }
+
+    private HashMap<String, Object> readSettings(RoutingContext routingContext,
+            String param, Param usage) throws IOException {
+        if (usage == Param.IGNORED) {
+            return null;
+        }
+        HashMap<String, Object> settings = readSettings(routingContext, param);
+        if (settings == null && usage == Param.REQUIRED) {
+            throw new IllegalArgumentException(param + " parameter is missing");
+        }
+        return settings;
+    }
+
+    /**
+     * cache key of a graph request, or null when response caching is off or
+     * the response carries the timings of its own request; must be called
+     * after the basic settings have been applied so the data source version
+     * reflects them
+     * 
+     * @throws JsonProcessingException
+     */
+    private String cacheKey(String route, Map<String, Object> basicSettings,
+            Map<String, Object> layoutSettings,
+            Map<String, Object> filterSettings, Configuration configuration)
+            throws JsonProcessingException {
+        if (responseCache == null || configuration.isResponseTimings()) {
+            return null;
+        }
+        return responseCache.key(route, basicSettings, layoutSettings,
+                filterSettings,
+                GraphResponseCache.dataSourceVersion(configuration));
+    }
+
+    /**
+     * ends the response with the cached bytes for the given key, if any
+     * 
+     * @return true if the response was served from the cache
+     */
+    private boolean serveFromCache(String cacheKey,
+            HttpServerResponse response) {
+        if (cacheKey == null) {
+            return false;
+        }
+        byte[] cached = responseCache.get(cacheKey);
+        if (cached == null) {
+            return false;
+        }
+        response.end(Buffer.buffer(cached));
+        return true;
+    }
+
+    private void cacheResponse(String cacheKey, Buffer body) {
+        if (cacheKey != null) {
+            responseCache.put(cacheKey, body.getBytes());
+        }
     }
 
     /**
      * Applying Basic Configuration
      * 
      * @paraam basic settings about data type etc
-     * 
+     * @param configuration
+     *            request configuration the settings are applied to
      */
 
     public void applyBasicConfiguration(Map<String, Object> basicSettings,
-            ConfigurationManager configurationManager) {
+            Configuration configuration) {
         if (basicSettings.get("selectedDataSource") != null) {
-            configurationManager.getConfiguration().setSelectedDataSource(
+            configuration.setSelectedDataSource(
                     basicSettings.get("selectedDataSource").toString());
         }
         if (basicSettings.get("searchValue") != null) {
-            configurationManager.getConfiguration().getDatasource()
+            configuration.getDatasource()
                     .getElasticsearchDocument().setSearchValue(
                             basicSettings.get("searchValue").toString());
         }
         if (basicSettings.get("documentLimit") != null) {
-            configurationManager.getConfiguration().getDatasource()
+            configuration.getDatasource()
                     .getElasticsearchDocument()
                     .setDocumentsLimit(Integer.parseInt(
                             basicSettings.get("documentLimit").toString()));
         }
         if (basicSettings.get("selectedDataSource") != null
                 && basicSettings.get("selectedDataSource").equals("file")) {
-            configurationManager.getConfiguration().setSelectedDataSource(
+            configuration.setSelectedDataSource(
                     basicSettings.get("selectedDataSource").toString());
-            configurationManager.getConfiguration().getDatasource()
+            configuration.getDatasource()
                     .setFilePath(basicSettings.get("filePath").toString());
         }
         if (basicSettings.get("selectedLayout") != null) {
-            configurationManager.getConfiguration().setSelectedLayout(
+            configuration.setSelectedLayout(
                     basicSettings.get("selectedLayout").toString());
 
         }
@@ -344,19 +558,21 @@ public class DeployServer extends AbstractVerticle {
      * 
      * @param settings
      * @param graphModel
+     * @param configuration
      * @throws Exception
      */
-    public void applyLayout(Map<String, Object> settings, GraphModel graphModel)
+    public LayoutRun applyLayout(Map<String, Object> settings,
+            GraphModel graphModel, Configuration configuration)
             throws Exception {
 
-        configurationManager.getConfiguration()
+        configuration
                 .setSelectedLayout(settings.get("name").toString().trim());
 
         if (settings.get("name").toString().trim().equals("YifanHuLayout")) {
-            configurationManager.getConfiguration().getLayout()
+            configuration.getLayout()
                     .getYiFanHuLayout()
                     .setDistance((int) settings.get("distance"));
-            configurationManager.getConfiguration().getLayout()
+            configuration.getLayout()
                     .getYiFanHuLayout()
                     .setIteration((int) settings.get("iteration"));
         } else if (settings.get("name").toString().trim()
@@ -369,78 +585,195 @@ public class DeployServer extends AbstractVerticle {
                     .parseDouble(settings.get("gravity").toString().trim());
             int iteration = Integer
                     .parseInt(settings.get("iteration").toString().trim());
-            configurationManager.getConfiguration().getLayout()
+            configuration.getLayout()
                     .getFruchtermanReingold().setArea(area);
-            configurationManager.getConfiguration().getLayout()
+            configuration.getLayout()
                     .getFruchtermanReingold().setSpeed(speed);
-            configurationManager.getConfiguration().getLayout()
+            configuration.getLayout()
                     .getFruchtermanReingold().setGravity(gravity);
-            configurationManager.getConfiguration().getLayout()
+            configuration.getLayout()
                     .getFruchtermanReingold().setIteration(iteration);
+        } else if (settings.get("name").toString().trim()
+                .equals(ForceAtlas2Engine.NAME)) {
+            applyForceAtlas2Settings(settings, configuration);
         }
-        layoutManager = new LayoutManager(
-                configurationManager.getConfiguration().getSelectedLayout(),
-                graphModel, configurationManager.getConfiguration());
+        // layoutSettings can opt out of starting from the last positions
+        boolean warmStart = settings.get("warmStart") == null || Boolean
+                .parseBoolean(settings.get("warmStart").toString().trim());
+        applyLayoutBudget(settings, configuration);
+        return new LayoutManager(configuration.getSelectedLayout(),
+                graphModel, configuration,
+                warmStart ? layoutPositions : null).getRun();
 
     }
 
-    public void chineseWhispersClusterer(GraphModel graphModel) {
-        ChineseWhispersClusterer cwc = new ChineseWhispersClusterer();
-        cwc.execute(graphModel);
+    /**
+     * time budget and convergence threshold of the request override the
+     * configured ones
+     * 
+     * @param settings
+     * @param configuration
+     */
+    private void applyLayoutBudget(Map<String, Object> settings,
+            Configuration configuration) {
+        LayoutBudget budget = configuration.getLayout().getBudget();
+        if (budget == null) {
+            budget = new LayoutBudget();
+            configuration.getLayout().setBudget(budget);
+        }
+        if (settings.get("timeBudgetMillis") != null) {
+            budget.setTimeBudgetMillis(Long.parseLong(settings
+                    .get("timeBudgetMillis").toString().trim()));
+        }
+        if (settings.get("convergenceThreshold") != null) {
+            budget.setConvergenceThreshold(Double.parseDouble(settings
+                    .get("convergenceThreshold").toString().trim()));
+        }
     }
 
     /**
-     * This method is use to apply filters
+     * copies the ForceAtlas2 settings present in the request over the
+     * configured ones
      * 
      * @param settings
+     * @param configuration
      */
-    public void applyFilters(Map<String, Object> settings, Graph graph) {
+    private void applyForceAtlas2Settings(Map<String, Object> settings,
+            Configuration configuration) {
+        ForceAtlas2 forceAtlas2 = configuration.getLayout().getForceAtlas2();
+        if (forceAtlas2 == null) {
+            forceAtlas2 = new ForceAtlas2();
+            configuration.getLayout().setForceAtlas2(forceAtlas2);
+        }
+        if (settings.get("iteration") != null) {
+            forceAtlas2.setIteration(Integer
+                    .parseInt(settings.get("iteration").toString().trim()));
+        }
+        if (settings.get("scalingRatio") != null) {
+            forceAtlas2.setScalingRatio(Double.parseDouble(settings
+                    .get("scalingRatio").toString().trim()));
+        }
+        if (settings.get("gravity") != null) {
+            forceAtlas2.setGravity(Double
+                    .parseDouble(settings.get("gravity").toString().trim()));
+        }
+        if (settings.get("strongGravityMode") != null) {
+            forceAtlas2.setStrongGravityMode(Boolean.parseBoolean(settings
+                    .get("strongGravityMode").toString().trim()));
+        }
+        if (settings.get("linLogMode") != null) {
+            forceAtlas2.setLinLogMode(Boolean.parseBoolean(settings
+                    .get("linLogMode").toString().trim()));
+        }
+        if (settings.get("edgeWeightInfluence") != null) {
+            forceAtlas2.setEdgeWeightInfluence(Double.parseDouble(settings
+                    .get("edgeWeightInfluence").toString().trim()));
+        }
+        if (settings.get("jitterTolerance") != null) {
+            forceAtlas2.setJitterTolerance(Double.parseDouble(settings
+                    .get("jitterTolerance").toString().trim()));
+        }
+        if (settings.get("barnesHutTheta") != null) {
+            forceAtlas2.setBarnesHutTheta(Double.parseDouble(settings
+                    .get("barnesHutTheta").toString().trim()));
+        }
+    }
 
+    /**
+     * clusters the graph of @workspace with the implementation chosen in
+     * the clustering settings; gephi's clusterer resolves its models
+     * through gephi's current workspace, so it runs with the request
+     * workspace selected
+     * 
+     * @param workspace
+     * @param configuration
+     */
+    public void chineseWhispersClusterer(GephiWorkspace workspace,
+            Configuration configuration) {
+        ClusteringSettings settings = configuration.getClustering();
+        if (settings == null) {
+            settings = new ClusteringSettings();
+        }
+        if (settings.isNative()) {
+            CsrChineseWhispers cw = new CsrChineseWhispers();
+            cw.setSettings(settings);
+            cw.setParallelism(configuration.getParallelism());
+            cw.execute(workspace.getGraphModel(), workspace.getAttributeModel());
+            return;
+        }
+        workspace.runAsCurrent(() -> {
+            ChineseWhispersClusterer cwc = new ChineseWhispersClusterer();
+            cwc.execute(workspace.getGraphModel());
+        });
+    }
+
+    /**
+     * This method is use to apply filters; all filters given in @settings
+     * are applied to @graph in one pass. Statistics a filter ranks by are
+     * computed first if the graph does not have them yet
+     * 
+     * @param settings
+     * @param attributeModel
+     * @param configuration
+     */
+    public void applyFilters(Map<String, Object> settings, Graph graph,
+            AttributeModel attributeModel, Configuration configuration) {
+        FilterEngine engine = new FilterEngine();
+        AttributeTable nodeTable = attributeModel.getNodeTable();
         if (settings.containsKey("pageRankThreashhold")) {
-            filterImplementation
-                    .applyPageRank(graph, getAttributeModel(), graphFilter,
-                            Double.parseDouble(settings
-                                    .get("pageRankThreashhold").toString()),
-                            "pageranks");
+            if (nodeTable.getColumn(CsrPageRank.PAGERANK) == null) {
+                calculatePageRank(true, graph.getGraphModel(), attributeModel,
+                        configuration);
+            }
+            filterImplementation.applyPageRank(engine, attributeModel,
+                    Double.parseDouble(settings.get("pageRankThreashhold")
+                            .toString()), "pageranks");
         }
         if (settings.containsKey("nodeCentrailityThreashhold")) {
-            filterImplementation.applyNodeCentralityThreashhold(graph,
-                    getAttributeModel(), graphFilter,
-                    Double.parseDouble(settings
-                            .get("nodeCentrailityThreashhold").toString()),
-                    "Betweenness Centrality");
+            if (nodeTable.getColumn(CsrBetweenness.BETWEENNESS) == null) {
+                calculateBetweenness(graph, attributeModel, configuration);
+            }
+            filterImplementation.applyNodeCentralityThreashhold(engine,
+                    attributeModel, Double.parseDouble(settings.get(
+                            "nodeCentrailityThreashhold").toString()));
         }
         if (settings.containsKey("neighborRangeThreashhold")) {
-            filterImplementation.applyNeighborcountThreshHold(graph,
-                    getAttributeModel(),
-                    graphFilter, Double.parseDouble(settings
-                            .get("neighborRangeThreashhold").toString()),
+            if (nodeTable.getColumn(CsrDegree.NEIGHBOR_COUNT) == null) {
+                calculateDegrees(graph, attributeModel, configuration);
+            }
+            filterImplementation.applyNeighborcountThreshHold(engine,
+                    attributeModel, Double.parseDouble(settings.get(
+                            "neighborRangeThreashhold").toString()),
                     "NeighborCount");
         }
+        engine.apply(graph);
         // graphPreview.rankingColorByDegree(rankingController);
 
     }
 
     /**
-     * use to get basic gephi graph
-     * 
-     * @return
-     * @throws Exception
+     * builds the graph of a request, or loads it from its snapshot, timing
+     * its stages into @timings
      */
-    public BasicGraph getBasicgraph() throws Exception {
-        return new BasicGraph(configurationManager.getConfiguration());
+    public BasicGraph getBasicgraph(Configuration configuration,
+            GephiWorkspace workspace, RequestTimings timings)
+            throws Exception {
+        return new BasicGraph(configuration, workspace, elasticSearchClients,
+                timings, snapshotStore);
     }
 
     /**
      * use to generate sigmagraph from given graph
      * 
      * @param graph
+     * @param configuration
      * @return
      * @throws JsonProcessingException
      */
-    public String getSigmaGraph(Graph graph) throws JsonProcessingException {
-        sigmaGraph = new SigmaGraph();
-        sigmaGraph.build(graph, configurationManager.getConfiguration());
+    public String getSigmaGraph(Graph graph, Configuration configuration)
+            throws JsonProcessingException {
+        SigmaGraph sigmaGraph = new SigmaGraph();
+        sigmaGraph.build(graph, configuration);
         return mapper.writeValueAsString(sigmaGraph);
     }
 
@@ -453,6 +786,10 @@ public class DeployServer extends AbstractVerticle {
         this.response = response;
     }
 
+    public ConfigurationManager getConfigurationManager() {
+        return configurationManager;
+    }
+
     /*********************** Enable Cors ************************************/
     public void enableCors(HttpServerResponse response) {
         response.putHeader("content-type", "text/plain");
@@ -464,26 +801,121 @@ public class DeployServer extends AbstractVerticle {
     }
 
     /*********************
-     * Calculate pagerank
+     * Calculate pagerank, with {@link CsrPageRank} unless the pageRank
+     * block of the configuration asks for gephi's statistic
      * 
      * @param attributeModel
+     * @param configuration
      ********************************/
     public void calculatePageRank(Boolean IS_DIRECTED, GraphModel graphModel,
-            AttributeModel attributeModel) {
+            AttributeModel attributeModel, Configuration configuration) {
+        PageRankSettings settings = configuration.getPageRank();
+        if (settings == null) {
+            settings = new PageRankSettings();
+        }
+        if (settings.isNative()) {
+            CsrPageRank pr = new CsrPageRank();
+            pr.setDirected(IS_DIRECTED);
+            pr.setEpsilon(settings.getEpsilon());
+            pr.setProbability(settings.getProbability());
+            pr.setUseEdgeWeight(settings.isUseEdgeWeight());
+            pr.setParallelism(configuration.getParallelism());
+            pr.execute(graphModel, attributeModel);
+            return;
+        }
         PageRank pr = new PageRank();
         pr.setDirected(IS_DIRECTED);
-        pr.setEpsilon(0.001);
-        pr.setProbability(0.85);
+        pr.setEpsilon(settings.getEpsilon());
+        pr.setProbability(settings.getProbability());
+        pr.setUseEdgeWeight(settings.isUseEdgeWeight());
         pr.execute(graphModel, attributeModel);
     }
 
-    /*
-     * get attribute model
+    /**
+     * computes @statistic for the graph of @basicGraph unless it was
+     * computed already, timed as a stage of the request
+     * 
+     * @param statistic
+     * @param basicGraph
+     * @param workspace
+     * @param configuration
+     * @param timings
+     */
+    private void computeStatistic(Statistic statistic, BasicGraph basicGraph,
+            GephiWorkspace workspace, Configuration configuration,
+            RequestTimings timings) {
+        long start = System.nanoTime();
+        GraphModel graphModel = basicGraph.getGraphModel();
+        AttributeModel attributeModel = basicGraph.getAttributeModel();
+        String stage;
+        Runnable computation;
+        switch (statistic) {
+        case PAGERANK:
+            stage = RequestTimings.PAGERANK;
+            computation = () -> calculatePageRank(true, graphModel,
+                    attributeModel, configuration);
+            break;
+        case DEGREE:
+            stage = RequestTimings.DEGREE;
+            computation = () -> calculateDegrees(graphModel.getGraph(),
+                    attributeModel, configuration);
+            break;
+        case BETWEENNESS:
+            stage = RequestTimings.BETWEENNESS;
+            computation = () -> calculateBetweenness(graphModel.getGraph(),
+                    attributeModel, configuration);
+            break;
+        default:
+            stage = RequestTimings.CLUSTERING;
+            computation = () -> chineseWhispersClusterer(workspace,
+                    configuration);
+        }
+        if (basicGraph.getStatistics().compute(statistic, computation)) {
+            timings.stageDone(stage, start);
+        }
+    }
+
+    /**
+     * computes the degree columns the neighborRangeThreashhold filter and
+     * the degree options of nodeSizeBy read
      * 
+     * @param graph
+     * @param attributeModel
+     * @param configuration
      */
-    public AttributeModel getAttributeModel() {
-        return attributeModel = Lookup.getDefault()
-                .lookup(AttributeController.class).getModel();
+    public void calculateDegrees(Graph graph, AttributeModel attributeModel,
+            Configuration configuration) {
+        CsrDegree degree = new CsrDegree();
+        degree.setParallelism(configuration.getParallelism());
+        degree.execute(graph, attributeModel);
+    }
+
+    /**
+     * computes the betweenness centrality the nodeCentrailityThreashhold
+     * filter ranks by, with the implementation chosen in the betweenness
+     * settings
+     * 
+     * @param graph
+     * @param attributeModel
+     * @param configuration
+     */
+    public void calculateBetweenness(Graph graph,
+            AttributeModel attributeModel, Configuration configuration) {
+        BetweennessSettings settings = configuration.getBetweenness();
+        if (settings == null) {
+            settings = new BetweennessSettings();
+        }
+        if (settings.isNative()) {
+            CsrBetweenness betweenness = new CsrBetweenness();
+            betweenness.setSettings(settings, graph.getNodeCount());
+            betweenness.setParallelism(configuration.getParallelism());
+            betweenness.execute(graph, attributeModel);
+            return;
+        }
+        GraphDistance distance = new GraphDistance();
+        distance.setDirected(settings.isDirected());
+        distance.setNormalized(false);
+        distance.execute(graph.getGraphModel(), attributeModel);
     }
 
 }
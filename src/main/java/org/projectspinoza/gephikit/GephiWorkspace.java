@@ -0,0 +1,84 @@
+package org.projectspinoza.gephikit;
+
+import org.gephi.data.attributes.api.AttributeController;
+import org.gephi.data.attributes.api.AttributeModel;
+import org.gephi.graph.api.GraphController;
+import org.gephi.graph.api.GraphModel;
+import org.gephi.project.api.ProjectController;
+import org.gephi.project.api.Workspace;
+import org.openide.util.Lookup;
+
+/**
+ * A gephi workspace owned by a single request. Graph and attribute models
+ * are resolved for this workspace instead of gephi's current one, so
+ * requests running side by side never see each other's graph.
+ */
+public class GephiWorkspace implements AutoCloseable {
+
+	/** guards the project controller, which is shared by the whole jvm */
+	private static final Object PROJECT_LOCK = new Object();
+
+	private final ProjectController pc;
+	private final Workspace workspace;
+	private final GraphModel graphModel;
+	private final AttributeModel attributeModel;
+
+	private GephiWorkspace(ProjectController pc, Workspace workspace) {
+		this.pc = pc;
+		this.workspace = workspace;
+		this.graphModel = Lookup.getDefault().lookup(GraphController.class)
+				.getModel(workspace);
+		this.attributeModel = Lookup.getDefault()
+				.lookup(AttributeController.class).getModel(workspace);
+	}
+
+	/**
+	 * creates a new, empty workspace in the shared project
+	 *
+	 * @return workspace
+	 */
+	public static GephiWorkspace open() {
+		ProjectController pc = Lookup.getDefault().lookup(
+				ProjectController.class);
+		synchronized (PROJECT_LOCK) {
+			if (pc.getCurrentProject() == null) {
+				pc.newProject();
+			}
+			return new GephiWorkspace(pc, pc.newWorkspace(pc
+					.getCurrentProject()));
+		}
+	}
+
+	/**
+	 * runs @task with this workspace selected as gephi's current one, for
+	 * plugins that look their models up instead of taking them as arguments.
+	 * Such tasks are serialized across all requests.
+	 *
+	 * @param task
+	 */
+	public void runAsCurrent(Runnable task) {
+		synchronized (PROJECT_LOCK) {
+			pc.openWorkspace(workspace);
+			task.run();
+		}
+	}
+
+	public Workspace getWorkspace() {
+		return workspace;
+	}
+
+	public GraphModel getGraphModel() {
+		return graphModel;
+	}
+
+	public AttributeModel getAttributeModel() {
+		return attributeModel;
+	}
+
+	@Override
+	public void close() {
+		synchronized (PROJECT_LOCK) {
+			pc.deleteWorkspace(workspace);
+		}
+	}
+}
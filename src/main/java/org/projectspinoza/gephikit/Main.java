@@ -1,6 +1,7 @@
 package org.projectspinoza.gephikit;
 
 import io.vertx.core.Vertx;
+import io.vertx.core.VertxOptions;
 
 import java.io.IOException;
 
@@ -16,8 +17,14 @@ public class Main {
     		log.error("Configuration file is not given in commandline arguments");
     		System.exit(0);
     	}
-    	 Vertx vertx = Vertx.vertx();
-    	 vertx.deployVerticle(new DeployServer(args[0]));
+    	 DeployServer server = new DeployServer(args[0]);
+    	 VertxOptions options = new VertxOptions();
+    	 int workerPoolSize = server.getConfigurationManager().getConfiguration().getWorkerPoolSize();
+    	 if(workerPoolSize > 0){
+    		 options.setWorkerPoolSize(workerPoolSize);
+    	 }
+    	 Vertx vertx = Vertx.vertx(options);
+    	 vertx.deployVerticle(server);
   
     }
 }
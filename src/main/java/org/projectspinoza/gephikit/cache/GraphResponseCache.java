@@ -0,0 +1,180 @@
+package org.projectspinoza.gephikit.cache;
+
+import java.io.File;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.projectspinoza.gephikit.configuration.Configuration;
+import org.projectspinoza.gephikit.datasource.ElasticSearchDocuments;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationFeature;
+
+/**
+ * Serialized graph responses keyed by route, request settings and data
+ * source version. Entries are evicted least recently used first once
+ * maxEntries or maxBytes is exceeded, and expire after ttlSeconds.
+ */
+public class GraphResponseCache {
+
+	private final int maxEntries;
+	private final long maxBytes;
+	private final long ttlMillis;
+	private final LinkedHashMap<String, Entry> entries;
+	private final ObjectMapper canonicalMapper;
+	private final AtomicLong hits = new AtomicLong();
+	private final AtomicLong misses = new AtomicLong();
+	private final AtomicLong evictions = new AtomicLong();
+	private long bytes;
+
+	public GraphResponseCache(CacheSettings settings) {
+		this(settings.getMaxEntries(), settings.getMaxBytes(), settings
+				.getTtlSeconds() * 1000);
+	}
+
+	public GraphResponseCache(int maxEntries, long maxBytes, long ttlMillis) {
+		this.maxEntries = maxEntries;
+		this.maxBytes = maxBytes;
+		this.ttlMillis = ttlMillis;
+		this.entries = new LinkedHashMap<String, Entry>(16, 0.75f, true);
+		this.canonicalMapper = new ObjectMapper()
+				.configure(SerializationFeature.ORDER_MAP_ENTRIES_BY_KEYS, true);
+	}
+
+	/**
+	 * builds the cache key of a request; settings maps are written with
+	 * sorted keys so the same settings always give the same key
+	 *
+	 * @param route
+	 * @param basicSettings
+	 * @param layoutSettings
+	 * @param filterSettings
+	 * @param dataSourceVersion
+	 * @return key
+	 * @throws JsonProcessingException
+	 */
+	public String key(String route, Map<String, Object> basicSettings,
+			Map<String, Object> layoutSettings,
+			Map<String, Object> filterSettings, String dataSourceVersion)
+			throws JsonProcessingException {
+		return route + "|" + canonicalMapper.writeValueAsString(basicSettings)
+				+ "|" + canonicalMapper.writeValueAsString(layoutSettings)
+				+ "|" + canonicalMapper.writeValueAsString(filterSettings)
+				+ "|" + dataSourceVersion;
+	}
+
+	/**
+	 * identifies the data a graph would be built from with the given
+	 * configuration; a file changes version whenever its size or
+	 * modification time changes
+	 *
+	 * @param configuration
+	 * @return version
+	 */
+	public static String dataSourceVersion(Configuration configuration) {
+		if (configuration.getSelectedDataSource().trim().equals("file")) {
+			File file = new File(configuration.getDatasource().getFilePath());
+			return "file:" + file.getAbsolutePath() + ":" + file.length()
+					+ ":" + file.lastModified();
+		}
+		ElasticSearchDocuments es = configuration.getDatasource()
+				.getElasticsearchDocument();
+		return "elasticsearch:" + es.getHost() + ":" + es.getPort() + ":"
+				+ es.getClusterName() + "/" + es.getIndex() + "/"
+				+ es.getType() + ":" + es.getSearchFields() + ":"
+				+ es.getSearchValue() + ":" + es.getReturnFields() + ":"
+				+ es.getDocumentsLimit();
+	}
+
+	/**
+	 * @param key
+	 * @return the cached response or null
+	 */
+	public synchronized byte[] get(String key) {
+		Entry entry = entries.get(key);
+		if (entry != null && isExpired(entry, System.currentTimeMillis())) {
+			remove(key);
+			entry = null;
+		}
+		if (entry == null) {
+			misses.incrementAndGet();
+			return null;
+		}
+		hits.incrementAndGet();
+		return entry.response;
+	}
+
+	public synchronized void put(String key, byte[] response) {
+		if (response.length > maxBytes) {
+			return;
+		}
+		remove(key);
+		entries.put(key, new Entry(response, System.currentTimeMillis()));
+		bytes += response.length;
+		evict();
+	}
+
+	public synchronized void clear() {
+		entries.clear();
+		bytes = 0;
+	}
+
+	private void evict() {
+		long now = System.currentTimeMillis();
+		Iterator<Entry> iterator = entries.values().iterator();
+		while (iterator.hasNext()) {
+			Entry entry = iterator.next();
+			if (entries.size() <= maxEntries && bytes <= maxBytes
+					&& !isExpired(entry, now)) {
+				break;
+			}
+			iterator.remove();
+			bytes -= entry.response.length;
+			evictions.incrementAndGet();
+		}
+	}
+
+	private void remove(String key) {
+		Entry entry = entries.remove(key);
+		if (entry != null) {
+			bytes -= entry.response.length;
+		}
+	}
+
+	private boolean isExpired(Entry entry, long now) {
+		return now - entry.created > ttlMillis;
+	}
+
+	public long getHits() {
+		return hits.get();
+	}
+
+	public long getMisses() {
+		return misses.get();
+	}
+
+	public long getEvictions() {
+		return evictions.get();
+	}
+
+	public synchronized int size() {
+		return entries.size();
+	}
+
+	public synchronized long getBytes() {
+		return bytes;
+	}
+
+	private static class Entry {
+		final byte[] response;
+		final long created;
+
+		Entry(byte[] response, long created) {
+			this.response = response;
+			this.created = created;
+		}
+	}
+}
@@ -0,0 +1,507 @@
+package org.projectspinoza.gephikit.cache;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.DoubleBuffer;
+import java.nio.FloatBuffer;
+import java.nio.IntBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.EnumSet;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import org.gephi.data.attributes.api.AttributeColumn;
+import org.gephi.data.attributes.api.AttributeModel;
+import org.gephi.data.attributes.api.AttributeOrigin;
+import org.gephi.data.attributes.api.AttributeRow;
+import org.gephi.data.attributes.api.AttributeTable;
+import org.gephi.data.attributes.api.AttributeType;
+import org.gephi.graph.api.Edge;
+import org.gephi.graph.api.Graph;
+import org.gephi.graph.api.GraphFactory;
+import org.gephi.graph.api.GraphModel;
+import org.gephi.graph.api.Node;
+import org.gephi.graph.api.NodeData;
+import org.projectspinoza.gephikit.statistics.Statistic;
+
+/**
+ * A built graph in a binary layout that is read in place, typically from a
+ * memory mapped file: nodes with their position, size and colour, weighted
+ * edges, the computed numeric node columns and the statistics they hold.
+ * All numbers are little endian and every section starts on an 8 byte
+ * boundary:
+ *
+ * <pre>
+ * header      "GSKS", int32 version, nodeCount, edgeCount, columnCount,
+ *             statistics (bit per Statistic ordinal), stringCount,
+ *             metaBytes (32 bytes)
+ * strings     int32[stringCount + 1] offsets into the utf-8 blob,
+ *             uint8[] blob; node i has id string i
+ * nodes       int32[nodeCount] label (string index, -1 for null),
+ *             float32[nodeCount] x, y, size, r, g, b
+ * edges       int32[edgeCount] source, target (node index),
+ *             float32[edgeCount] weight, uint8[edgeCount] directed
+ * columns     int32[columnCount] id, title (string index), type
+ *             (AttributeType ordinal), float64[columnCount * nodeCount]
+ *             values
+ * meta        uint8[metaBytes] utf-8 json
+ * </pre>
+ *
+ * Edge colours are not kept; imported edges have none.
+ */
+public class GraphSnapshot {
+
+	public static final int MAGIC = 'G' | 'S' << 8 | 'K' << 16 | 'S' << 24;
+	public static final int VERSION = 1;
+	static final int HEADER_BYTES = 32;
+
+	private final ByteBuffer buffer;
+	private final int nodeCount;
+	private final int edgeCount;
+	private final int columnCount;
+	private final int statistics;
+	private final IntBuffer stringOffsets;
+	private final int stringBlob;
+	private final IntBuffer labels;
+	private final FloatBuffer x;
+	private final FloatBuffer y;
+	private final FloatBuffer size;
+	private final FloatBuffer r;
+	private final FloatBuffer g;
+	private final FloatBuffer b;
+	private final IntBuffer sources;
+	private final IntBuffer targets;
+	private final FloatBuffer weights;
+	private final int directed;
+	private final IntBuffer columns;
+	private final DoubleBuffer values;
+	private final int meta;
+	private final int metaBytes;
+
+	/**
+	 * reads the sections of the snapshot in @buffer; values are read from
+	 * the buffer when asked for, nothing is copied
+	 *
+	 * @param buffer
+	 * @throws IllegalArgumentException
+	 *             if @buffer does not hold a snapshot of this version
+	 */
+	public GraphSnapshot(ByteBuffer buffer) {
+		this.buffer = buffer.duplicate().order(ByteOrder.LITTLE_ENDIAN);
+		if (this.buffer.limit() < HEADER_BYTES
+				|| this.buffer.getInt(0) != MAGIC
+				|| this.buffer.getInt(4) != VERSION) {
+			throw new IllegalArgumentException("not a graph snapshot");
+		}
+		nodeCount = this.buffer.getInt(8);
+		edgeCount = this.buffer.getInt(12);
+		columnCount = this.buffer.getInt(16);
+		statistics = this.buffer.getInt(20);
+		int stringCount = this.buffer.getInt(24);
+		metaBytes = this.buffer.getInt(28);
+
+		int position = HEADER_BYTES;
+		stringOffsets = ints(position, stringCount + 1);
+		stringBlob = position + 4 * (stringCount + 1);
+		position = align(stringBlob + stringOffsets.get(stringCount));
+		labels = ints(position, nodeCount);
+		position += 4 * nodeCount;
+		FloatBuffer[] nodeFloats = new FloatBuffer[6];
+		for (int k = 0; k < nodeFloats.length; k++) {
+			nodeFloats[k] = floats(position, nodeCount);
+			position += 4 * nodeCount;
+		}
+		x = nodeFloats[0];
+		y = nodeFloats[1];
+		size = nodeFloats[2];
+		r = nodeFloats[3];
+		g = nodeFloats[4];
+		b = nodeFloats[5];
+		position = align(position);
+		sources = ints(position, edgeCount);
+		position += 4 * edgeCount;
+		targets = ints(position, edgeCount);
+		position += 4 * edgeCount;
+		weights = floats(position, edgeCount);
+		position += 4 * edgeCount;
+		directed = position;
+		position = align(position + edgeCount);
+		columns = ints(position, 3 * columnCount);
+		position = align(position + 12 * columnCount);
+		values = slice(position, 8 * columnCount * nodeCount)
+				.asDoubleBuffer();
+		meta = position + 8 * columnCount * nodeCount;
+		if (meta + metaBytes > this.buffer.limit()) {
+			throw new IllegalArgumentException("truncated graph snapshot");
+		}
+	}
+
+	private static int align(int position) {
+		return (position + 7) & ~7;
+	}
+
+	private ByteBuffer slice(int position, int bytes) {
+		if (position + bytes > buffer.limit()) {
+			throw new IllegalArgumentException("truncated graph snapshot");
+		}
+		ByteBuffer view = buffer.duplicate();
+		view.position(position);
+		view.limit(position + bytes);
+		return view.slice().order(ByteOrder.LITTLE_ENDIAN);
+	}
+
+	private IntBuffer ints(int position, int count) {
+		return slice(position, 4 * count).asIntBuffer();
+	}
+
+	private FloatBuffer floats(int position, int count) {
+		return slice(position, 4 * count).asFloatBuffer();
+	}
+
+	public int nodeCount() {
+		return nodeCount;
+	}
+
+	public int edgeCount() {
+		return edgeCount;
+	}
+
+	public int columnCount() {
+		return columnCount;
+	}
+
+	/** the statistics the graph was saved with */
+	public Set<Statistic> getStatistics() {
+		Set<Statistic> set = EnumSet.noneOf(Statistic.class);
+		for (Statistic statistic : Statistic.values()) {
+			if ((statistics & 1 << statistic.ordinal()) != 0) {
+				set.add(statistic);
+			}
+		}
+		return set;
+	}
+
+	private String string(int index) {
+		if (index < 0) {
+			return null;
+		}
+		int from = stringOffsets.get(index);
+		byte[] bytes = new byte[stringOffsets.get(index + 1) - from];
+		ByteBuffer view = buffer.duplicate();
+		view.position(stringBlob + from);
+		view.get(bytes);
+		return new String(bytes, StandardCharsets.UTF_8);
+	}
+
+	public String nodeId(int node) {
+		return string(node);
+	}
+
+	public String nodeLabel(int node) {
+		return string(labels.get(node));
+	}
+
+	public float x(int node) {
+		return x.get(node);
+	}
+
+	public float y(int node) {
+		return y.get(node);
+	}
+
+	public float size(int node) {
+		return size.get(node);
+	}
+
+	public int source(int edge) {
+		return sources.get(edge);
+	}
+
+	public int target(int edge) {
+		return targets.get(edge);
+	}
+
+	public float weight(int edge) {
+		return weights.get(edge);
+	}
+
+	public boolean isDirected(int edge) {
+		return buffer.get(directed + edge) != 0;
+	}
+
+	public String columnId(int column) {
+		return string(columns.get(column));
+	}
+
+	public String columnTitle(int column) {
+		return string(columns.get(columnCount + column));
+	}
+
+	public AttributeType columnType(int column) {
+		return AttributeType.values()[columns.get(2 * columnCount + column)];
+	}
+
+	public double value(int column, int node) {
+		return values.get(column * nodeCount + node);
+	}
+
+	/** the utf-8 json stored with the graph, empty if none */
+	public byte[] getMeta() {
+		byte[] bytes = new byte[metaBytes];
+		ByteBuffer view = buffer.duplicate();
+		view.position(meta);
+		view.get(bytes);
+		return bytes;
+	}
+
+	/**
+	 * adds the nodes, edges and columns of this snapshot to the empty graph
+	 * of @graphModel, in the order they were saved
+	 *
+	 * @param graphModel
+	 * @param attributeModel
+	 */
+	public void addTo(GraphModel graphModel, AttributeModel attributeModel) {
+		GraphFactory factory = graphModel.factory();
+		Graph graph = graphModel.getGraph();
+		Node[] nodes = new Node[nodeCount];
+		for (int i = 0; i < nodeCount; i++) {
+			nodes[i] = factory.newNode(nodeId(i));
+			NodeData nodeData = nodes[i].getNodeData();
+			nodeData.setLabel(nodeLabel(i));
+			nodeData.setX(x.get(i));
+			nodeData.setY(y.get(i));
+			nodeData.setSize(size.get(i));
+			nodeData.setColor(r.get(i), g.get(i), b.get(i));
+			graph.addNode(nodes[i]);
+		}
+		for (int e = 0; e < edgeCount; e++) {
+			graph.addEdge(factory.newEdge(nodes[sources.get(e)],
+					nodes[targets.get(e)], weights.get(e), isDirected(e)));
+		}
+		AttributeTable nodeTable = attributeModel.getNodeTable();
+		for (int c = 0; c < columnCount; c++) {
+			AttributeType type = columnType(c);
+			AttributeColumn column = nodeTable.getColumn(columnId(c));
+			if (column == null) {
+				column = nodeTable.addColumn(columnId(c), columnTitle(c),
+						type, AttributeOrigin.COMPUTED, number(type, 0));
+			}
+			for (int i = 0; i < nodeCount; i++) {
+				((AttributeRow) nodes[i].getNodeData().getAttributes())
+						.setValue(column, number(type, value(c, i)));
+			}
+		}
+	}
+
+	private static Number number(AttributeType type, double value) {
+		switch (type) {
+		case INT:
+			return Integer.valueOf((int) value);
+		case LONG:
+			return Long.valueOf((long) value);
+		case FLOAT:
+			return Float.valueOf((float) value);
+		default:
+			return Double.valueOf(value);
+		}
+	}
+
+	/**
+	 * encodes the nodes and edges of @graph and the numeric computed node
+	 * columns of @attributeModel
+	 *
+	 * @param graph
+	 * @param attributeModel
+	 * @param statistics
+	 *            statistics the columns hold
+	 * @param meta
+	 *            utf-8 json stored with the graph, or null
+	 * @return the snapshot, positioned at 0
+	 */
+	public static ByteBuffer encode(Graph graph, AttributeModel attributeModel,
+			Set<Statistic> statistics, byte[] meta) {
+		Contents contents = new Contents();
+		graph.readLock();
+		try {
+			Node[] nodes = graph.getNodes().toArray();
+			Edge[] edges = graph.getEdges().toArray();
+			int n = nodes.length;
+			contents.ids = new String[n];
+			contents.labels = new String[n];
+			contents.nodeFloats = new float[6][n];
+			Map<Integer, Integer> index = new HashMap<Integer, Integer>(n * 2);
+			for (int i = 0; i < n; i++) {
+				NodeData nodeData = nodes[i].getNodeData();
+				index.put(nodes[i].getId(), i);
+				contents.ids[i] = nodeData.getId();
+				contents.labels[i] = nodeData.getLabel();
+				contents.nodeFloats[0][i] = nodeData.x();
+				contents.nodeFloats[1][i] = nodeData.y();
+				contents.nodeFloats[2][i] = nodeData.getSize();
+				contents.nodeFloats[3][i] = nodeData.r();
+				contents.nodeFloats[4][i] = nodeData.g();
+				contents.nodeFloats[5][i] = nodeData.b();
+			}
+			contents.sources = new int[edges.length];
+			contents.targets = new int[edges.length];
+			contents.weights = new float[edges.length];
+			contents.directed = new boolean[edges.length];
+			for (int e = 0; e < edges.length; e++) {
+				contents.sources[e] = index.get(edges[e].getSource().getId());
+				contents.targets[e] = index.get(edges[e].getTarget().getId());
+				contents.weights[e] = edges[e].getWeight();
+				contents.directed[e] = edges[e].isDirected();
+			}
+			for (AttributeColumn column : attributeModel.getNodeTable()
+					.getColumns()) {
+				AttributeType type = column.getType();
+				if (column.getOrigin() != AttributeOrigin.COMPUTED
+						|| (type != AttributeType.INT
+								&& type != AttributeType.LONG
+								&& type != AttributeType.FLOAT && type != AttributeType.DOUBLE)) {
+					continue;
+				}
+				double[] values = new double[n];
+				for (int i = 0; i < n; i++) {
+					Object value = nodes[i].getAttributes().getValue(
+							column.getIndex());
+					values[i] = value != null ? ((Number) value)
+							.doubleValue() : 0;
+				}
+				contents.columnIds.add(column.getId());
+				contents.columnTitles.add(column.getTitle());
+				contents.columnTypes.add(type);
+				contents.values.add(values);
+			}
+		} finally {
+			graph.readUnlock();
+		}
+		for (Statistic statistic : statistics) {
+			contents.statistics |= 1 << statistic.ordinal();
+		}
+		contents.meta = meta != null ? meta : new byte[0];
+		return contents.encode();
+	}
+
+	/** what a snapshot holds, in arrays, before it is encoded */
+	static class Contents {
+		String[] ids;
+		String[] labels;
+		/** x, y, size, r, g, b per node */
+		float[][] nodeFloats;
+		int[] sources;
+		int[] targets;
+		float[] weights;
+		boolean[] directed;
+		List<String> columnIds = new ArrayList<String>();
+		List<String> columnTitles = new ArrayList<String>();
+		List<AttributeType> columnTypes = new ArrayList<AttributeType>();
+		List<double[]> values = new ArrayList<double[]>();
+		int statistics;
+		byte[] meta = new byte[0];
+
+		ByteBuffer encode() {
+			int n = ids.length;
+			int m = sources.length;
+			int c = columnIds.size();
+
+			// node ids first, so node i has string i; labels equal to their
+			// id and repeated titles are stored once
+			List<byte[]> strings = new ArrayList<byte[]>();
+			Map<String, Integer> indexes = new HashMap<String, Integer>();
+			for (String id : ids) {
+				indexes.putIfAbsent(id, strings.size());
+				strings.add(id.getBytes(StandardCharsets.UTF_8));
+			}
+			int[] labelIndexes = new int[n];
+			for (int i = 0; i < n; i++) {
+				labelIndexes[i] = labels[i] == null ? -1 : labels[i]
+						.equals(ids[i]) ? i : string(labels[i], strings,
+						indexes);
+			}
+			int[] columnInts = new int[3 * c];
+			for (int k = 0; k < c; k++) {
+				columnInts[k] = string(columnIds.get(k), strings, indexes);
+				columnInts[c + k] = string(columnTitles.get(k), strings,
+						indexes);
+				columnInts[2 * c + k] = columnTypes.get(k).ordinal();
+			}
+			int stringBytes = 0;
+			for (byte[] string : strings) {
+				stringBytes += string.length;
+			}
+
+			int bytes = HEADER_BYTES;
+			bytes = align(bytes + 4 * (strings.size() + 1) + stringBytes);
+			bytes = align(bytes + 28 * n);
+			bytes = align(bytes + 13 * m);
+			bytes = align(bytes + 12 * c);
+			bytes += 8 * c * n + meta.length;
+
+			ByteBuffer out = ByteBuffer.allocate(bytes).order(
+					ByteOrder.LITTLE_ENDIAN);
+			out.putInt(MAGIC).putInt(VERSION).putInt(n).putInt(m).putInt(c)
+					.putInt(statistics).putInt(strings.size())
+					.putInt(meta.length);
+			int offset = 0;
+			out.putInt(offset);
+			for (byte[] string : strings) {
+				offset += string.length;
+				out.putInt(offset);
+			}
+			for (byte[] string : strings) {
+				out.put(string);
+			}
+			out.position(align(out.position()));
+			for (int label : labelIndexes) {
+				out.putInt(label);
+			}
+			for (float[] column : nodeFloats) {
+				for (float value : column) {
+					out.putFloat(value);
+				}
+			}
+			out.position(align(out.position()));
+			for (int source : sources) {
+				out.putInt(source);
+			}
+			for (int target : targets) {
+				out.putInt(target);
+			}
+			for (float weight : weights) {
+				out.putFloat(weight);
+			}
+			for (boolean edgeDirected : directed) {
+				out.put((byte) (edgeDirected ? 1 : 0));
+			}
+			out.position(align(out.position()));
+			for (int value : columnInts) {
+				out.putInt(value);
+			}
+			out.position(align(out.position()));
+			for (double[] column : values) {
+				for (double value : column) {
+					out.putDouble(value);
+				}
+			}
+			out.put(meta);
+			out.flip();
+			return out;
+		}
+
+		private static int string(String value, List<byte[]> strings,
+				Map<String, Integer> indexes) {
+			Integer index = indexes.get(value);
+			if (index == null) {
+				index = strings.size();
+				indexes.put(value, index);
+				strings.add(value.getBytes(StandardCharsets.UTF_8));
+			}
+			return index;
+		}
+	}
+}
@@ -0,0 +1,178 @@
+package org.projectspinoza.gephikit.cache;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Arrays;
+import java.util.Comparator;
+
+import org.apache.log4j.Logger;
+import org.projectspinoza.gephikit.configuration.Configuration;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+/**
+ * {@link GraphSnapshot} files of built graphs, named by a hash of the data
+ * source version and the settings the graph and its statistics were built
+ * with, so a repeated request or a restarted server maps the file instead
+ * of fetching, tokenizing and importing again. Files are written to a
+ * temporary name and moved into place, so readers never see half a file;
+ * the oldest are deleted once maxFiles is exceeded.
+ */
+public class GraphSnapshotStore {
+
+	static final String SUFFIX = ".gsks";
+
+	private static final Logger log = Logger
+			.getLogger(GraphSnapshotStore.class);
+
+	private final File directory;
+	private final int maxFiles;
+	private final boolean elasticsearch;
+	private final ObjectMapper mapper = new ObjectMapper();
+
+	public GraphSnapshotStore(SnapshotSettings settings) {
+		this(new File(settings.getDirectory()), settings.getMaxFiles(),
+				settings.isElasticsearch());
+	}
+
+	public GraphSnapshotStore(File directory, int maxFiles,
+			boolean elasticsearch) {
+		this.directory = directory;
+		this.maxFiles = maxFiles;
+		this.elasticsearch = elasticsearch;
+	}
+
+	/**
+	 * whether graphs built with @configuration are snapshot; elasticsearch
+	 * results only if enabled for them
+	 */
+	public boolean covers(Configuration configuration) {
+		return elasticsearch
+				|| configuration.getSelectedDataSource().trim().equals("file");
+	}
+
+	/**
+	 * identifies the graph and statistics @configuration builds
+	 *
+	 * @param configuration
+	 * @return key, usable as a file name
+	 * @throws JsonProcessingException
+	 */
+	public String key(Configuration configuration)
+			throws JsonProcessingException {
+		String source = GraphResponseCache.dataSourceVersion(configuration)
+				+ "|" + configuration.getTagLimit();
+		if (configuration.getSelectedDataSource().trim().equals("file")) {
+			source += "|" + configuration.getDatasource().isFileStreaming();
+		} else {
+			source += "|"
+					+ mapper.writeValueAsString(configuration.getDatasource()
+							.getElasticsearchDataLoad().getFields());
+		}
+		source += "|" + mapper.writeValueAsString(configuration.getPageRank())
+				+ "|" + mapper.writeValueAsString(configuration.getBetweenness());
+		return sha1(source);
+	}
+
+	private static String sha1(String value) {
+		try {
+			byte[] digest = MessageDigest.getInstance("SHA-1").digest(
+					value.getBytes(StandardCharsets.UTF_8));
+			StringBuilder hex = new StringBuilder(digest.length * 2);
+			for (byte b : digest) {
+				hex.append(Character.forDigit((b >> 4) & 0xf, 16)).append(
+						Character.forDigit(b & 0xf, 16));
+			}
+			return hex.toString();
+		} catch (NoSuchAlgorithmException e) {
+			throw new IllegalStateException(e);
+		}
+	}
+
+	private File file(String key) {
+		return new File(directory, key + SUFFIX);
+	}
+
+	/**
+	 * maps the snapshot of @key; the mapping stays valid after the file is
+	 * replaced or deleted
+	 *
+	 * @param key
+	 * @return the snapshot, or null if there is none or it can't be read
+	 */
+	public GraphSnapshot open(String key) {
+		File file = file(key);
+		if (!file.isFile()) {
+			return null;
+		}
+		try (FileChannel channel = FileChannel.open(file.toPath(),
+				StandardOpenOption.READ)) {
+			MappedByteBuffer buffer = channel.map(
+					FileChannel.MapMode.READ_ONLY, 0, channel.size());
+			return new GraphSnapshot(buffer);
+		} catch (IOException | IllegalArgumentException e) {
+			log.warn("ignoring graph snapshot " + file + ": " + e.getMessage());
+			return null;
+		}
+	}
+
+	/**
+	 * writes @snapshot as the snapshot of @key, replacing any earlier one;
+	 * failures are logged, a graph that isn't saved is built again
+	 *
+	 * @param key
+	 * @param snapshot
+	 *            encoded by {@link GraphSnapshot#encode}
+	 */
+	public void save(String key, ByteBuffer snapshot) {
+		try {
+			Files.createDirectories(directory.toPath());
+			Path temporary = Files.createTempFile(directory.toPath(), key,
+					".tmp");
+			try {
+				try (FileChannel channel = FileChannel.open(temporary,
+						StandardOpenOption.WRITE)) {
+					ByteBuffer data = snapshot.duplicate();
+					while (data.hasRemaining()) {
+						channel.write(data);
+					}
+				}
+				Files.move(temporary, file(key).toPath(),
+						StandardCopyOption.ATOMIC_MOVE,
+						StandardCopyOption.REPLACE_EXISTING);
+			} finally {
+				Files.deleteIfExists(temporary);
+			}
+		} catch (IOException e) {
+			log.warn("could not save graph snapshot " + key + ": "
+					+ e.getMessage());
+			return;
+		}
+		evict();
+	}
+
+	private synchronized void evict() {
+		File[] files = directory.listFiles((dir, name) -> name
+				.endsWith(SUFFIX));
+		if (files == null || files.length <= maxFiles) {
+			return;
+		}
+		Arrays.sort(files, Comparator.comparingLong(File::lastModified));
+		for (int i = 0; i < files.length - maxFiles; i++) {
+			if (!files[i].delete()) {
+				log.warn("could not delete graph snapshot " + files[i]);
+			}
+		}
+	}
+}
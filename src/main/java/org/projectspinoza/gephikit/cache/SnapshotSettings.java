@@ -0,0 +1,49 @@
+package org.projectspinoza.gephikit.cache;
+
+/**
+ * snapshot block of the configuration
+ */
+public class SnapshotSettings {
+	boolean enabled;
+	String directory = "snapshots";
+	int maxFiles = 16;
+	boolean elasticsearch;
+
+	public boolean isEnabled() {
+		return enabled;
+	}
+
+	public void setEnabled(boolean enabled) {
+		this.enabled = enabled;
+	}
+
+	/** directory the snapshot files are kept in, created when needed */
+	public String getDirectory() {
+		return directory;
+	}
+
+	public void setDirectory(String directory) {
+		this.directory = directory;
+	}
+
+	/** snapshots kept; the least recently written are deleted first */
+	public int getMaxFiles() {
+		return maxFiles;
+	}
+
+	public void setMaxFiles(int maxFiles) {
+		this.maxFiles = maxFiles;
+	}
+
+	/**
+	 * whether graphs of elasticsearch queries are snapshot too; an index can
+	 * change without its query changing, so only files are by default
+	 */
+	public boolean isElasticsearch() {
+		return elasticsearch;
+	}
+
+	public void setElasticsearch(boolean elasticsearch) {
+		this.elasticsearch = elasticsearch;
+	}
+}
@@ -1,7 +1,16 @@
 package org.projectspinoza.gephikit.configuration;
 
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import org.projectspinoza.gephikit.cache.CacheSettings;
+import org.projectspinoza.gephikit.cache.SnapshotSettings;
 import org.projectspinoza.gephikit.datasource.DataSource;
 import org.projectspinoza.gephikit.layouts.Layout;
+import org.projectspinoza.gephikit.statistics.BetweennessSettings;
+import org.projectspinoza.gephikit.statistics.ClusteringSettings;
+import org.projectspinoza.gephikit.statistics.PageRankSettings;
 
 
 
@@ -13,7 +22,20 @@ public class Configuration {
 	DataSource datasource;
 	String selectedLayout;
 	int tagLimit;
+	int parallelism;
+	int workerPoolSize;
+	boolean legacyGraphResponse;
+	boolean compressionSupported;
+	int responseChunkSize;
+	boolean responseTimings;
 	String nodeSizeBy;
+	List<String> responseFields = new ArrayList<String>(Arrays.asList(
+			"pagerank", "clusters"));
+	CacheSettings cache;
+	SnapshotSettings snapshot = new SnapshotSettings();
+	PageRankSettings pageRank = new PageRankSettings();
+	ClusteringSettings clustering = new ClusteringSettings();
+	BetweennessSettings betweenness = new BetweennessSettings();
 	public int getPort() {
 		return port;
 	}
@@ -70,6 +92,66 @@ public class Configuration {
         this.tagLimit = tagLimit;
     }
 
+    public int getParallelism() {
+        return parallelism;
+    }
+
+    public void setParallelism(int parallelism) {
+        this.parallelism = parallelism;
+    }
+
+    public int getWorkerPoolSize() {
+        return workerPoolSize;
+    }
+
+    public void setWorkerPoolSize(int workerPoolSize) {
+        this.workerPoolSize = workerPoolSize;
+    }
+
+    public boolean isLegacyGraphResponse() {
+        return legacyGraphResponse;
+    }
+
+    public void setLegacyGraphResponse(boolean legacyGraphResponse) {
+        this.legacyGraphResponse = legacyGraphResponse;
+    }
+
+    public boolean isCompressionSupported() {
+        return compressionSupported;
+    }
+
+    public void setCompressionSupported(boolean compressionSupported) {
+        this.compressionSupported = compressionSupported;
+    }
+
+    public int getResponseChunkSize() {
+        return responseChunkSize;
+    }
+
+    public void setResponseChunkSize(int responseChunkSize) {
+        this.responseChunkSize = responseChunkSize;
+    }
+
+    public boolean isResponseTimings() {
+        return responseTimings;
+    }
+
+    public void setResponseTimings(boolean responseTimings) {
+        this.responseTimings = responseTimings;
+    }
+
+    /**
+     * statistics computed for every response unless the request names its
+     * own fields; statistics filters or nodeSizeBy need are computed anyway
+     */
+    public List<String> getResponseFields() {
+        return responseFields;
+    }
+
+    public void setResponseFields(List<String> responseFields) {
+        this.responseFields = responseFields;
+    }
+
     public String getNodeSizeBy() {
         return nodeSizeBy;
     }
@@ -77,5 +159,45 @@ public class Configuration {
     public void setNodeSizeBy(String nodeSizeBy) {
         this.nodeSizeBy = nodeSizeBy;
     }
+
+    public CacheSettings getCache() {
+        return cache;
+    }
+
+    public void setCache(CacheSettings cache) {
+        this.cache = cache;
+    }
+
+    public PageRankSettings getPageRank() {
+        return pageRank;
+    }
+
+    public void setPageRank(PageRankSettings pageRank) {
+        this.pageRank = pageRank;
+    }
+
+    public ClusteringSettings getClustering() {
+        return clustering;
+    }
+
+    public void setClustering(ClusteringSettings clustering) {
+        this.clustering = clustering;
+    }
+
+    public BetweennessSettings getBetweenness() {
+        return betweenness;
+    }
+
+    public void setBetweenness(BetweennessSettings betweenness) {
+        this.betweenness = betweenness;
+    }
+
+    public SnapshotSettings getSnapshot() {
+        return snapshot;
+    }
+
+    public void setSnapshot(SnapshotSettings snapshot) {
+        this.snapshot = snapshot;
+    }
 	
 }
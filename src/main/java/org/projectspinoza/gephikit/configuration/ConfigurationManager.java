@@ -1,7 +1,8 @@
 package org.projectspinoza.gephikit.configuration;
 
-import java.io.File;
 import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Paths;
 
 import org.codehaus.jackson.JsonParseException;
 import org.codehaus.jackson.map.JsonMappingException;
@@ -9,15 +10,27 @@ import org.codehaus.jackson.map.ObjectMapper;
 
 public class ConfigurationManager {
 	Configuration configuration;
+	byte[] configurationJson;
+	ObjectMapper mapper = new ObjectMapper();
 	
 	public Configuration getConfiguration(){
 		return configuration;
 	}
 	public void setInitialConfiguration(String filePath) throws JsonParseException, JsonMappingException, IOException{
-		ObjectMapper mapper = new ObjectMapper();
-		configuration = mapper.readValue(new File(
-				filePath), Configuration.class);
+		configurationJson = Files.readAllBytes(Paths.get(filePath));
+		configuration = mapper.readValue(configurationJson, Configuration.class);
 		
 	}
+
+	/**
+	 * returns a fresh copy of the initial configuration, so settings applied
+	 * by one request never leak into another one
+	 * 
+	 * @return configuration
+	 * @throws IOException
+	 */
+	public Configuration newRequestConfiguration() throws IOException {
+		return mapper.readValue(configurationJson, Configuration.class);
+	}
 	
 }
@@ -0,0 +1,148 @@
+package org.projectspinoza.gephikit.datasource;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Reads a graph written by {@link BinaryGraphWriter}.
+ */
+public class BinaryGraphDecoder {
+
+	private final String[] strings;
+	private final int[] nodeIds;
+	private final int[] nodeLabels;
+	private final float[] x;
+	private final float[] y;
+	private final float[] sizes;
+	private final int[] nodeColors;
+	private final int[] edgeIds;
+	private final int[] sources;
+	private final int[] targets;
+	private final float[] weights;
+	private final int[] edgeColors;
+	private final String meta;
+
+	public BinaryGraphDecoder(byte[] encoded) {
+		ByteBuffer in = ByteBuffer.wrap(encoded).order(
+				ByteOrder.LITTLE_ENDIAN);
+		if (in.getInt() != BinaryGraphWriter.MAGIC) {
+			throw new IllegalArgumentException("not a binary graph");
+		}
+		int version = in.getInt();
+		if (version != BinaryGraphWriter.VERSION) {
+			throw new IllegalArgumentException("unsupported version "
+					+ version);
+		}
+		int nodeCount = in.getInt();
+		int edgeCount = in.getInt();
+		int stringCount = in.getInt();
+		int stringBytes = in.getInt();
+		int metaBytes = in.getInt();
+		in.getInt();
+
+		int[] offsets = ints(in, stringCount + 1);
+		int blob = in.position();
+		strings = new String[stringCount];
+		for (int i = 0; i < stringCount; i++) {
+			strings[i] = new String(encoded, blob + offsets[i], offsets[i + 1]
+					- offsets[i], StandardCharsets.UTF_8);
+		}
+		in.position(blob + BinaryGraphWriter.padded(stringBytes));
+
+		nodeIds = ints(in, nodeCount);
+		nodeLabels = ints(in, nodeCount);
+		x = floats(in, nodeCount);
+		y = floats(in, nodeCount);
+		sizes = floats(in, nodeCount);
+		nodeColors = ints(in, nodeCount);
+
+		edgeIds = ints(in, edgeCount);
+		sources = ints(in, edgeCount);
+		targets = ints(in, edgeCount);
+		weights = floats(in, edgeCount);
+		edgeColors = ints(in, edgeCount);
+
+		meta = new String(encoded, in.position(), metaBytes,
+				StandardCharsets.UTF_8);
+	}
+
+	private static int[] ints(ByteBuffer in, int count) {
+		int[] values = new int[count];
+		in.asIntBuffer().get(values);
+		in.position(in.position() + 4 * count);
+		return values;
+	}
+
+	private static float[] floats(ByteBuffer in, int count) {
+		float[] values = new float[count];
+		in.asFloatBuffer().get(values);
+		in.position(in.position() + 4 * count);
+		return values;
+	}
+
+	private String string(int index) {
+		return index < 0 ? null : strings[index];
+	}
+
+	public int getNodeCount() {
+		return nodeIds.length;
+	}
+
+	public int getEdgeCount() {
+		return edgeIds.length;
+	}
+
+	public String getNodeId(int node) {
+		return string(nodeIds[node]);
+	}
+
+	public String getNodeLabel(int node) {
+		return string(nodeLabels[node]);
+	}
+
+	public float getX(int node) {
+		return x[node];
+	}
+
+	public float getY(int node) {
+		return y[node];
+	}
+
+	public float getSize(int node) {
+		return sizes[node];
+	}
+
+	/** @return 0xRRGGBB */
+	public int getNodeColor(int node) {
+		return nodeColors[node];
+	}
+
+	public int getEdgeId(int edge) {
+		return edgeIds[edge];
+	}
+
+	/** @return index of the source node */
+	public int getSource(int edge) {
+		return sources[edge];
+	}
+
+	/** @return index of the target node */
+	public int getTarget(int edge) {
+		return targets[edge];
+	}
+
+	public float getWeight(int edge) {
+		return weights[edge];
+	}
+
+	/** @return 0xRRGGBB or {@link SigmaGraphWriter#NO_COLOR} */
+	public int getEdgeColor(int edge) {
+		return edgeColors[edge];
+	}
+
+	/** @return the json stored after the graph */
+	public String getMeta() {
+		return meta;
+	}
+}
@@ -0,0 +1,156 @@
+package org.projectspinoza.gephikit.datasource;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.gephi.graph.api.Edge;
+import org.gephi.graph.api.Graph;
+import org.gephi.graph.api.Node;
+import org.gephi.graph.api.NodeData;
+import org.projectspinoza.gephikit.configuration.Configuration;
+
+/**
+ * Writes a graph in a columnar binary layout that a javascript client can
+ * read with typed arrays. All numbers are little endian and every section
+ * starts on a 4 byte boundary:
+ *
+ * <pre>
+ * header      "GSKG", int32 version, nodeCount, edgeCount, stringCount,
+ *             stringBytes, metaBytes, reserved (32 bytes)
+ * strings     int32[stringCount + 1] offsets into the utf-8 blob,
+ *             uint8[stringBytes] blob, padded
+ * nodes       int32[nodeCount] id, int32[nodeCount] label (string index,
+ *             -1 for null), float32[nodeCount] x, y, size,
+ *             uint32[nodeCount] color 0xRRGGBB
+ * edges       int32[edgeCount] id, source, target (node index),
+ *             float32[edgeCount] weight, int32[edgeCount] color 0xRRGGBB
+ *             or -1 for none
+ * meta        uint8[metaBytes] utf-8 json, e.g. documents and layout run
+ * </pre>
+ *
+ * Node and edge values are the ones {@link SigmaGraphWriter} writes.
+ */
+public class BinaryGraphWriter {
+
+	public static final int MAGIC = 'G' | 'S' << 8 | 'K' << 16 | 'G' << 24;
+	public static final int VERSION = 1;
+	static final int HEADER_BYTES = 32;
+
+	private final SigmaGraphWriter sigmaGraphWriter = new SigmaGraphWriter();
+
+	/**
+	 * @param graph
+	 * @param conf
+	 * @param meta
+	 *            utf-8 json stored after the graph, or null
+	 * @return the encoded graph
+	 */
+	public byte[] write(Graph graph, Configuration conf, byte[] meta) {
+		Node[] nodes = graph.getNodes().toArray();
+		Edge[] edges = graph.getEdges().toArray();
+		if (meta == null) {
+			meta = new byte[0];
+		}
+
+		// string table, identical strings are stored once
+		Map<String, Integer> stringIndex = new HashMap<String, Integer>();
+		List<byte[]> strings = new ArrayList<byte[]>();
+		int[] nodeIds = new int[nodes.length];
+		int[] nodeLabels = new int[nodes.length];
+		Map<Integer, Integer> nodeIndex = new HashMap<Integer, Integer>(
+				nodes.length * 2);
+		int stringBytes = 0;
+		for (int i = 0; i < nodes.length; i++) {
+			NodeData nd = nodes[i].getNodeData();
+			nodeIndex.put(nodes[i].getId(), i);
+			for (int column = 0; column < 2; column++) {
+				String value = column == 0 ? nd.getId() : nd.getLabel();
+				int index = -1;
+				if (value != null) {
+					Integer known = stringIndex.get(value);
+					if (known == null) {
+						byte[] encoded = value.getBytes(StandardCharsets.UTF_8);
+						known = strings.size();
+						stringIndex.put(value, known);
+						strings.add(encoded);
+						stringBytes += encoded.length;
+					}
+					index = known;
+				}
+				if (column == 0) {
+					nodeIds[i] = index;
+				} else {
+					nodeLabels[i] = index;
+				}
+			}
+		}
+
+		int size = HEADER_BYTES + 4 * (strings.size() + 1)
+				+ padded(stringBytes) + 24 * nodes.length + 20 * edges.length
+				+ meta.length;
+		ByteBuffer out = ByteBuffer.allocate(size).order(
+				ByteOrder.LITTLE_ENDIAN);
+		out.putInt(MAGIC).putInt(VERSION).putInt(nodes.length)
+				.putInt(edges.length).putInt(strings.size())
+				.putInt(stringBytes).putInt(meta.length).putInt(0);
+
+		int offset = 0;
+		out.putInt(offset);
+		for (byte[] string : strings) {
+			offset += string.length;
+			out.putInt(offset);
+		}
+		for (byte[] string : strings) {
+			out.put(string);
+		}
+		out.position(out.position() + padded(stringBytes) - stringBytes);
+
+		for (int id : nodeIds) {
+			out.putInt(id);
+		}
+		for (int label : nodeLabels) {
+			out.putInt(label);
+		}
+		for (Node node : nodes) {
+			out.putFloat(node.getNodeData().x());
+		}
+		for (Node node : nodes) {
+			out.putFloat(node.getNodeData().y());
+		}
+		String nodeSizeBy = conf.getNodeSizeBy().trim();
+		for (Node node : nodes) {
+			out.putFloat(SigmaGraphWriter.nodeSize(node, nodeSizeBy));
+		}
+		for (Node node : nodes) {
+			out.putInt(SigmaGraphWriter.nodeColor(node.getNodeData()));
+		}
+
+		for (Edge edge : edges) {
+			out.putInt(edge.getId());
+		}
+		for (Edge edge : edges) {
+			out.putInt(nodeIndex.get(edge.getSource().getId()));
+		}
+		for (Edge edge : edges) {
+			out.putInt(nodeIndex.get(edge.getTarget().getId()));
+		}
+		for (Edge edge : edges) {
+			out.putFloat(edge.getWeight());
+		}
+		for (Edge edge : edges) {
+			out.putInt(sigmaGraphWriter.edgeColor(edge));
+		}
+
+		out.put(meta);
+		return out.array();
+	}
+
+	static int padded(int bytes) {
+		return (bytes + 3) & ~3;
+	}
+}
@@ -0,0 +1,108 @@
+package org.projectspinoza.gephikit.datasource;
+
+import java.util.List;
+
+import org.gephi.io.importer.api.EdgeDraft;
+import org.gephi.io.importer.api.EdgeDraft.EdgeType;
+import org.gephi.io.importer.api.NodeDraft;
+import org.gephi.io.importer.impl.ImportContainerImpl;
+
+/**
+ * Collects co-hashtag edge weights outside of the import container. Tags are
+ * interned to int ids and pair weights live in a {@link PairWeightMap}, so no
+ * per-pair objects are created while reading; node and edge drafts are only
+ * built once per distinct tag and pair in {@link #addTo}.
+ */
+public class CoOccurrenceAccumulator {
+
+	private final TagDictionary dictionary;
+	private final PairWeightMap pairs;
+	private int[] lineIds;
+
+	public CoOccurrenceAccumulator() {
+		dictionary = new TagDictionary();
+		pairs = new PairWeightMap();
+		lineIds = new int[16];
+	}
+
+	/**
+	 * counts one co-occurrence of every ordered pair (tags[i], tags[j]) with
+	 * i < j
+	 *
+	 * @param tags
+	 */
+	public void addAll(List<String> tags) {
+		int count = tags.size();
+		if (count < 2) {
+			return;
+		}
+		if (lineIds.length < count) {
+			lineIds = new int[count];
+		}
+		for (int i = 0; i < count; i++) {
+			lineIds[i] = dictionary.intern(tags.get(i));
+		}
+		for (int i = 0; i < count - 1; i++) {
+			for (int j = i + 1; j < count; j++) {
+				pairs.add(PairWeightMap.pack(lineIds[i], lineIds[j]), 1f);
+			}
+		}
+	}
+
+	/**
+	 * merges @other into this accumulator; tags and edges first seen in
+	 * @other are appended after the ones already present
+	 *
+	 * @param other
+	 */
+	public void addAll(CoOccurrenceAccumulator other) {
+		int[] remap = new int[other.dictionary.size()];
+		for (int id = 0; id < remap.length; id++) {
+			remap[id] = dictionary.intern(other.dictionary.tag(id));
+		}
+		for (int index = 0; index < other.pairs.size(); index++) {
+			long key = other.pairs.keyAt(index);
+			pairs.add(PairWeightMap.pack(remap[PairWeightMap.source(key)],
+					remap[PairWeightMap.target(key)]), other.pairs
+					.weightAt(index));
+		}
+	}
+
+	public int nodeCount() {
+		return dictionary.size();
+	}
+
+	public int edgeCount() {
+		return pairs.size();
+	}
+
+	/**
+	 * creates one node draft per tag and one edge draft per distinct pair in
+	 * the order they were first seen
+	 *
+	 * @param container
+	 */
+	public void addTo(ImportContainerImpl container) {
+		NodeDraft[] nodes = new NodeDraft[dictionary.size()];
+		for (int id = 0; id < nodes.length; id++) {
+			String tag = dictionary.tag(id);
+			nodes[id] = container.factory().newNodeDraft();
+			nodes[id].setId(tag);
+			nodes[id].setLabel(tag);
+			container.addNode(nodes[id]);
+		}
+		for (int index = 0; index < pairs.size(); index++) {
+			long key = pairs.keyAt(index);
+
+			EdgeDraft edgeDraft = container.factory().newEdgeDraft();
+			edgeDraft.setId(String.valueOf(index));
+			edgeDraft.setWeight(pairs.weightAt(index));
+			edgeDraft.setType(EdgeType.DIRECTED);
+			edgeDraft.setLabel("CO_HASHTAG");
+			edgeDraft.setSource(nodes[PairWeightMap.source(key)]);
+			edgeDraft.setTarget(nodes[PairWeightMap.target(key)]);
+
+			container.addEdge(edgeDraft);
+		}
+	}
+}
@@ -1,7 +1,9 @@
 package org.projectspinoza.gephikit.datasource;
 
+import java.io.IOException;
+
 import org.gephi.io.importer.api.Container;
 
 public interface DataLoader {
-	public Container load();
+	public Container load() throws IOException;
 }
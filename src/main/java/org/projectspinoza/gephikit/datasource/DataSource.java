@@ -2,6 +2,7 @@ package org.projectspinoza.gephikit.datasource;
 
 public class DataSource {
 	String filePath;
+	boolean fileStreaming;
 	FileLoader fileloader;
 	ElasticSearchDocuments elasticsearchDocument;
 	ElasticSearchDataLoader elasticsearchDataLoad;
@@ -14,6 +15,14 @@ public class DataSource {
 		this.filePath = filePath;
 	}
 
+	public boolean isFileStreaming() {
+		return fileStreaming;
+	}
+
+	public void setFileStreaming(boolean fileStreaming) {
+		this.fileStreaming = fileStreaming;
+	}
+
 	public FileLoader getFileloader() {
 		return fileloader;
 	}
@@ -0,0 +1,219 @@
+package org.projectspinoza.gephikit.datasource;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Builds co-occurrence edges from pages of documents in three stages that
+ * run on their own threads: the thread fetching the documents hands every
+ * page to {@link #addPage(List)}, a tokenizer thread splits the pages into
+ * tag lists and an aggregator thread adds the tag lists to a
+ * {@link CoOccurrenceAccumulator}. The stages are connected by queues of
+ * queueCapacity pages; a stage that gets ahead blocks until the next one
+ * has caught up, so at most two queues of pages are held at a time.
+ */
+public class EdgePipeline {
+
+	/** splits a page of documents into the tag lists of its lines */
+	public interface Tokenizer {
+		List<List<String>> tokenize(List<Map<String, Object>> page);
+	}
+
+	/** stage counters of all pipelines */
+	public static final PipelineStats STATS = new PipelineStats();
+
+	private static final long POLL_MILLIS = 100;
+
+	/** marks the end of the input of a stage */
+	@SuppressWarnings("rawtypes")
+	private static final List END = new ArrayList(0);
+
+	private final Tokenizer tokenizer;
+	private final PipelineStats stats;
+	private final BlockingQueue<List<Map<String, Object>>> pages;
+	private final BlockingQueue<List<List<String>>> tagLists;
+	private final CoOccurrenceAccumulator accumulator =
+			new CoOccurrenceAccumulator();
+	private final ExecutorService stages;
+	private final Future<?> tokenizeStage;
+	private final Future<?> aggregateStage;
+	private volatile boolean stopped;
+	private volatile Throwable failure;
+	private long fetchStarted;
+
+	public EdgePipeline(Tokenizer tokenizer, int queueCapacity) {
+		this(tokenizer, queueCapacity, STATS);
+	}
+
+	public EdgePipeline(Tokenizer tokenizer, int queueCapacity,
+			PipelineStats stats) {
+		this.tokenizer = tokenizer;
+		this.stats = stats;
+		pages = new ArrayBlockingQueue<List<Map<String, Object>>>(
+				Math.max(1, queueCapacity));
+		tagLists = new ArrayBlockingQueue<List<List<String>>>(Math.max(1,
+				queueCapacity));
+		stages = Executors.newFixedThreadPool(2);
+		stats.started(this);
+		tokenizeStage = stages.submit(() -> {
+			runStage(this::tokenize);
+			return null;
+		});
+		aggregateStage = stages.submit(() -> {
+			runStage(this::aggregate);
+			return null;
+		});
+		fetchStarted = System.nanoTime();
+	}
+
+	/**
+	 * passes a fetched page to the tokenizer; blocks while queueCapacity
+	 * pages are waiting for it
+	 *
+	 * @param page
+	 * @throws IllegalStateException
+	 *             if a stage failed or the pipeline was aborted
+	 */
+	public void addPage(List<Map<String, Object>> page) {
+		stats.fetch.processed(page.size(), System.nanoTime() - fetchStarted);
+		try {
+			put(pages, page, stats.fetch, stats.tokenize);
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			abort();
+			throw new IllegalStateException("edge pipeline interrupted", e);
+		}
+		fetchStarted = System.nanoTime();
+	}
+
+	/**
+	 * waits until all pages added so far have been aggregated
+	 *
+	 * @return the edges of all pages
+	 * @throws IllegalStateException
+	 *             if a stage failed
+	 */
+	@SuppressWarnings("unchecked")
+	public CoOccurrenceAccumulator finish() {
+		try {
+			put(pages, END, stats.fetch, stats.tokenize);
+			tokenizeStage.get();
+			aggregateStage.get();
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new IllegalStateException("edge pipeline interrupted", e);
+		} catch (ExecutionException e) {
+			throw new IllegalStateException("edge pipeline failed",
+					e.getCause());
+		} finally {
+			abort();
+		}
+		return accumulator;
+	}
+
+	/**
+	 * stops the stages without waiting for queued pages, e.g. when the
+	 * fetch failed
+	 */
+	public void abort() {
+		stopped = true;
+		stages.shutdownNow();
+		stats.stopped(this);
+	}
+
+	/** waits up to @millis for the stage threads to end */
+	boolean awaitStopped(long millis) throws InterruptedException {
+		return stages.awaitTermination(millis, TimeUnit.MILLISECONDS);
+	}
+
+	int tokenizeQueueDepth() {
+		return pages.size();
+	}
+
+	int aggregateQueueDepth() {
+		return tagLists.size();
+	}
+
+	private interface StageLoop {
+		void run() throws InterruptedException;
+	}
+
+	private void runStage(StageLoop loop) throws InterruptedException {
+		try {
+			loop.run();
+		} catch (InterruptedException | RuntimeException | Error e) {
+			if (failure == null && !stopped) {
+				failure = e;
+			}
+			stopped = true;
+			throw e;
+		}
+	}
+
+	@SuppressWarnings("unchecked")
+	private void tokenize() throws InterruptedException {
+		while (true) {
+			List<Map<String, Object>> page = take(pages);
+			if (page == END) {
+				put(tagLists, END, stats.tokenize, stats.aggregate);
+				return;
+			}
+			long start = System.nanoTime();
+			List<List<String>> tags = tokenizer.tokenize(page);
+			stats.tokenize.processed(page.size(), System.nanoTime() - start);
+			put(tagLists, tags, stats.tokenize, stats.aggregate);
+		}
+	}
+
+	private void aggregate() throws InterruptedException {
+		while (true) {
+			List<List<String>> tags = take(tagLists);
+			if (tags == END) {
+				return;
+			}
+			long start = System.nanoTime();
+			for (List<String> lineTags : tags) {
+				accumulator.addAll(lineTags);
+			}
+			stats.aggregate.processed(tags.size(), System.nanoTime() - start);
+		}
+	}
+
+	/**
+	 * puts @item into the input queue of the next stage, waiting while it
+	 * is full
+	 */
+	private <T> void put(BlockingQueue<T> queue, T item,
+			PipelineStats.Stage from, PipelineStats.Stage to)
+			throws InterruptedException {
+		checkRunning();
+		long start = System.nanoTime();
+		while (!queue.offer(item, POLL_MILLIS, TimeUnit.MILLISECONDS)) {
+			checkRunning();
+		}
+		from.blocked(System.nanoTime() - start);
+		to.queueDepth(queue.size());
+	}
+
+	private <T> T take(BlockingQueue<T> queue) throws InterruptedException {
+		T item;
+		while ((item = queue.poll(POLL_MILLIS, TimeUnit.MILLISECONDS)) == null) {
+			checkRunning();
+		}
+		return item;
+	}
+
+	private void checkRunning() {
+		if (stopped) {
+			throw new IllegalStateException("edge pipeline stopped", failure);
+		}
+	}
+}
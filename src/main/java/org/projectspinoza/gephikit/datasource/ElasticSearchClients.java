@@ -0,0 +1,155 @@
+package org.projectspinoza.gephikit.datasource;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.apache.log4j.Logger;
+import org.elasticsearch.client.Client;
+import org.elasticsearch.client.transport.TransportClient;
+import org.elasticsearch.common.settings.ImmutableSettings;
+import org.elasticsearch.common.settings.Settings;
+import org.elasticsearch.common.transport.InetSocketTransportAddress;
+
+/**
+ * Elasticsearch clients shared by all requests, one per host, port and
+ * cluster name. A client is created the first time its cluster is asked for
+ * and kept until {@link #close()}; transport clients are thread safe and
+ * reconnect on their own, so requests never open connections themselves.
+ */
+public class ElasticSearchClients {
+
+	/** creates the client of a cluster, replaceable in tests */
+	public interface Factory {
+		Client create(String host, int port, String clusterName);
+	}
+
+	/** creates transport clients */
+	public static final Factory TRANSPORT = new Factory() {
+		@Override
+		public Client create(String host, int port, String clusterName) {
+			Settings settings = ImmutableSettings.settingsBuilder()
+					.put("cluster.name", clusterName).build();
+			return new TransportClient(settings)
+					.addTransportAddress(new InetSocketTransportAddress(host,
+							port));
+		}
+	};
+
+	private static org.apache.log4j.Logger log = Logger
+			.getLogger(ElasticSearchClients.class);
+
+	private final Factory factory;
+	private final ConcurrentHashMap<String, Client> clients =
+			new ConcurrentHashMap<String, Client>();
+	private final AtomicLong created = new AtomicLong();
+	private final AtomicLong reused = new AtomicLong();
+	private volatile boolean closed;
+
+	public ElasticSearchClients() {
+		this(TRANSPORT);
+	}
+
+	public ElasticSearchClients(Factory factory) {
+		this.factory = factory;
+	}
+
+	/**
+	 * @param host
+	 * @param port
+	 * @param clusterName
+	 *            "elasticsearch" if null or empty
+	 * @return the shared client of the cluster; callers must not close it
+	 */
+	public Client get(String host, int port, String clusterName) {
+		if (closed) {
+			throw new IllegalStateException("elasticsearch clients are closed");
+		}
+		String cluster = clusterName == null || clusterName.trim().isEmpty()
+				? "elasticsearch" : clusterName.trim();
+		String key = key(host, port, cluster);
+		Client client = clients.get(key);
+		if (client != null) {
+			reused.incrementAndGet();
+			return client;
+		}
+		synchronized (this) {
+			if (closed) {
+				throw new IllegalStateException(
+						"elasticsearch clients are closed");
+			}
+			client = clients.get(key);
+			if (client == null) {
+				client = factory.create(host, port, cluster);
+				clients.put(key, client);
+				created.incrementAndGet();
+				log.info("Elasticsearch client created for " + key);
+			} else {
+				reused.incrementAndGet();
+			}
+		}
+		return client;
+	}
+
+	private static String key(String host, int port, String clusterName) {
+		return host + ":" + port + "/" + clusterName;
+	}
+
+	/**
+	 * connected nodes per client; a transport client without connected
+	 * nodes cannot reach its cluster. Clients that are not transport
+	 * clients report -1
+	 *
+	 * @return host:port/cluster to number of connected nodes
+	 */
+	public Map<String, Integer> health() {
+		Map<String, Integer> health = new LinkedHashMap<String, Integer>();
+		for (Map.Entry<String, Client> entry : clients.entrySet()) {
+			Client client = entry.getValue();
+			health.put(entry.getKey(),
+					client instanceof TransportClient ? ((TransportClient) client)
+							.connectedNodes().size() : -1);
+		}
+		return health;
+	}
+
+	/**
+	 * @return true if every client has at least one connected node
+	 */
+	public boolean isHealthy() {
+		for (int connected : health().values()) {
+			if (connected == 0) {
+				return false;
+			}
+		}
+		return true;
+	}
+
+	/**
+	 * closes all clients; later calls to get fail
+	 */
+	public synchronized void close() {
+		closed = true;
+		for (Client client : clients.values()) {
+			try {
+				client.close();
+			} catch (RuntimeException e) {
+				log.error("Closing elasticsearch client failed", e);
+			}
+		}
+		clients.clear();
+	}
+
+	public int size() {
+		return clients.size();
+	}
+
+	public long getCreated() {
+		return created.get();
+	}
+
+	public long getReused() {
+		return reused.get();
+	}
+}
@@ -1,24 +1,22 @@
 package org.projectspinoza.gephikit.datasource;
 
 import java.util.ArrayList;
-import java.util.Arrays;
-import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 
 import org.gephi.io.importer.api.Container;
-import org.gephi.io.importer.api.EdgeDraft;
-import org.gephi.io.importer.api.EdgeDraft.EdgeType;
-import org.gephi.io.importer.api.NodeDraft;
 import org.gephi.io.importer.impl.ImportContainerImpl;
 import org.projectspinoza.gephikit.configuration.Configuration;
 
 public class ElasticSearchDataLoader implements DataLoader {
-	public List<Map<String, Object>> lines;
+	public List<FieldTokenizer.Line> lines;
 	ImportContainerImpl container;
-	List<String[]> edges;
 	List<Map<String, Object>> fields;
+	List<FieldTokenizer> tokenizers;
 	Configuration conf;
+	/** pages buffered between two pipeline stages; set by the configuration */
+	int queueCapacity = 4;
+	EdgePipeline pipeline;
 
 	public ElasticSearchDataLoader() {
 		// TODO Auto-generated constructor stub
@@ -31,127 +29,134 @@ public class ElasticSearchDataLoader implements DataLoader {
 		startProcess(documents, attributes);
 	}
 
+	/**
+	 * creates a loader that is fed page by page through
+	 * {@link #addDocuments(List)}; pages are tokenized and aggregated by an
+	 * {@link EdgePipeline} while the next ones are fetched
+	 * 
+	 * @param attributes
+	 * @param conf
+	 */
+	public ElasticSearchDataLoader(List<Map<String, Object>> attributes,
+			Configuration conf) {
+		initialize(conf);
+		fields = attributes;
+		tokenizers = FieldTokenizer.compile(attributes);
+		queueCapacity = conf.getDatasource().getElasticsearchDataLoad()
+				.getQueueCapacity();
+		pipeline = new EdgePipeline(this::tokenize, queueCapacity);
+	}
+
 	public void initialize(Configuration conf) {
 		container = new ImportContainerImpl();
-		edges = new ArrayList<String[]>();
-		lines = new ArrayList<Map<String, Object>>();
+		lines = new ArrayList<FieldTokenizer.Line>();
 		this.conf = conf;
 	}
 
 	public void startProcess(List<Map<String, Object>> documents,
 			List<Map<String, Object>> attributes) {
-
+		tokenizers = FieldTokenizer.compile(attributes);
 		for (Map<String, Object> document : documents) {
-			
-			for (Map<String, Object> attribute : attributes) {
-				if (attribute.get("name") == null || attribute.get("splitBy") == null) {
-					continue;
+			for (FieldTokenizer tokenizer : tokenizers) {
+				Object text = document.get(tokenizer.getName());
+				if (text != null) {
+					lines.add(new FieldTokenizer.Line(text.toString(),
+							tokenizer));
 				}
-				Map<String, Object> documentMap = new HashMap<String, Object>();
-				documentMap.put("text",document.get(attribute.get("name").toString()));
-				documentMap.put("splitBy", attribute.get("splitBy").toString());
-				lines.add(documentMap);			
 			}
 		}
 	}
 
-	public List<Map<String, Object>> getFields() {
-		return fields;
-	}
-
-	public void setFields(List<Map<String, Object>> fields) {
-		this.fields = fields;
+	/**
+	 * hands a page of documents to the pipeline; blocks while the pipeline
+	 * is queueCapacity pages behind
+	 * 
+	 * @param documents
+	 */
+	public void addDocuments(List<Map<String, Object>> documents) {
+		pipeline.addPage(documents);
 	}
 
-	public Container load() {
-		for (Map<String, Object> line : lines) {
-			String[] splitTags = line.get("text").toString().trim().split(line.get("splitBy").toString());
-			if(splitTags!=null){
-			    if(splitTags.length > conf.getTagLimit()){
-			        splitTags =   Arrays.copyOfRange(splitTags, 0, conf.getTagLimit());  
-			    }
-    			List<String[]> edges = buildEdges(splitTags);
-    			addToContainer(edges);
-    		}
+	/**
+	 * stops the pipeline of a loader that will not be loaded, e.g. because
+	 * fetching failed
+	 */
+	public void abort() {
+		if (pipeline != null) {
+			pipeline.abort();
 		}
-
-		return container;
 	}
 
-	private void addToContainer(List<String[]> edges) {
-
-		for (String[] edge : edges) {
-            if(edge[0].trim().isEmpty() || edge[1].trim().isEmpty())
-            	continue;
-			EdgeDraft edgeDraft = null;
-			String edgeId = edge[0] + "-" + edge[1];
-
-			if (container.edgeExists(edgeId)) {
-				edgeDraft = container.getEdge(edgeId);
-
-				float weight = edgeDraft.getWeight();
-				weight += 1;
-				edgeDraft.setWeight(weight);
-				continue;
+	/** tokenizer stage of the pipeline */
+	private List<List<String>> tokenize(List<Map<String, Object>> documents) {
+		List<List<String>> tagLists = new ArrayList<List<String>>(
+				documents.size() * tokenizers.size());
+		for (Map<String, Object> document : documents) {
+			for (FieldTokenizer tokenizer : tokenizers) {
+				Object text = document.get(tokenizer.getName());
+				if (text != null) {
+					List<String> tags = new ArrayList<String>();
+					tokenizer.tokenize(text.toString(), conf.getTagLimit(), tags);
+					tagLists.add(tags);
+				}
 			}
-
-			edgeDraft = container.factory().newEdgeDraft();
-			edgeDraft.setId(edgeId);
-			edgeDraft.setWeight(1f);
-			edgeDraft.setType(EdgeType.DIRECTED);
-
-			edgeDraft.setLabel("CO_HASHTAG");
-
-			NodeDraft source = getOrCreateNodeDraft(edge[0], edge[0]);
-			NodeDraft target = getOrCreateNodeDraft(edge[1], edge[1]);
-
-			edgeDraft.setSource(source);
-			edgeDraft.setTarget(target);
-
-			container.addEdge(edgeDraft);
 		}
+		return tagLists;
 	}
 
-	private List<String[]> buildEdges(String[] splitTags) {
-		List<String[]> edges = new ArrayList<String[]>();
-		List<String> taglist = new ArrayList<String>();
-     
-		for (String splittag : splitTags) {
-			if (splittag.trim().isEmpty() || splittag.length() > 25)
-				continue;
-			taglist.add(splittag);
-		}
-		for (int i = 0; i < taglist.size() - 1; i++) {
-			for (int j = i + 1; j < taglist.size(); j++) {
-				String edge[] = new String[2];
-				edge[0] = taglist.get(i);
-				edge[1] = taglist.get(j);
-				edges.add(edge);
+	/**
+	 * @param attributes
+	 * @return names of the document fields the graph is built from
+	 */
+	public static List<String> fieldNames(List<Map<String, Object>> attributes) {
+		List<String> names = new ArrayList<String>();
+		for (Map<String, Object> attribute : attributes) {
+			if (attribute.get("name") != null) {
+				names.add(attribute.get("name").toString());
 			}
 		}
+		return names;
+	}
 
-		return edges;
+	public List<Map<String, Object>> getFields() {
+		return fields;
 	}
 
-	private NodeDraft getOrCreateNodeDraft(String id, String label) {
+	public void setFields(List<Map<String, Object>> fields) {
+		this.fields = fields;
+	}
 
-		NodeDraft nodeDraft = null;
-		if (id == null) {
+	public int getQueueCapacity() {
+		return queueCapacity;
+	}
 
-			System.exit(0);
-		}
+	/**
+	 * pages buffered between two pipeline stages
+	 * 
+	 * @param queueCapacity
+	 */
+	public void setQueueCapacity(int queueCapacity) {
+		this.queueCapacity = queueCapacity;
+	}
 
-		if (container.nodeExists(id)) {
-			nodeDraft = container.getNode(id);
+	public Container load() {
+		if (pipeline != null) {
+			// fed page by page
+			pipeline.finish().addTo(container);
+			return container;
+		}
+		CoOccurrenceAccumulator accumulator;
+		if (conf.getParallelism() > 1) {
+			accumulator = new ParallelEdgeBuilder(conf.getParallelism()).build(
+					lines, (line, partial) -> partial.addAll(line.tokenize(conf.getTagLimit())));
 		} else {
-			nodeDraft = container.factory().newNodeDraft();
-			nodeDraft.setId(id);
-			nodeDraft.setLabel(label);
-
-			container.addNode(nodeDraft);
+			accumulator = new CoOccurrenceAccumulator();
+			for (FieldTokenizer.Line line : lines) {
+				accumulator.addAll(line.tokenize(conf.getTagLimit()));
+			}
 		}
-
-		return nodeDraft;
+		accumulator.addTo(container);
+		return container;
 	}
 
 }
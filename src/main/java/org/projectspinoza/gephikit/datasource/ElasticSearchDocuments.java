@@ -2,10 +2,14 @@ package org.projectspinoza.gephikit.datasource;
 
 import java.util.ArrayList;
 import java.util.HashMap;
+import java.util.LinkedHashSet;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
 
 import org.apache.log4j.Logger;
+import org.elasticsearch.action.ListenableActionFuture;
+import org.elasticsearch.action.search.SearchRequestBuilder;
 import org.elasticsearch.action.search.SearchResponse;
 import org.elasticsearch.action.search.SearchType;
 import org.elasticsearch.client.Client;
@@ -17,10 +21,20 @@ import org.elasticsearch.common.transport.InetSocketTransportAddress;
 import org.elasticsearch.index.query.QueryBuilders;
 import org.elasticsearch.index.query.QueryStringQueryBuilder;
 import org.elasticsearch.search.SearchHit;
+import org.elasticsearch.search.SearchHitField;
 import org.gephi.io.importer.impl.ImportContainerImpl;
 
 
 public class ElasticSearchDocuments {
+
+        /** receives the documents of a search page by page */
+        public interface PageListener {
+        	void onPage(List<Map<String, Object>> page);
+        }
+
+        /** partial field holding the filtered source of a hit */
+        private static final String SOURCE_FIELD = "gsakkit_source";
+
         String host;
         int port;
         String clusterName;
@@ -34,6 +48,14 @@ public class ElasticSearchDocuments {
     	ImportContainerImpl container;
     	List<Map<String, Object>> documents;
     	TransportClient transportClient;
+    	ElasticSearchClients clients;
+    	boolean ownsClient;
+    	boolean scroll;
+    	int batchSize = 500;
+    	String scrollKeepAlive = "1m";
+    	boolean explain;
+    	List<String> extraSourceFields = new ArrayList<String>();
+    	PageListener pageListener;
     	private static org.apache.log4j.Logger log = Logger.getLogger(ElasticSearchDocuments.class);
     	ElasticSearchDocuments(){
     		
@@ -52,16 +74,47 @@ public class ElasticSearchDocuments {
         	
         	this.startProcess();
         }
+        /**
+         * searches with the shared client of the cluster instead of opening a
+         * connection for this search
+         */
+        public ElasticSearchDocuments(ElasticSearchClients clients, String host, int port,String clusterName, String index, String type, List<String> searchFields, String searchValue,List<String> returnFields, int documentsLimit) throws Exception{
+        	
+        	this.clients = clients;
+        	this.host= host;
+        	this.port = port;
+        	this.clusterName = clusterName;
+        	this.index = index;
+        	this.type = type;
+        	this.searchFields = searchFields;
+        	this.searchValue = searchValue;
+        	this.documentsLimit = documentsLimit;
+        	this.returnFields = returnFields;
+        	
+        	this.startProcess();
+        }
         public void startProcess() throws Exception{
         	
-        	if(getClient() != null){
-        		documents = getDocuments(client,  index, type, searchValue, searchFields, returnFields, documentsLimit );
-        	}else{
-        		log.error("ElasticSearch Connectivity Fails");
+        	try {
+        		if(getClient() != null){
+        			documents = getDocuments(client,  index, type, searchValue, searchFields, returnFields, documentsLimit );
+        		}else{
+        			log.error("ElasticSearch Connectivity Fails");
+        		}
+        	} finally {
+        		// a client opened for this search only is not used again
+        		if(ownsClient){
+        			client.close();
+        			client = null;
+        			ownsClient = false;
+        		}
         	}
         }
         public Client getClient() throws NoNodeAvailableException{
         	Settings clientSettings;
+        	if(client == null && clients != null){
+        		client = clients.get(host, port, clusterName);
+        	}
         	if(client == null){
         	if(!clusterName.trim().isEmpty()){
         		clientSettings = ImmutableSettings.settingsBuilder().put("cluster.name",clusterName).build();
@@ -70,11 +123,21 @@ public class ElasticSearchDocuments {
         	}
         
         	client = new TransportClient(clientSettings).addTransportAddress(new InetSocketTransportAddress(host,port));
+        	ownsClient = true;
         	}
         	return client;
         	
         }
        
+        /**
+         * fetches up to documentsLimit hits with only the return fields and
+         * the extra source fields in their source. Without scroll mode this is
+         * a single search; with it hits are fetched batchSize at a time and the
+         * next page is requested before the page listener gets the current one,
+         * so fetching and graph building overlap
+         * 
+         * @return documents with the return fields of every hit
+         */
         public List<Map<String, Object>> getDocuments(Client client,String index, String type, String searchValue,List<String> searchFields,List<String> returnFields ,int documentsLimit) throws Exception{
         	List<Map<String, Object> > responseList = new ArrayList<Map<String, Object>>();
             QueryStringQueryBuilder queryString = QueryBuilders.queryString(searchValue);
@@ -82,26 +145,83 @@ public class ElasticSearchDocuments {
             	queryString.field(searchField);
             }
             
-    		SearchResponse response = client
+    		SearchRequestBuilder search = client
     				.prepareSearch(index).setTypes(type)
     				.setSearchType(SearchType.DFS_QUERY_THEN_FETCH)
     				.setQuery(queryString)
-    				.setFrom(0)
-    				.setSize(documentsLimit)
-    				.setExplain(true)
-    				.execute()
-    				.actionGet();
+    				.setExplain(explain)
+    				.addPartialField(SOURCE_FIELD, sourceFields(returnFields), null);
+    		if (!scroll) {
+    			SearchResponse response = search.setFrom(0)
+    					.setSize(documentsLimit).execute().actionGet();
+    			SearchHit[] hits = response.getHits().getHits();
+    			addPage(hits, hits.length, returnFields, responseList);
+    			return responseList;
+    		}
 
-    		for (SearchHit hit : response.getHits()) {
-    			Map<String, Object> responseMap = new HashMap<String, Object>();
-    			for(String field : returnFields){
-    				responseMap.put(field, hit.getSource().get(field));	
+    		SearchResponse response = search
+    				.setSize(Math.max(1, Math.min(batchSize, documentsLimit)))
+    				.setScroll(scrollKeepAlive).execute().actionGet();
+    		String scrollId = response.getScrollId();
+    		try {
+    			while (true) {
+    				SearchHit[] hits = response.getHits().getHits();
+    				int count = Math.min(hits.length, documentsLimit - responseList.size());
+    				ListenableActionFuture<SearchResponse> next = null;
+    				if (hits.length > 0 && responseList.size() + count < documentsLimit) {
+    					next = client.prepareSearchScroll(scrollId)
+    							.setScroll(scrollKeepAlive).execute();
+    				}
+    				addPage(hits, count, returnFields, responseList);
+    				if (next == null) {
+    					break;
+    				}
+    				response = next.actionGet();
+    				scrollId = response.getScrollId();
     			}
-    			responseList.add(responseMap);
+    		} finally {
+    			client.prepareClearScroll().addScrollId(scrollId).execute();
     		}
     		return responseList;
         	
         }
+
+        /**
+         * adds the return fields of the first @count hits to @documents and
+         * passes all fetched fields of the hits to the page listener
+         */
+        private void addPage(SearchHit[] hits, int count, List<String> returnFields, List<Map<String, Object>> documents){
+        	List<Map<String, Object>> page = new ArrayList<Map<String, Object>>(count);
+        	for (int i = 0; i < count; i++) {
+        		Map<String, Object> source = source(hits[i]);
+        		Map<String, Object> responseMap = new HashMap<String, Object>();
+        		for(String field : returnFields){
+        			responseMap.put(field, source.get(field));	
+        		}
+        		documents.add(responseMap);
+        		page.add(source);
+        	}
+        	if (pageListener != null && count > 0) {
+        		pageListener.onPage(page);
+        	}
+        }
+
+        @SuppressWarnings("unchecked")
+        private static Map<String, Object> source(SearchHit hit){
+        	SearchHitField field = hit.field(SOURCE_FIELD);
+        	if (field != null && field.getValue() instanceof Map) {
+        		return (Map<String, Object>) field.getValue();
+        	}
+        	Map<String, Object> source = hit.getSource();
+        	return source != null ? source : new HashMap<String, Object>();
+        }
+
+        private String[] sourceFields(List<String> returnFields){
+        	Set<String> fields = new LinkedHashSet<String>(returnFields);
+        	fields.addAll(extraSourceFields);
+        	return fields.toArray(new String[fields.size()]);
+        }
+
 		public String getHost() {
 			return host;
 		}
@@ -161,6 +281,44 @@ public class ElasticSearchDocuments {
 			this.documentsLimit = documentsLimit;
 		}
 		
+		public boolean isScroll() {
+			return scroll;
+		}
+		public void setScroll(boolean scroll) {
+			this.scroll = scroll;
+		}
+		public int getBatchSize() {
+			return batchSize;
+		}
+		public void setBatchSize(int batchSize) {
+			this.batchSize = batchSize;
+		}
+		public String getScrollKeepAlive() {
+			return scrollKeepAlive;
+		}
+		public void setScrollKeepAlive(String scrollKeepAlive) {
+			this.scrollKeepAlive = scrollKeepAlive;
+		}
+		public boolean isExplain() {
+			return explain;
+		}
+		public void setExplain(boolean explain) {
+			this.explain = explain;
+		}
+		/**
+		 * fields fetched besides the return fields, e.g. the ones the data
+		 * loader builds the graph from
+		 */
+		public void setExtraSourceFields(List<String> extraSourceFields) {
+			this.extraSourceFields = extraSourceFields;
+		}
+		public void setClients(ElasticSearchClients clients) {
+			this.clients = clients;
+		}
+		public void setPageListener(PageListener pageListener) {
+			this.pageListener = pageListener;
+		}
+		
 		public List<Map<String, Object>> getDocuments() {
 			return documents;
 		}
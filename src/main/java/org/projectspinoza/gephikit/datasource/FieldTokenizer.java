@@ -0,0 +1,158 @@
+package org.projectspinoza.gephikit.datasource;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Splits the text of one configured elasticsearchDataLoad field into tags.
+ * The splitBy regex is compiled once; a single literal character is found
+ * without a regex at all. The text is cut into the same pieces as
+ * text.trim().split(splitBy), of which the first tagLimit are kept, but a
+ * piece is only copied into a string if it is a tag: not blank and at most
+ * MAX_TAG_LENGTH characters long.
+ */
+public class FieldTokenizer {
+
+	public static final int MAX_TAG_LENGTH = 25;
+
+	/** regex metacharacters; a splitBy of one other character is literal */
+	private static final String REGEX_META = ".$|()[{^?*+\\";
+
+	/** text of a document field waiting to be tokenized */
+	public static class Line {
+		final String text;
+		final FieldTokenizer tokenizer;
+
+		public Line(String text, FieldTokenizer tokenizer) {
+			this.text = text;
+			this.tokenizer = tokenizer;
+		}
+
+		public List<String> tokenize(int tagLimit) {
+			List<String> tags = new ArrayList<String>();
+			tokenizer.tokenize(text, tagLimit, tags);
+			return tags;
+		}
+	}
+
+	private final String name;
+	private final char separator;
+	private final Pattern pattern;
+
+	public FieldTokenizer(String name, String splitBy) {
+		this.name = name;
+		char literal = literal(splitBy);
+		if (literal != 0) {
+			separator = literal;
+			pattern = null;
+		} else {
+			separator = 0;
+			pattern = Pattern.compile(splitBy);
+		}
+	}
+
+	/**
+	 * @param attributes
+	 *            elasticsearchDataLoad fields; entries without name or
+	 *            splitBy are skipped
+	 * @return a tokenizer per field
+	 */
+	public static List<FieldTokenizer> compile(
+			List<Map<String, Object>> attributes) {
+		List<FieldTokenizer> tokenizers = new ArrayList<FieldTokenizer>();
+		for (Map<String, Object> attribute : attributes) {
+			if (attribute.get("name") == null
+					|| attribute.get("splitBy") == null) {
+				continue;
+			}
+			tokenizers.add(new FieldTokenizer(attribute.get("name").toString(),
+					attribute.get("splitBy").toString()));
+		}
+		return tokenizers;
+	}
+
+	/** the character splitBy stands for, or 0 if it needs a regex */
+	private static char literal(String splitBy) {
+		if (splitBy.length() == 1
+				&& REGEX_META.indexOf(splitBy.charAt(0)) < 0) {
+			return splitBy.charAt(0);
+		}
+		if (splitBy.length() == 2 && splitBy.charAt(0) == '\\') {
+			char escaped = splitBy.charAt(1);
+			boolean alphanumeric = escaped >= '0' && escaped <= '9'
+					|| escaped >= 'a' && escaped <= 'z' || escaped >= 'A'
+					&& escaped <= 'Z';
+			if (!alphanumeric && escaped < Character.MIN_HIGH_SURROGATE) {
+				return escaped;
+			}
+		}
+		return 0;
+	}
+
+	/** name of the document field */
+	public String getName() {
+		return name;
+	}
+
+	/**
+	 * adds the tags among the first @tagLimit pieces of @text to @tags
+	 *
+	 * @param text
+	 * @param tagLimit
+	 * @param tags
+	 */
+	public void tokenize(String text, int tagLimit, List<String> tags) {
+		int start = 0;
+		int end = text.length();
+		while (start < end && text.charAt(start) <= ' ') {
+			start++;
+		}
+		while (end > start && text.charAt(end - 1) <= ' ') {
+			end--;
+		}
+		int pieces = 0;
+		int from = start;
+		if (pattern == null) {
+			while (pieces < tagLimit) {
+				int to = text.indexOf(separator, from);
+				if (to < 0 || to >= end) {
+					addTag(text, from, end, tags);
+					return;
+				}
+				addTag(text, from, to, tags);
+				pieces++;
+				from = to + 1;
+			}
+			return;
+		}
+		Matcher matcher = pattern.matcher(text).region(start, end);
+		while (pieces < tagLimit && matcher.find()) {
+			// like String.split, an empty match at the start cuts nothing
+			if (matcher.end() == start) {
+				continue;
+			}
+			addTag(text, from, matcher.start(), tags);
+			pieces++;
+			from = matcher.end();
+		}
+		if (pieces < tagLimit) {
+			addTag(text, from, end, tags);
+		}
+	}
+
+	private static void addTag(String text, int from, int to,
+			List<String> tags) {
+		if (to - from > MAX_TAG_LENGTH) {
+			return;
+		}
+		for (int i = from; i < to; i++) {
+			if (text.charAt(i) > ' ') {
+				tags.add(text.substring(from, to));
+				return;
+			}
+		}
+	}
+}
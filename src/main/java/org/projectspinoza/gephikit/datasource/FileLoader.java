@@ -4,37 +4,72 @@ package org.projectspinoza.gephikit.datasource;
 import java.io.BufferedReader;
 import java.io.FileReader;
 import java.io.IOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileChannel.MapMode;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collections;
 import java.util.HashSet;
 import java.util.List;
 import java.util.Set;
 
+import org.apache.log4j.Logger;
+import org.codehaus.jackson.JsonFactory;
+import org.codehaus.jackson.JsonParser;
+import org.codehaus.jackson.JsonToken;
 import org.gephi.io.importer.api.Container;
-import org.gephi.io.importer.api.EdgeDraft;
-import org.gephi.io.importer.api.EdgeDraft.EdgeType;
-import org.gephi.io.importer.api.NodeDraft;
 import org.gephi.io.importer.impl.ImportContainerImpl;
 
 
 public class FileLoader implements DataLoader {
 
+	/** size of the file region mapped into memory at a time in streaming mode */
+	private static final long MAP_WINDOW_SIZE = 64L * 1024 * 1024;
+
 	ImportContainerImpl container;
 	List<String> tweets;
+	String filePath;
+	boolean streaming;
+	int parallelism;
+	CoOccurrenceAccumulator accumulator;
+	JsonFactory jsonFactory;
+	int lineCount;
+	private static org.apache.log4j.Logger log = Logger.getLogger(FileLoader.class);
 
 	public FileLoader(String filePath) throws IOException {
-		initialize();
-		readFile(filePath);
+		this(filePath, false);
+	}
 
+	/**
+	 * @param filePath
+	 * @param streaming
+	 *            when true the file is not read up front; load() maps it
+	 *            window by window and feeds every tweet straight into the
+	 *            container, so the heap only has to hold the graph
+	 * @throws IOException
+	 */
+	public FileLoader(String filePath, boolean streaming) throws IOException {
+		this.filePath = filePath;
+		this.streaming = streaming;
+		initialize();
+		if (!streaming) {
+			readFile(filePath);
+		}
 	}
 
 	public void initialize() {
 		container = new ImportContainerImpl();
 		tweets = new ArrayList<String>();
+		accumulator = new CoOccurrenceAccumulator();
+		jsonFactory = new JsonFactory();
 	}
 
 	public void readFile(String filePath) throws IOException {
-       System.out.println("file path : " + filePath);
+		log.info("reading file : " + filePath);
 		BufferedReader br = new BufferedReader(new FileReader(filePath)) ;
 			for (String line; (line = br.readLine()) != null;) {
 				tweets.add(line);
@@ -43,131 +78,178 @@ public class FileLoader implements DataLoader {
 
 	}
 
-	public Container load() {
-		
-		for (String tweet : tweets) {
-			List<String[]> edges = buildEdges(tweet);
-			
-			addToContainer(edges);
+	public Container load() throws IOException {
+		lineCount = tweets.size();
+		if (streaming) {
+			streamFile();
+		} else if (parallelism > 1) {
+			accumulator = new ParallelEdgeBuilder(parallelism).build(tweets,
+					(tweet, partial) -> partial.addAll(buildTagList(tweet)));
+		} else {
+			for (String tweet : tweets) {
+				accumulator.addAll(buildTagList(tweet));
+			}
 		}
+		accumulator.addTo(container);
 		return container;
 	}
 
+	/** lines the last load() built the graph from */
+	public int getLineCount() {
+		return lineCount;
+	}
+
 	public ImportContainerImpl getContainer() {
 		return container;
 	}
 
-	private void addToContainer(List<String[]> edges) {
-
-		for (String[] edge : edges) {
-
-			EdgeDraft edgeDraft = null;
-			String edgeId = edge[0] + "-" + edge[1];
-
-			if (container.edgeExists(edgeId)) {
-				edgeDraft = container.getEdge(edgeId);
+	/**
+	 * number of threads used to build the edges of an in-memory file; values
+	 * below 2 keep the sequential path. Streaming mode is always sequential.
+	 *
+	 * @param parallelism
+	 */
+	public void setParallelism(int parallelism) {
+		this.parallelism = parallelism;
+	}
 
-				float weight = edgeDraft.getWeight();
-				weight += 1;
-				edgeDraft.setWeight(weight);
-				continue;
+	/**
+	 * reads the tweet file through memory mapped windows, one line at a time,
+	 * without keeping the lines around
+	 *
+	 * @throws IOException
+	 */
+	private void streamFile() throws IOException {
+		log.info("streaming file : " + filePath);
+		try (FileChannel channel = FileChannel.open(Paths.get(filePath),
+				StandardOpenOption.READ)) {
+			long size = channel.size();
+			byte[] line = new byte[8192];
+			int length = 0;
+			for (long position = 0; position < size; position += MAP_WINDOW_SIZE) {
+				MappedByteBuffer window = channel.map(MapMode.READ_ONLY,
+						position, Math.min(MAP_WINDOW_SIZE, size - position));
+				while (window.hasRemaining()) {
+					byte b = window.get();
+					if (b == '\n') {
+						processLine(line, length);
+						length = 0;
+						continue;
+					}
+					if (length == line.length) {
+						line = Arrays.copyOf(line, length * 2);
+					}
+					line[length++] = b;
+				}
 			}
+			if (length > 0) {
+				processLine(line, length);
+			}
+		}
+	}
 
-			edgeDraft = container.factory().newEdgeDraft();
-			edgeDraft.setId(edgeId);
-			edgeDraft.setWeight(1f);
-			edgeDraft.setType(EdgeType.DIRECTED);
-			// edgeDraft.setType(EdgeType.UNDIRECTED);
-			edgeDraft.setLabel("CO_HASHTAG");
-
-			NodeDraft source = getOrCreateNodeDraft(edge[0], edge[0]);
-			NodeDraft target = getOrCreateNodeDraft(edge[1], edge[1]);
-
-			edgeDraft.setSource(source);
-			edgeDraft.setTarget(target);
-
-			container.addEdge(edgeDraft);
+	private void processLine(byte[] line, int length) {
+		if (length > 0 && line[length - 1] == '\r') {
+			length--;
+		}
+		if (length == 0) {
+			return;
 		}
+		lineCount++;
+		accumulator.addAll(buildTagList(new String(line, 0, length,
+				StandardCharsets.UTF_8)));
 	}
 
 	/**
-	 * creates or returns nodeDraft with the id @id and label @label
-	 * 
-	 * @param id
-	 * @param label
-	 * @return NodeDraft
+	 * pulls hashtags out of a twitter4j status json line; the
+	 * hashtagEntities are used when present, the text field otherwise
+	 *
+	 * @param json
+	 * @param tags
+	 * @throws IOException
 	 */
-	private NodeDraft getOrCreateNodeDraft(String id, String label) {
-
-		NodeDraft nodeDraft = null;
-
-		if (container.nodeExists(id)) {
-			nodeDraft = container.getNode(id);
-		} else {
-			nodeDraft = container.factory().newNodeDraft();
-			nodeDraft.setId(id);
-			nodeDraft.setLabel(label);
-
-			container.addNode(nodeDraft);
+	private void extractJsonTags(String json, Set<String> tags)
+			throws IOException {
+		String text = null;
+		boolean hasEntities = false;
+		JsonParser parser = jsonFactory.createJsonParser(json);
+		try {
+			if (parser.nextToken() != JsonToken.START_OBJECT) {
+				return;
+			}
+			while (parser.nextToken() == JsonToken.FIELD_NAME) {
+				String field = parser.getCurrentName();
+				JsonToken value = parser.nextToken();
+				if ("text".equals(field) && value == JsonToken.VALUE_STRING) {
+					text = parser.getText();
+				} else if ("hashtagEntities".equals(field)
+						&& value == JsonToken.START_ARRAY) {
+					hasEntities = true;
+					readHashtagEntities(parser, tags);
+				} else {
+					parser.skipChildren();
+				}
+			}
+		} finally {
+			parser.close();
+		}
+		if (!hasEntities && text != null) {
+			extractTags(text, tags);
 		}
-
-		return nodeDraft;
 	}
 
-	private List<String[]> buildEdges(String tweet) {
-
-		List<String[]> edges = new ArrayList<String[]>();
-
-		String parts[] = tweet.replaceAll("/[^A-Za-z0-9 #]/", " ")
-				.replace("\n", " ").replace("\r", " ")
-				.replaceAll("\\P{Print}", " ").split(" ");
+	private void readHashtagEntities(JsonParser parser, Set<String> tags)
+			throws IOException {
+		while (parser.nextToken() == JsonToken.START_OBJECT) {
+			while (parser.nextToken() == JsonToken.FIELD_NAME) {
+				String field = parser.getCurrentName();
+				JsonToken value = parser.nextToken();
+				if ("text".equals(field) && value == JsonToken.VALUE_STRING) {
+					extractTags("#" + parser.getText(), tags);
+				} else {
+					parser.skipChildren();
+				}
+			}
+		}
+	}
 
+	/**
+	 * the sorted hashtags of one line of the file, either a twitter4j status
+	 * json or plain text; the same in every loading mode
+	 *
+	 * @param tweet
+	 * @return tags, empty for a malformed json line
+	 */
+	private List<String> buildTagList(String tweet) {
 		Set<String> tags = new HashSet<String>();
-
-		for (String part : parts) {
-			part = part.trim();
-			if (part.length() < 2 || part.length() > 20)
-				continue;
-			if (part.equals("#rt"))
-				continue;
-
-			if (part.startsWith("#")) {
-				// . splits hashtags of type: #tag1#tag2...
-				if ((part.length() - part.replace("#", "").length()) > 1) {
-					String[] subParts = part.split("#");
-					for (String sb : subParts) {
-						sb = sb.replaceAll("[^a-zA-Z0-9_-]", "").trim();
-						sb = sb.replace("\\s", "");
-						if (sb.length() > 1) {
-							tags.add(sb);
-						}
-					}
-					continue;
-				}
-				part = part.replaceAll("[^a-zA-Z0-9_-]", "").trim();
-				part = part.replace("\\s", "");
-				if (part.length() > 1) {
-					tags.add(part);
-				}
+		if (!tweet.isEmpty() && tweet.charAt(0) == '{') {
+			try {
+				extractJsonTags(tweet, tags);
+			} catch (IOException e) {
+				log.debug("Skipping malformed tweet json: " + e.getMessage());
+				return Collections.emptyList();
 			}
+		} else {
+			extractTags(tweet, tags);
 		}
+		return sortTags(tags);
+	}
 
+	/**
+	 * collects the normalized hashtags of the given text into @tags
+	 *
+	 * @param tweet
+	 * @param tags
+	 */
+	private void extractTags(String tweet, Set<String> tags) {
+		HashtagScanner.scan(tweet, tags);
+	}
+
+	private List<String> sortTags(Set<String> tags) {
 		List<String> taglist = new ArrayList<String>();
 		taglist.addAll(tags);
 		Collections.sort(taglist);
-		if (taglist.size() < 2)
-			return edges;
-
-		for (int i = 0; i < taglist.size() - 1; i++) {
-			for (int j = i + 1; j < taglist.size(); j++) {
-				String edge[] = new String[2];
-				edge[0] = taglist.get(i);
-				edge[1] = taglist.get(j);
-				edges.add(edge);
-			}
-		}
-
-		return edges;
+		return taglist;
 	}
 
 }
@@ -0,0 +1,104 @@
+package org.projectspinoza.gephikit.datasource;
+
+import java.util.Arrays;
+
+/**
+ * Open addressing map from a packed (source, target) tag id pair to an edge
+ * weight. Entries are kept in insertion order so edges can be materialized
+ * in the order they were first seen.
+ */
+public class PairWeightMap {
+
+	private static final int FREE = -1;
+
+	/** hash table slots, holding an index into the dense arrays or FREE */
+	private int[] slots;
+	private long[] keys;
+	private float[] weights;
+	private int size;
+
+	public PairWeightMap() {
+		this(64);
+	}
+
+	public PairWeightMap(int expectedSize) {
+		int capacity = Integer.highestOneBit(Math.max(4, expectedSize) * 2 - 1) << 1;
+		slots = new int[capacity];
+		Arrays.fill(slots, FREE);
+		keys = new long[capacity / 2];
+		weights = new float[capacity / 2];
+	}
+
+	public static long pack(int source, int target) {
+		return ((long) source << 32) | (target & 0xffffffffL);
+	}
+
+	public static int source(long key) {
+		return (int) (key >>> 32);
+	}
+
+	public static int target(long key) {
+		return (int) key;
+	}
+
+	/**
+	 * adds @weight to the entry of @key, creating it if needed
+	 *
+	 * @param key
+	 * @param weight
+	 */
+	public void add(long key, float weight) {
+		int mask = slots.length - 1;
+		int slot = hash(key) & mask;
+		while (slots[slot] != FREE) {
+			int index = slots[slot];
+			if (keys[index] == key) {
+				weights[index] += weight;
+				return;
+			}
+			slot = (slot + 1) & mask;
+		}
+		if (size == keys.length) {
+			grow();
+			add(key, weight);
+			return;
+		}
+		keys[size] = key;
+		weights[size] = weight;
+		slots[slot] = size++;
+	}
+
+	public int size() {
+		return size;
+	}
+
+	public long keyAt(int index) {
+		return keys[index];
+	}
+
+	public float weightAt(int index) {
+		return weights[index];
+	}
+
+	private void grow() {
+		keys = Arrays.copyOf(keys, keys.length * 2);
+		weights = Arrays.copyOf(weights, weights.length * 2);
+		slots = new int[slots.length * 2];
+		Arrays.fill(slots, FREE);
+		int mask = slots.length - 1;
+		for (int index = 0; index < size; index++) {
+			int slot = hash(keys[index]) & mask;
+			while (slots[slot] != FREE) {
+				slot = (slot + 1) & mask;
+			}
+			slots[slot] = index;
+		}
+	}
+
+	private static int hash(long key) {
+		key ^= key >>> 33;
+		key *= 0xff51afd7ed558ccdL;
+		key ^= key >>> 33;
+		return (int) key;
+	}
+}
@@ -0,0 +1,79 @@
+package org.projectspinoza.gephikit.datasource;
+
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+
+/**
+ * Shards the input lines of a loader over a fork-join pool. Every shard
+ * builds its own {@link CoOccurrenceAccumulator}; shards are merged left to
+ * right so the result matches a sequential pass over the same lines.
+ */
+public class ParallelEdgeBuilder {
+
+	/** builds the co-hashtag edges of a single line */
+	public interface LineProcessor<T> {
+		void process(T line, CoOccurrenceAccumulator accumulator);
+	}
+
+	private static final int MIN_SHARD_SIZE = 256;
+
+	private final int parallelism;
+
+	public ParallelEdgeBuilder(int parallelism) {
+		this.parallelism = parallelism;
+	}
+
+	public <T> CoOccurrenceAccumulator build(List<T> lines,
+			LineProcessor<T> processor) {
+		int shardSize = Math.max(MIN_SHARD_SIZE, lines.size()
+				/ (parallelism * 4) + 1);
+		ForkJoinPool pool = new ForkJoinPool(parallelism);
+		try {
+			return pool.invoke(new ShardTask<T>(lines, processor, 0,
+					lines.size(), shardSize));
+		} finally {
+			pool.shutdown();
+		}
+	}
+
+	@SuppressWarnings("serial")
+	private static class ShardTask<T> extends
+			RecursiveTask<CoOccurrenceAccumulator> {
+		private final List<T> lines;
+		private final LineProcessor<T> processor;
+		private final int from;
+		private final int to;
+		private final int shardSize;
+
+		ShardTask(List<T> lines, LineProcessor<T> processor, int from, int to,
+				int shardSize) {
+			this.lines = lines;
+			this.processor = processor;
+			this.from = from;
+			this.to = to;
+			this.shardSize = shardSize;
+		}
+
+		@Override
+		protected CoOccurrenceAccumulator compute() {
+			if (to - from <= shardSize) {
+				CoOccurrenceAccumulator accumulator = new CoOccurrenceAccumulator();
+				for (int i = from; i < to; i++) {
+					processor.process(lines.get(i), accumulator);
+				}
+				return accumulator;
+			}
+			int middle = (from + to) >>> 1;
+			ShardTask<T> left = new ShardTask<T>(lines, processor, from,
+					middle, shardSize);
+			ShardTask<T> right = new ShardTask<T>(lines, processor, middle, to,
+					shardSize);
+			left.fork();
+			CoOccurrenceAccumulator rightResult = right.compute();
+			CoOccurrenceAccumulator leftResult = left.join();
+			leftResult.addAll(rightResult);
+			return leftResult;
+		}
+	}
+}
@@ -0,0 +1,126 @@
+package org.projectspinoza.gephikit.datasource;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Throughput and queue depth of the stages of all {@link EdgePipeline}s.
+ * Counters add up over all pipelines since the server started; queue depths
+ * are those of the pipelines running right now.
+ */
+public class PipelineStats {
+
+	/** counters of one stage */
+	public static class Stage {
+		private final AtomicLong pages = new AtomicLong();
+		private final AtomicLong records = new AtomicLong();
+		private final AtomicLong busyNanos = new AtomicLong();
+		private final AtomicLong blockedNanos = new AtomicLong();
+		private final AtomicInteger maxQueueDepth = new AtomicInteger();
+
+		void processed(int pageRecords, long nanos) {
+			pages.incrementAndGet();
+			records.addAndGet(pageRecords);
+			busyNanos.addAndGet(nanos);
+		}
+
+		/** time spent waiting for room in the queue of the next stage */
+		void blocked(long nanos) {
+			blockedNanos.addAndGet(nanos);
+		}
+
+		void queueDepth(int depth) {
+			maxQueueDepth.accumulateAndGet(depth, Math::max);
+		}
+
+		public long getPages() {
+			return pages.get();
+		}
+
+		public long getRecords() {
+			return records.get();
+		}
+
+		public long getBusyMillis() {
+			return busyNanos.get() / 1000000;
+		}
+
+		public long getBlockedMillis() {
+			return blockedNanos.get() / 1000000;
+		}
+
+		/** records per second of busy time */
+		public double getThroughput() {
+			long nanos = busyNanos.get();
+			return nanos == 0 ? 0 : records.get() * 1e9 / nanos;
+		}
+
+		/** largest number of pages seen waiting for this stage */
+		public int getMaxQueueDepth() {
+			return maxQueueDepth.get();
+		}
+	}
+
+	final Stage fetch = new Stage();
+	final Stage tokenize = new Stage();
+	final Stage aggregate = new Stage();
+	private final Set<EdgePipeline> running = ConcurrentHashMap.newKeySet();
+
+	void started(EdgePipeline pipeline) {
+		running.add(pipeline);
+	}
+
+	void stopped(EdgePipeline pipeline) {
+		running.remove(pipeline);
+	}
+
+	public Stage getFetch() {
+		return fetch;
+	}
+
+	public Stage getTokenize() {
+		return tokenize;
+	}
+
+	public Stage getAggregate() {
+		return aggregate;
+	}
+
+	/**
+	 * @return running pipelines and, per stage, pages, records, busy and
+	 *         blocked time, throughput and the current and largest queue
+	 *         depth
+	 */
+	public Map<String, Object> snapshot() {
+		int tokenizeQueue = 0;
+		int aggregateQueue = 0;
+		for (EdgePipeline pipeline : running) {
+			tokenizeQueue += pipeline.tokenizeQueueDepth();
+			aggregateQueue += pipeline.aggregateQueueDepth();
+		}
+		Map<String, Object> snapshot = new LinkedHashMap<String, Object>();
+		snapshot.put("running", running.size());
+		snapshot.put("fetch", stage(fetch, -1));
+		snapshot.put("tokenize", stage(tokenize, tokenizeQueue));
+		snapshot.put("aggregate", stage(aggregate, aggregateQueue));
+		return snapshot;
+	}
+
+	private static Map<String, Object> stage(Stage stage, int queueDepth) {
+		Map<String, Object> map = new LinkedHashMap<String, Object>();
+		map.put("pages", stage.getPages());
+		map.put("records", stage.getRecords());
+		map.put("busyMillis", stage.getBusyMillis());
+		map.put("blockedMillis", stage.getBlockedMillis());
+		map.put("recordsPerSecond", Math.round(stage.getThroughput()));
+		if (queueDepth >= 0) {
+			map.put("queueDepth", queueDepth);
+			map.put("maxQueueDepth", stage.getMaxQueueDepth());
+		}
+		return map;
+	}
+}
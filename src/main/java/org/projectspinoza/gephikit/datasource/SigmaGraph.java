@@ -14,6 +14,7 @@ import org.gephi.graph.api.Node;
 import org.gephi.graph.api.NodeData;
 import org.gephi.preview.types.EdgeColor;
 import org.projectspinoza.gephikit.configuration.Configuration;
+import org.projectspinoza.gephikit.statistics.CsrDegree;
 
 import com.google.common.collect.Iterables;
 
@@ -72,7 +73,9 @@ public class SigmaGraph implements TwitterGraph {
             float y = nd.y();
             float size = 1;
             
-            if (nodeSizeBy.trim().equals("pr")) {
+            if (CsrDegree.sizeColumn(nodeSizeBy) != null) {
+                size = SigmaGraphWriter.nodeSize(n, nodeSizeBy);
+            } else if (nodeSizeBy.trim().equals("pr")) {
                 double s = (Double) nodeArray[i].getAttributes().getValue("pagerank");
                 size = (float) s;
             } else if (nodeSizeBy.equals("exp_pr")) {
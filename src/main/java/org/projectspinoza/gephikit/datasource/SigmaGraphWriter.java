@@ -0,0 +1,165 @@
+package org.projectspinoza.gephikit.datasource;
+
+import java.awt.Color;
+import java.io.IOException;
+
+import org.gephi.data.attributes.api.AttributeColumn;
+import org.gephi.data.attributes.api.AttributeRow;
+import org.gephi.graph.api.Edge;
+import org.gephi.graph.api.EdgeData;
+import org.gephi.graph.api.Graph;
+import org.gephi.graph.api.Node;
+import org.gephi.graph.api.NodeData;
+import org.gephi.preview.types.EdgeColor;
+import org.projectspinoza.gephikit.configuration.Configuration;
+import org.projectspinoza.gephikit.statistics.CsrDegree;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+
+/**
+ * Writes a graph in the sigma format of {@link SigmaGraph} straight to a
+ * JsonGenerator, walking the gephi graph once without building GraphNode or
+ * SigmaEdge objects. Nodes and edges carry the same fields as their
+ * serialized SigmaGraph counterparts.
+ */
+public class SigmaGraphWriter {
+
+    /** packed color of edges without edge data */
+    public static final int NO_COLOR = -1;
+
+    private final EdgeColor colorMixer = new EdgeColor(EdgeColor.Mode.MIXED);
+
+    /**
+     * writes {"nodes":[...],"edges":[...]} as the next value of @generator
+     *
+     * @param generator
+     * @param graph
+     * @param conf
+     * @throws IOException
+     */
+    public void write(JsonGenerator generator, Graph graph, Configuration conf)
+            throws IOException {
+        generator.writeStartObject();
+        generator.writeArrayFieldStart("nodes");
+        for (Node node : graph.getNodes().toArray()) {
+            writeNode(generator, node, conf.getNodeSizeBy().trim());
+        }
+        generator.writeEndArray();
+        generator.writeArrayFieldStart("edges");
+        for (Edge edge : graph.getEdges().toArray()) {
+            writeEdge(generator, edge);
+        }
+        generator.writeEndArray();
+        generator.writeEndObject();
+    }
+
+    private void writeNode(JsonGenerator generator, Node node,
+            String nodeSizeBy) throws IOException {
+        NodeData nd = node.getNodeData();
+        generator.writeStartObject();
+        generator.writeStringField("id", nd.getId());
+        generator.writeStringField("label", nd.getLabel());
+        generator.writeNumberField("x", nd.x());
+        generator.writeNumberField("y", nd.y());
+        generator.writeNumberField("size", nodeSize(node, nodeSizeBy));
+        generator.writeStringField("color", rgb(nodeColor(nd)));
+        generator.writeObjectFieldStart("attributes");
+        AttributeRow nAttr = (AttributeRow) nd.getAttributes();
+        for (int j = 0; j < nAttr.countValues(); j++) {
+            Object valObj = nAttr.getValue(j);
+            AttributeColumn col = nAttr.getColumnAt(j);
+            if (valObj == null || col == null) {
+                continue;
+            }
+            String name = col.getTitle();
+            if (name.equalsIgnoreCase("Id") || name.equalsIgnoreCase("Label")
+                    || name.equalsIgnoreCase("uid")) {
+                continue;
+            }
+            generator.writeStringField(name, valObj.toString());
+        }
+        generator.writeEndObject();
+        generator.writeEndObject();
+    }
+
+    private void writeEdge(JsonGenerator generator, Edge e)
+            throws IOException {
+        generator.writeStartObject();
+        generator.writeStringField("id", String.valueOf(e.getId()));
+        generator.writeStringField("label", "");
+        generator.writeStringField("source", e.getSource().getNodeData()
+                .getId());
+        generator.writeStringField("target", e.getTarget().getNodeData()
+                .getId());
+        generator.writeNumberField("size", e.getWeight());
+        generator.writeStringField("color", rgb(edgeColor(e)));
+        generator.writeObjectFieldStart("attributes");
+        generator.writeEndObject();
+        generator.writeEndObject();
+    }
+
+    /**
+     * node size as selected by nodeSizeBy: pagerank, exp(pagerank), one of
+     * the degree columns or the gephi node size
+     */
+    static float nodeSize(Node node, String nodeSizeBy) {
+        String degreeColumn = CsrDegree.sizeColumn(nodeSizeBy);
+        if (degreeColumn != null) {
+            Object degree = node.getAttributes().getValue(degreeColumn);
+            return degree != null ? ((Number) degree).floatValue() : node
+                    .getNodeData().getSize();
+        }
+        if (nodeSizeBy.equals("pr")) {
+            return (float) (double) (Double) node.getAttributes().getValue(
+                    "pagerank");
+        } else if (nodeSizeBy.equals("exp_pr")) {
+            return (float) Math.exp((Double) node.getAttributes().getValue(
+                    "pagerank"));
+        }
+        return node.getNodeData().getSize();
+    }
+
+    /** node color packed as 0xRRGGBB */
+    static int nodeColor(NodeData nd) {
+        return pack((int) (nd.r() * 255), (int) (nd.g() * 255),
+                (int) (nd.b() * 255));
+    }
+
+    /**
+     * edge color packed as 0xRRGGBB, the mix of its node colors if it has
+     * none, or NO_COLOR if the edge has no edge data
+     */
+    int edgeColor(Edge e) {
+        EdgeData ed = e.getEdgeData();
+        if (ed == null) {
+            return NO_COLOR;
+        }
+        if (ed.r() != -1 && ed.g() != -1 && ed.b() != -1) {
+            return pack((int) (ed.r() * 255), (int) (ed.g() * 255),
+                    (int) (ed.b() * 255));
+        }
+        NodeData nd = e.getSource().getNodeData();
+        Color source = new Color(nd.r(), nd.g(), nd.b());
+        nd = e.getTarget().getNodeData();
+        Color target = new Color(nd.r(), nd.g(), nd.b());
+        Color result = colorMixer.getColor(null, source, target);
+        return pack(result.getRed(), result.getGreen(), result.getBlue());
+    }
+
+    private static int pack(int r, int g, int b) {
+        return (r & 0xff) << 16 | (g & 0xff) << 8 | (b & 0xff);
+    }
+
+    /**
+     * @param color
+     *            0xRRGGBB or NO_COLOR
+     * @return the sigma color string of @color
+     */
+    public static String rgb(int color) {
+        if (color == NO_COLOR) {
+            return "";
+        }
+        return "rgb(" + (color >> 16 & 0xff) + "," + (color >> 8 & 0xff) + ","
+                + (color & 0xff) + ")";
+    }
+}
@@ -0,0 +1,44 @@
+package org.projectspinoza.gephikit.datasource;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Hands out dense int ids for tags in the order they are first seen.
+ */
+public class TagDictionary {
+
+	private final Map<String, Integer> ids;
+	private final List<String> tags;
+
+	public TagDictionary() {
+		ids = new HashMap<String, Integer>();
+		tags = new ArrayList<String>();
+	}
+
+	/**
+	 * returns the id of @tag, assigning the next free one if it is new
+	 *
+	 * @param tag
+	 * @return id
+	 */
+	public int intern(String tag) {
+		Integer id = ids.get(tag);
+		if (id == null) {
+			id = tags.size();
+			ids.put(tag, id);
+			tags.add(tag);
+		}
+		return id;
+	}
+
+	public String tag(int id) {
+		return tags.get(id);
+	}
+
+	public int size() {
+		return tags.size();
+	}
+}
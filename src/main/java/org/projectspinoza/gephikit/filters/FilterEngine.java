@@ -0,0 +1,202 @@
+package org.projectspinoza.gephikit.filters;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.gephi.data.attributes.api.AttributeColumn;
+import org.gephi.graph.api.Graph;
+import org.gephi.graph.api.Node;
+
+/**
+ * Removes the given percentage of nodes with the lowest value of a column,
+ * for any number of columns, in one pass. Filters apply in the order they
+ * were added and each one takes its percentage of the nodes the earlier
+ * ones left, as calling {@link GraphFilter#removePercentageNodes} once per
+ * filter does; nodes with equal values go in the order the graph lists
+ * them, as with its stable sort.
+ * <p>
+ * The columns are read into arrays once, the cut-off of every filter is
+ * found by selection instead of a full sort, and the nodes of all filters
+ * are removed together under one write lock.
+ */
+public class FilterEngine {
+
+	private final List<AttributeColumn> columns = new ArrayList<AttributeColumn>();
+	private final List<Double> fractions = new ArrayList<Double>();
+
+	/**
+	 * adds a filter
+	 *
+	 * @param column
+	 *            column to rank by; without one the first nodes of the graph
+	 *            are removed
+	 * @param fraction
+	 *            share of the remaining nodes to remove, between 0 and 1
+	 * @return this engine
+	 */
+	public FilterEngine removeLowest(AttributeColumn column, double fraction) {
+		columns.add(column);
+		fractions.add(fraction);
+		return this;
+	}
+
+	public boolean isEmpty() {
+		return columns.isEmpty();
+	}
+
+	/**
+	 * runs all filters on @graph; a missing value counts as 0
+	 *
+	 * @param graph
+	 * @return number of nodes removed
+	 */
+	public int apply(Graph graph) {
+		if (columns.isEmpty()) {
+			return 0;
+		}
+		Node[] nodes;
+		double[][] values = new double[columns.size()][];
+		graph.readLock();
+		try {
+			nodes = graph.getNodes().toArray();
+			for (int f = 0; f < values.length; f++) {
+				AttributeColumn column = columns.get(f);
+				if (column == null) {
+					continue;
+				}
+				int index = column.getIndex();
+				values[f] = new double[nodes.length];
+				for (int i = 0; i < nodes.length; i++) {
+					Object value = nodes[i].getAttributes().getValue(index);
+					values[f][i] = value != null ? ((Number) value)
+							.doubleValue() : 0;
+				}
+			}
+		} finally {
+			graph.readUnlock();
+		}
+		double[] shares = new double[fractions.size()];
+		for (int f = 0; f < shares.length; f++) {
+			shares[f] = fractions.get(f);
+		}
+		boolean[] removed = select(values, shares, nodes.length);
+		int count = 0;
+		graph.writeLock();
+		try {
+			for (int i = 0; i < nodes.length; i++) {
+				if (removed[i]) {
+					graph.removeNode(nodes[i]);
+					count++;
+				}
+			}
+		} finally {
+			graph.writeUnlock();
+		}
+		return count;
+	}
+
+	/**
+	 * @param values
+	 *            per filter the value of every node, or null to take nodes
+	 *            in order
+	 * @param fractions
+	 *            per filter the share of the remaining nodes to remove
+	 * @param n
+	 *            number of nodes
+	 * @return which nodes the filters remove
+	 */
+	static boolean[] select(double[][] values, double[] fractions, int n) {
+		boolean[] removed = new boolean[n];
+		// nodes left by the filters so far, in graph order
+		int[] alive = new int[n];
+		for (int i = 0; i < n; i++) {
+			alive[i] = i;
+		}
+		int size = n;
+		double[] scratch = new double[n];
+		for (int f = 0; f < fractions.length && size > 0; f++) {
+			int k = Math.min(size, (int) Math.ceil(size * fractions[f]));
+			if (k <= 0) {
+				continue;
+			}
+			double[] column = values[f];
+			// remove every value below the k-th smallest and, of the values
+			// equal to it, as many as are needed in graph order
+			double cutoff = 0;
+			int below = 0;
+			if (column != null && k < size) {
+				for (int j = 0; j < size; j++) {
+					scratch[j] = column[alive[j]];
+				}
+				cutoff = select(scratch, size, k - 1);
+				for (int j = 0; j < size; j++) {
+					if (column[alive[j]] < cutoff) {
+						below++;
+					}
+				}
+			}
+			int equal = k - below;
+			int left = 0;
+			for (int j = 0; j < size; j++) {
+				int i = alive[j];
+				boolean remove;
+				if (column == null || k == size) {
+					remove = j < k;
+				} else if (column[i] < cutoff) {
+					remove = true;
+				} else if (column[i] == cutoff && equal > 0) {
+					equal--;
+					remove = true;
+				} else {
+					remove = false;
+				}
+				if (remove) {
+					removed[i] = true;
+				} else {
+					alive[left++] = i;
+				}
+			}
+			size = left;
+		}
+		return removed;
+	}
+
+	/**
+	 * partially orders @values so that the k-th smallest of the first @size
+	 * is at @k (Hoare's find)
+	 *
+	 * @return the k-th smallest value, counting from 0
+	 */
+	static double select(double[] values, int size, int k) {
+		int from = 0;
+		int to = size - 1;
+		while (from < to) {
+			double pivot = values[(from + to) >>> 1];
+			int i = from;
+			int j = to;
+			while (i <= j) {
+				while (values[i] < pivot) {
+					i++;
+				}
+				while (values[j] > pivot) {
+					j--;
+				}
+				if (i <= j) {
+					double swap = values[i];
+					values[i] = values[j];
+					values[j] = swap;
+					i++;
+					j--;
+				}
+			}
+			if (k <= j) {
+				to = j;
+			} else if (k >= i) {
+				from = i;
+			} else {
+				break;
+			}
+		}
+		return values[k];
+	}
+}
@@ -38,4 +38,37 @@ public class FilterImplemintation {
 				neighborcountThreshHold / 100, columnName);
 	}
 
+	/**
+	 * adds the pageRankThreashhold filter to @engine
+	 */
+	public void applyPageRank(FilterEngine engine,
+			AttributeModel attributeModel, double pageRankThreashhold,
+			String columnName) {
+		engine.removeLowest(
+				attributeModel.getNodeTable().getColumn(columnName),
+				pageRankThreashhold / 100);
+	}
+
+	/**
+	 * adds the nodeCentrailityThreashhold filter to @engine
+	 */
+	public void applyNodeCentralityThreashhold(FilterEngine engine,
+			AttributeModel attributeModel, double nodeCentrailityThreashhold) {
+		engine.removeLowest(
+				attributeModel.getNodeTable().getColumn(
+						GraphDistance.BETWEENNESS),
+				nodeCentrailityThreashhold / 100);
+	}
+
+	/**
+	 * adds the neighborRangeThreashhold filter to @engine
+	 */
+	public void applyNeighborcountThreshHold(FilterEngine engine,
+			AttributeModel attributeModel, double neighborcountThreshHold,
+			String columnName) {
+		engine.removeLowest(
+				attributeModel.getNodeTable().getColumn(columnName),
+				neighborcountThreshHold / 100);
+	}
+
 }
@@ -45,14 +45,12 @@ public class GraphFilter {
 		return filterController.filter(query);
 	}
 
+	/**
+	 * removes the @threshhold share of nodes with the lowest @column value;
+	 * use a {@link FilterEngine} to apply several columns in one pass
+	 */
 	public Graph removePercentageNodes(Graph graph,	AttributeColumn column, double threshhold, String columnValue) {
-		int nodestoberemoved = 0;
-		Node[] nodesN = sortgraphBasedonColoumnValue(graph, column);
-
-		nodestoberemoved = (int) Math.ceil(nodesN.length * threshhold);
-		for (int i = 0; i < nodestoberemoved; i++) {
-			graph.removeNode(nodesN[i]);
-		}
+		new FilterEngine().removeLowest(column, threshhold).apply(graph);
 		return graph;
 	}
 
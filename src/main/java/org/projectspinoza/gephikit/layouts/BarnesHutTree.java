@@ -0,0 +1,237 @@
+package org.projectspinoza.gephikit.layouts;
+
+import java.util.Arrays;
+
+/**
+ * Quadtree over node positions for Barnes-Hut repulsion. Cells live in
+ * parallel arrays indexed by cell id; the four children of a cell are stored
+ * next to each other starting at firstChild. The tree is rebuilt every
+ * iteration and is read only while forces are computed, so several threads
+ * can query it at once.
+ */
+class BarnesHutTree {
+
+	/** cells this deep keep all their bodies, so coincident nodes terminate */
+	static final int MAX_DEPTH = 32;
+
+	/** cells are not split below this many ulps of the coordinates */
+	private static final float MIN_CELL_ULPS = 64;
+
+	private static final int LEAF = -1;
+
+	private float[] mass;
+	private float[] massX;
+	private float[] massY;
+	private float[] minX;
+	private float[] minY;
+	private float[] size;
+	private int[] firstChild;
+	private int[] body;
+	private int[] count;
+	private int cells;
+	/** leaf cell of every node */
+	private int[] leafOf;
+	private float minCellSize;
+
+	BarnesHutTree(int expectedNodes) {
+		allocate(Math.max(16, expectedNodes * 2));
+	}
+
+	/**
+	 * rebuilds the tree for the first @n nodes
+	 * 
+	 * @param x
+	 * @param y
+	 * @param nodeMass
+	 * @param n
+	 */
+	void build(float[] x, float[] y, float[] nodeMass, int n) {
+		float left = Float.MAX_VALUE, bottom = Float.MAX_VALUE;
+		float right = -Float.MAX_VALUE, top = -Float.MAX_VALUE;
+		for (int i = 0; i < n; i++) {
+			left = Math.min(left, x[i]);
+			right = Math.max(right, x[i]);
+			bottom = Math.min(bottom, y[i]);
+			top = Math.max(top, y[i]);
+		}
+		if (leafOf == null || leafOf.length < n) {
+			leafOf = new int[n];
+		}
+		minCellSize = MIN_CELL_ULPS
+				* Math.ulp(Math.max(Math.max(Math.abs(left), Math.abs(right)),
+						Math.max(Math.abs(bottom), Math.abs(top))));
+		cells = 0;
+		newCell(left, bottom, Math.max(right - left, top - bottom) * 1.0001f
+				+ Float.MIN_NORMAL);
+		for (int i = 0; i < n; i++) {
+			insert(i, x, y, nodeMass);
+		}
+	}
+
+	/**
+	 * adds the repulsion of all other nodes on node @i to fx[i] and fy[i]
+	 * 
+	 * @param stack
+	 *            scratch space of at least {@link #stackSize()} entries
+	 */
+	void repulsion(int i, float[] x, float[] y, float[] nodeMass,
+			float theta, float scalingRatio, float[] fx, float[] fy,
+			int[] stack) {
+		float xi = x[i], yi = y[i];
+		float factor = scalingRatio * nodeMass[i];
+		float forceX = 0, forceY = 0;
+		int top = 0;
+		stack[top++] = 0;
+		while (top > 0) {
+			int cell = stack[--top];
+			if (count[cell] == 0) {
+				continue;
+			}
+			float cellMass = mass[cell];
+			float dx, dy;
+			if (firstChild[cell] == LEAF && count[cell] == 1) {
+				if (body[cell] == i) {
+					continue;
+				}
+				dx = xi - x[body[cell]];
+				dy = yi - y[body[cell]];
+			} else if (firstChild[cell] == LEAF) {
+				if (leafOf[i] == cell) {
+					// nodes stacked on node i at the depth limit
+					continue;
+				}
+				dx = xi - massX[cell] / cellMass;
+				dy = yi - massY[cell] / cellMass;
+			} else {
+				dx = xi - massX[cell] / cellMass;
+				dy = yi - massY[cell] / cellMass;
+				if (contains(cell, xi, yi)
+						|| size[cell] * size[cell] >= theta * theta
+								* (dx * dx + dy * dy)) {
+					int child = firstChild[cell];
+					stack[top++] = child;
+					stack[top++] = child + 1;
+					stack[top++] = child + 2;
+					stack[top++] = child + 3;
+					continue;
+				}
+			}
+			float distance2 = dx * dx + dy * dy;
+			if (cellMass > 0 && distance2 > 0) {
+				float force = factor * cellMass / distance2;
+				forceX += dx * force;
+				forceY += dy * force;
+			}
+		}
+		fx[i] += forceX;
+		fy[i] += forceY;
+	}
+
+	static int stackSize() {
+		return 3 * MAX_DEPTH + 4;
+	}
+
+	private void insert(int node, float[] x, float[] y, float[] nodeMass) {
+		int cell = 0;
+		int depth = 0;
+		while (true) {
+			if (firstChild[cell] != LEAF) {
+				accumulate(cell, x[node], y[node], nodeMass[node]);
+				cell = firstChild[cell] + quadrant(cell, x[node], y[node]);
+				depth++;
+			} else if (count[cell] == 0 || depth >= MAX_DEPTH
+					|| size[cell] < minCellSize) {
+				if (count[cell] == 0) {
+					body[cell] = node;
+				}
+				accumulate(cell, x[node], y[node], nodeMass[node]);
+				leafOf[node] = cell;
+				return;
+			} else {
+				split(cell, x, y);
+			}
+		}
+	}
+
+	/** turns a leaf holding one body into an internal cell */
+	private void split(int cell, float[] x, float[] y) {
+		float half = size[cell] / 2;
+		int child = cells;
+		newCell(minX[cell], minY[cell], half);
+		newCell(minX[cell] + half, minY[cell], half);
+		newCell(minX[cell], minY[cell] + half, half);
+		newCell(minX[cell] + half, minY[cell] + half, half);
+		firstChild[cell] = child;
+
+		int resident = body[cell];
+		int target = child + quadrant(cell, x[resident], y[resident]);
+		body[target] = resident;
+		mass[target] = mass[cell];
+		massX[target] = massX[cell];
+		massY[target] = massY[cell];
+		count[target] = count[cell];
+		leafOf[resident] = target;
+		body[cell] = LEAF;
+	}
+
+	private int quadrant(int cell, float px, float py) {
+		float half = size[cell] / 2;
+		int quadrant = px >= minX[cell] + half ? 1 : 0;
+		if (py >= minY[cell] + half) {
+			quadrant += 2;
+		}
+		return quadrant;
+	}
+
+	private boolean contains(int cell, float px, float py) {
+		return px >= minX[cell] && px < minX[cell] + size[cell]
+				&& py >= minY[cell] && py < minY[cell] + size[cell];
+	}
+
+	private void accumulate(int cell, float px, float py, float nodeMass) {
+		mass[cell] += nodeMass;
+		massX[cell] += px * nodeMass;
+		massY[cell] += py * nodeMass;
+		count[cell]++;
+	}
+
+	private void newCell(float left, float bottom, float width) {
+		if (cells == mass.length) {
+			allocate(cells * 2);
+		}
+		minX[cells] = left;
+		minY[cells] = bottom;
+		size[cells] = width;
+		mass[cells] = 0;
+		massX[cells] = 0;
+		massY[cells] = 0;
+		count[cells] = 0;
+		body[cells] = LEAF;
+		firstChild[cells] = LEAF;
+		cells++;
+	}
+
+	private void allocate(int capacity) {
+		if (mass == null) {
+			mass = new float[capacity];
+			massX = new float[capacity];
+			massY = new float[capacity];
+			minX = new float[capacity];
+			minY = new float[capacity];
+			size = new float[capacity];
+			firstChild = new int[capacity];
+			body = new int[capacity];
+			count = new int[capacity];
+			return;
+		}
+		mass = Arrays.copyOf(mass, capacity);
+		massX = Arrays.copyOf(massX, capacity);
+		massY = Arrays.copyOf(massY, capacity);
+		minX = Arrays.copyOf(minX, capacity);
+		minY = Arrays.copyOf(minY, capacity);
+		size = Arrays.copyOf(size, capacity);
+		firstChild = Arrays.copyOf(firstChild, capacity);
+		body = Arrays.copyOf(body, capacity);
+		count = Arrays.copyOf(count, capacity);
+	}
+}
@@ -0,0 +1,86 @@
+package org.projectspinoza.gephikit.layouts;
+
+public class ForceAtlas2 {
+	String name;
+	int iteration = 100;
+	double scalingRatio = 10;
+	double gravity = 1;
+	boolean strongGravityMode;
+	boolean linLogMode;
+	double edgeWeightInfluence = 1;
+	double jitterTolerance = 1;
+	double barnesHutTheta = 1.2;
+
+	public String getName() {
+		return name;
+	}
+
+	public void setName(String name) {
+		this.name = name;
+	}
+
+	public int getIteration() {
+		return iteration;
+	}
+
+	public void setIteration(int iteration) {
+		this.iteration = iteration;
+	}
+
+	public double getScalingRatio() {
+		return scalingRatio;
+	}
+
+	public void setScalingRatio(double scalingRatio) {
+		this.scalingRatio = scalingRatio;
+	}
+
+	public double getGravity() {
+		return gravity;
+	}
+
+	public void setGravity(double gravity) {
+		this.gravity = gravity;
+	}
+
+	public boolean isStrongGravityMode() {
+		return strongGravityMode;
+	}
+
+	public void setStrongGravityMode(boolean strongGravityMode) {
+		this.strongGravityMode = strongGravityMode;
+	}
+
+	public boolean isLinLogMode() {
+		return linLogMode;
+	}
+
+	public void setLinLogMode(boolean linLogMode) {
+		this.linLogMode = linLogMode;
+	}
+
+	public double getEdgeWeightInfluence() {
+		return edgeWeightInfluence;
+	}
+
+	public void setEdgeWeightInfluence(double edgeWeightInfluence) {
+		this.edgeWeightInfluence = edgeWeightInfluence;
+	}
+
+	public double getJitterTolerance() {
+		return jitterTolerance;
+	}
+
+	public void setJitterTolerance(double jitterTolerance) {
+		this.jitterTolerance = jitterTolerance;
+	}
+
+	public double getBarnesHutTheta() {
+		return barnesHutTheta;
+	}
+
+	public void setBarnesHutTheta(double barnesHutTheta) {
+		this.barnesHutTheta = barnesHutTheta;
+	}
+
+}
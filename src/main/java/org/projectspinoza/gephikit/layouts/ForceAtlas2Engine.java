@@ -0,0 +1,345 @@
+package org.projectspinoza.gephikit.layouts;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+import org.gephi.graph.api.Edge;
+import org.gephi.graph.api.Graph;
+import org.gephi.graph.api.GraphModel;
+import org.gephi.graph.api.Node;
+import org.gephi.graph.api.NodeData;
+import org.projectspinoza.gephikit.configuration.Configuration;
+
+/**
+ * ForceAtlas2 (Jacomy et al.) with Barnes-Hut repulsion. Positions, masses
+ * and forces are copied into flat arrays, repulsion is computed in parallel
+ * over node ranges, and the final positions are written back to the node
+ * data once all iterations are done.
+ */
+public class ForceAtlas2Engine implements LayoutEngine {
+
+	public static final String NAME = "ForceAtlas2";
+
+	private static final int MIN_RANGE_SIZE = 512;
+	private static final float MIN_SPEED_EFFICIENCY = 0.05f;
+	private static final float MAX_SPEED_RISE = 0.5f;
+
+	@Override
+	public int iterations(Configuration configuration) {
+		return settings(configuration).getIteration();
+	}
+
+	@Override
+	public void apply(GraphModel graphModel, Configuration configuration,
+			LayoutRun run) {
+		ForceAtlas2 settings = settings(configuration);
+		Graph graph = graphModel.getGraphVisible();
+		Node[] nodes = graph.getNodes().toArray();
+		if (nodes.length == 0) {
+			run.converged();
+			return;
+		}
+		State state = new State(graph, nodes);
+		run(state, settings, configuration.getParallelism(), run);
+		for (int i = 0; i < nodes.length; i++) {
+			NodeData nodeData = nodes[i].getNodeData();
+			if (!nodeData.isFixed()) {
+				nodeData.setX(state.x[i]);
+				nodeData.setY(state.y[i]);
+			}
+		}
+	}
+
+	private static ForceAtlas2 settings(Configuration configuration) {
+		ForceAtlas2 settings = configuration.getLayout().getForceAtlas2();
+		return settings != null ? settings : new ForceAtlas2();
+	}
+
+	/**
+	 * iterates on @state as long as @run proceeds
+	 * 
+	 * @param state
+	 * @param settings
+	 * @param parallelism
+	 * @param run
+	 */
+	void run(State state, ForceAtlas2 settings, int parallelism, LayoutRun run) {
+		BarnesHutTree tree = new BarnesHutTree(state.n);
+		ForkJoinPool pool = parallelism > 1 ? new ForkJoinPool(parallelism)
+				: null;
+		try {
+			float speed = 1f;
+			float speedEfficiency = 1f;
+			while (run.proceed()) {
+				state.swapForces();
+				tree.build(state.x, state.y, state.mass, state.n);
+				Repulsion repulsion = new Repulsion(state, tree,
+						(float) settings.getBarnesHutTheta(),
+						(float) settings.getScalingRatio(), 0, state.n);
+				if (pool != null) {
+					pool.invoke(repulsion);
+				} else {
+					repulsion.repel();
+				}
+				gravity(state, settings);
+				attraction(state, settings);
+
+				// adaptive speed, as in gephi's ForceAtlas2
+				float totalSwinging = 0;
+				float totalTraction = 0;
+				for (int i = 0; i < state.n; i++) {
+					totalSwinging += state.mass[i] * state.swinging(i);
+					totalTraction += state.mass[i] * state.traction(i);
+				}
+				if (totalSwinging > 0) {
+					float jitterTolerance = jitterTolerance(settings, state.n,
+							totalTraction);
+					if (totalSwinging / totalTraction > 2f) {
+						if (speedEfficiency > MIN_SPEED_EFFICIENCY) {
+							speedEfficiency *= 0.5f;
+						}
+						jitterTolerance = Math.max(jitterTolerance,
+								(float) settings.getJitterTolerance());
+					}
+					float targetSpeed = jitterTolerance * speedEfficiency
+							* totalTraction / totalSwinging;
+					if (totalSwinging > jitterTolerance * totalTraction) {
+						if (speedEfficiency > MIN_SPEED_EFFICIENCY) {
+							speedEfficiency *= 0.7f;
+						}
+					} else if (speed < 1000) {
+						speedEfficiency *= 1.3f;
+					}
+					speed += Math.min(targetSpeed - speed, MAX_SPEED_RISE
+							* speed);
+				}
+				double energy = 0;
+				double moved = 0;
+				float left = Float.MAX_VALUE, bottom = Float.MAX_VALUE;
+				float right = -Float.MAX_VALUE, top = -Float.MAX_VALUE;
+				for (int i = 0; i < state.n; i++) {
+					if (!state.fixed[i]) {
+						float swinging = state.mass[i] * state.swinging(i);
+						float factor = speed
+								/ (1f + (float) Math.sqrt(speed * swinging));
+						float dx = state.fx[i] * factor;
+						float dy = state.fy[i] * factor;
+						state.x[i] += dx;
+						state.y[i] += dy;
+						double squared = (double) dx * dx + (double) dy * dy;
+						energy += squared;
+						moved += Math.sqrt(squared);
+					}
+					left = Math.min(left, state.x[i]);
+					right = Math.max(right, state.x[i]);
+					bottom = Math.min(bottom, state.y[i]);
+					top = Math.max(top, state.y[i]);
+				}
+				run.iterationDone(energy, moved / state.n,
+						Math.max(right - left, top - bottom));
+			}
+		} finally {
+			if (pool != null) {
+				pool.shutdown();
+			}
+		}
+	}
+
+	private static float jitterTolerance(ForceAtlas2 settings, int n,
+			float totalTraction) {
+		float estimated = 0.05f * (float) Math.sqrt(n);
+		float min = (float) Math.sqrt(estimated);
+		float max = 10f;
+		return (float) settings.getJitterTolerance()
+				* Math.max(min, Math.min(max, estimated * totalTraction
+						/ ((float) n * n)));
+	}
+
+	private static void gravity(State state, ForceAtlas2 settings) {
+		// gephi divides gravity by the scaling ratio and multiplies it back,
+		// so gravity does not depend on the scaling ratio
+		float coefficient = (float) settings.getGravity();
+		for (int i = 0; i < state.n; i++) {
+			float distance = (float) Math.sqrt(state.x[i] * state.x[i]
+					+ state.y[i] * state.y[i]);
+			float factor;
+			if (settings.isStrongGravityMode()) {
+				factor = coefficient * state.mass[i];
+			} else if (distance > 0) {
+				factor = coefficient * state.mass[i] / distance;
+			} else {
+				continue;
+			}
+			state.fx[i] -= state.x[i] * factor;
+			state.fy[i] -= state.y[i] * factor;
+		}
+	}
+
+	private static void attraction(State state, ForceAtlas2 settings) {
+		double influence = settings.getEdgeWeightInfluence();
+		for (int e = 0; e < state.edges; e++) {
+			int source = state.source[e];
+			int target = state.target[e];
+			float weight = state.weight[e];
+			if (influence == 0) {
+				weight = 1;
+			} else if (influence != 1) {
+				weight = (float) Math.pow(weight, influence);
+			}
+			float dx = state.x[source] - state.x[target];
+			float dy = state.y[source] - state.y[target];
+			float factor = -weight;
+			if (settings.isLinLogMode()) {
+				float distance = (float) Math.sqrt(dx * dx + dy * dy);
+				if (distance <= 0) {
+					continue;
+				}
+				factor *= (float) Math.log(1 + distance) / distance;
+			}
+			state.fx[source] += dx * factor;
+			state.fy[source] += dy * factor;
+			state.fx[target] -= dx * factor;
+			state.fy[target] -= dy * factor;
+		}
+	}
+
+	/** node and edge data of a graph in flat arrays */
+	static class State {
+		final int n;
+		final float[] x;
+		final float[] y;
+		final float[] mass;
+		final boolean[] fixed;
+		float[] fx;
+		float[] fy;
+		float[] oldFx;
+		float[] oldFy;
+		final int edges;
+		final int[] source;
+		final int[] target;
+		final float[] weight;
+
+		State(Graph graph, Node[] nodes) {
+			n = nodes.length;
+			x = new float[n];
+			y = new float[n];
+			mass = new float[n];
+			fixed = new boolean[n];
+			fx = new float[n];
+			fy = new float[n];
+			oldFx = new float[n];
+			oldFy = new float[n];
+			Map<Integer, Integer> index = new HashMap<Integer, Integer>(n * 2);
+			for (int i = 0; i < n; i++) {
+				NodeData nodeData = nodes[i].getNodeData();
+				index.put(nodes[i].getId(), i);
+				x[i] = nodeData.x();
+				y[i] = nodeData.y();
+				fixed[i] = nodeData.isFixed();
+				mass[i] = graph.getDegree(nodes[i]) + 1;
+			}
+			Edge[] graphEdges = graph.getEdges().toArray();
+			source = new int[graphEdges.length];
+			target = new int[graphEdges.length];
+			weight = new float[graphEdges.length];
+			int count = 0;
+			for (Edge edge : graphEdges) {
+				if (edge.isSelfLoop()) {
+					continue;
+				}
+				source[count] = index.get(edge.getSource().getId());
+				target[count] = index.get(edge.getTarget().getId());
+				weight[count] = edge.getWeight();
+				count++;
+			}
+			edges = count;
+			spreadIfCollapsed();
+		}
+
+		/**
+		 * nodes that all share one position get no forces apart from
+		 * gravity, so they are put on a circle first
+		 */
+		private void spreadIfCollapsed() {
+			for (int i = 1; i < n; i++) {
+				if (x[i] != x[0] || y[i] != y[0]) {
+					return;
+				}
+			}
+			float radius = 10f * (float) Math.sqrt(n);
+			for (int i = 0; i < n; i++) {
+				double angle = 2 * Math.PI * i / n;
+				x[i] += radius * (float) Math.cos(angle);
+				y[i] += radius * (float) Math.sin(angle);
+			}
+		}
+
+		/** keeps the last forces for the speed estimate and clears the new */
+		void swapForces() {
+			float[] swap = oldFx;
+			oldFx = fx;
+			fx = swap;
+			swap = oldFy;
+			oldFy = fy;
+			fy = swap;
+			Arrays.fill(fx, 0f);
+			Arrays.fill(fy, 0f);
+		}
+
+		float swinging(int i) {
+			float dx = oldFx[i] - fx[i];
+			float dy = oldFy[i] - fy[i];
+			return (float) Math.sqrt(dx * dx + dy * dy);
+		}
+
+		float traction(int i) {
+			float dx = oldFx[i] + fx[i];
+			float dy = oldFy[i] + fy[i];
+			return 0.5f * (float) Math.sqrt(dx * dx + dy * dy);
+		}
+	}
+
+	/** Barnes-Hut repulsion of a range of nodes */
+	@SuppressWarnings("serial")
+	private static class Repulsion extends RecursiveAction {
+		private final State state;
+		private final BarnesHutTree tree;
+		private final float theta;
+		private final float scalingRatio;
+		private final int from;
+		private final int to;
+
+		Repulsion(State state, BarnesHutTree tree, float theta,
+				float scalingRatio, int from, int to) {
+			this.state = state;
+			this.tree = tree;
+			this.theta = theta;
+			this.scalingRatio = scalingRatio;
+			this.from = from;
+			this.to = to;
+		}
+
+		@Override
+		protected void compute() {
+			if (to - from <= MIN_RANGE_SIZE) {
+				repel();
+				return;
+			}
+			int middle = (from + to) >>> 1;
+			invokeAll(new Repulsion(state, tree, theta, scalingRatio, from,
+					middle), new Repulsion(state, tree, theta, scalingRatio,
+					middle, to));
+		}
+
+		void repel() {
+			int[] stack = new int[BarnesHutTree.stackSize()];
+			for (int i = from; i < to; i++) {
+				tree.repulsion(i, state.x, state.y, state.mass, theta,
+						scalingRatio, state.fx, state.fy, stack);
+			}
+		}
+	}
+}
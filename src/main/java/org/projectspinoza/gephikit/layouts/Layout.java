@@ -3,6 +3,9 @@ package org.projectspinoza.gephikit.layouts;
 public class Layout {
 	private YifanHuLayout yiFanHuLayout;
 	private FruchtermanReingold fruchtermanReingold;
+	private ForceAtlas2 forceAtlas2;
+	private WarmStart warmStart;
+	private LayoutBudget budget;
 
 	public YifanHuLayout getYiFanHuLayout() {
 		return yiFanHuLayout;
@@ -19,5 +22,29 @@ public class Layout {
 	public void setFruchtermanReingold(FruchtermanReingold fruchtermanReingold) {
 		this.fruchtermanReingold = fruchtermanReingold;
 	}
+
+	public ForceAtlas2 getForceAtlas2() {
+		return forceAtlas2;
+	}
+
+	public void setForceAtlas2(ForceAtlas2 forceAtlas2) {
+		this.forceAtlas2 = forceAtlas2;
+	}
+
+	public WarmStart getWarmStart() {
+		return warmStart;
+	}
+
+	public void setWarmStart(WarmStart warmStart) {
+		this.warmStart = warmStart;
+	}
+
+	public LayoutBudget getBudget() {
+		return budget;
+	}
+
+	public void setBudget(LayoutBudget budget) {
+		this.budget = budget;
+	}
    
 }
@@ -0,0 +1,23 @@
+package org.projectspinoza.gephikit.layouts;
+
+public class LayoutBudget {
+	long timeBudgetMillis;
+	double convergenceThreshold;
+
+	public long getTimeBudgetMillis() {
+		return timeBudgetMillis;
+	}
+
+	public void setTimeBudgetMillis(long timeBudgetMillis) {
+		this.timeBudgetMillis = timeBudgetMillis;
+	}
+
+	public double getConvergenceThreshold() {
+		return convergenceThreshold;
+	}
+
+	public void setConvergenceThreshold(double convergenceThreshold) {
+		this.convergenceThreshold = convergenceThreshold;
+	}
+
+}
@@ -0,0 +1,28 @@
+package org.projectspinoza.gephikit.layouts;
+
+import org.gephi.graph.api.GraphModel;
+import org.projectspinoza.gephikit.configuration.Configuration;
+
+/**
+ * A layout that can be selected by name through selectedLayout. Engines are
+ * registered with {@link LayoutManager#register(String, LayoutEngine)} and
+ * read their settings from the request configuration.
+ */
+public interface LayoutEngine {
+
+	/**
+	 * @param configuration
+	 * @return the number of iterations configured for a layout from scratch
+	 */
+	int iterations(Configuration configuration);
+
+	/**
+	 * lays out the visible graph of @graphModel, starting from the current
+	 * node positions, for as long as @run lets it proceed
+	 * 
+	 * @param graphModel
+	 * @param configuration
+	 * @param run
+	 */
+	void apply(GraphModel graphModel, Configuration configuration, LayoutRun run);
+}
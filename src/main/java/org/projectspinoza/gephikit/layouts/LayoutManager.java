@@ -1,6 +1,16 @@
 package org.projectspinoza.gephikit.layouts;
 
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+import org.gephi.graph.api.Graph;
 import org.gephi.graph.api.GraphModel;
+import org.gephi.graph.api.Node;
 import org.gephi.layout.plugin.force.StepDisplacement;
 import org.gephi.layout.plugin.force.yifanHu.YifanHuLayout;
 import org.gephi.layout.plugin.fruchterman.FruchtermanReingold;
@@ -9,9 +19,62 @@ import org.projectspinoza.gephikit.configuration.Configuration;
 
 public class LayoutManager {
 
+	private LayoutRun run;
+
+	private static final Map<String, LayoutEngine> ENGINES = new ConcurrentHashMap<String, LayoutEngine>();
+
+	static {
+		register("YifanHuLayout", new LayoutEngine() {
+			public int iterations(Configuration configuration) {
+				return configuration.getLayout().getYiFanHuLayout()
+						.getIteration();
+			}
+
+			public void apply(GraphModel graphModel,
+					Configuration configuration, LayoutRun run) {
+				YiFanLayOut(graphModel, configuration.getLayout()
+						.getYiFanHuLayout().getDistance(), run);
+			}
+		});
+		register("FruchtermanReingold", new LayoutEngine() {
+			public int iterations(Configuration configuration) {
+				return configuration.getLayout().getFruchtermanReingold()
+						.getIteration();
+			}
+
+			public void apply(GraphModel graphModel,
+					Configuration configuration, LayoutRun run) {
+				org.projectspinoza.gephikit.layouts.FruchtermanReingold settings = configuration
+						.getLayout().getFruchtermanReingold();
+				FruchtermanReingold(graphModel, settings.getArea(),
+						settings.getSpeed(), settings.getGravity(), run);
+			}
+		});
+		register(ForceAtlas2Engine.NAME, new ForceAtlas2Engine());
+	}
+
 	public LayoutManager(String layoutName, GraphModel graphModel,
 			Configuration configuration) {
-		initProcess(layoutName, graphModel, configuration);
+		this(layoutName, graphModel, configuration, null);
+	}
+
+	/**
+	 * @param positions
+	 *            positions of earlier layouts to warm start from, or null
+	 */
+	public LayoutManager(String layoutName, GraphModel graphModel,
+			Configuration configuration, LayoutPositionStore positions) {
+		initProcess(layoutName, graphModel, configuration, positions);
+	}
+
+	/**
+	 * makes a layout selectable by @name
+	 * 
+	 * @param name
+	 * @param engine
+	 */
+	public static void register(String name, LayoutEngine engine) {
+		ENGINES.put(name, engine);
 	}
 
 	/**
@@ -23,25 +86,117 @@ public class LayoutManager {
 	 */
 	public void initProcess(String layoutName, GraphModel graphModel,
 			Configuration configuration) {
-		if (layoutName.toString().trim().equals("YifanHuLayout")) {
-
-			YiFanLayOut(graphModel, configuration.getLayout()
-					.getYiFanHuLayout().getDistance(), configuration
-					.getLayout().getYiFanHuLayout().getIteration());
-			
-		} else if (layoutName.toString().trim().equals("FruchtermanReingold")) {
-			float area = configuration.getLayout().getFruchtermanReingold()
-					.getArea();
-			double speed = configuration.getLayout().getFruchtermanReingold()
-					.getSpeed();
-			double gravity = configuration.getLayout().getFruchtermanReingold()
-					.getGravity();
-			int iteration = configuration.getLayout().getFruchtermanReingold()
-					.getIteration();
-			FruchtermanReingold(graphModel, area, speed, gravity, iteration);
+		initProcess(layoutName, graphModel, configuration, null);
+	}
+
+	/**
+	 * applies the layout; with a position store, nodes known from the last
+	 * layout of the same query keep their positions, new nodes are placed
+	 * next to their neighbours and only a part of the iterations is run.
+	 * The run stops early on convergence or when the time budget of the
+	 * layout configuration is used up.
+	 * 
+	 * @param layoutName
+	 * @param graphModel
+	 * @param configuration
+	 * @param positions
+	 */
+	public void initProcess(String layoutName, GraphModel graphModel,
+			Configuration configuration, LayoutPositionStore positions) {
+		LayoutEngine engine = ENGINES.get(layoutName.toString().trim());
+		if (engine == null) {
+			return;
+		}
+		int iterations = engine.iterations(configuration);
+		String key = null;
+		if (positions != null) {
+			key = LayoutPositionStore.key(layoutName.trim(), configuration);
+			Map<String, float[]> previous = positions.get(key);
+			if (previous != null && !previous.isEmpty()) {
+				double newNodes = seed(graphModel.getGraphVisible(), previous);
+				double ratio = Math.max(newNodes, configuration.getLayout()
+						.getWarmStart().getIterationRatio());
+				iterations = Math.max(1,
+						(int) Math.min(iterations, Math.ceil(iterations * ratio)));
+			}
+		}
+		run = new LayoutRun(layoutName.trim(), iterations, configuration
+				.getLayout().getBudget());
+		engine.apply(graphModel, configuration, run);
+		if (key != null) {
+			positions.put(key, graphModel.getGraphVisible());
 		}
 	}
 
+	/**
+	 * moves nodes to their previous positions; a new node is put at the mean
+	 * position of its already placed neighbours, or somewhere inside the
+	 * previous picture if it has none
+	 * 
+	 * @param graph
+	 * @param previous
+	 * @return the fraction of nodes that were not in the previous layout
+	 */
+	static double seed(Graph graph, Map<String, float[]> previous) {
+		Node[] nodes = graph.getNodes().toArray();
+		if (nodes.length == 0) {
+			return 0;
+		}
+		float left = Float.MAX_VALUE, bottom = Float.MAX_VALUE;
+		float right = -Float.MAX_VALUE, top = -Float.MAX_VALUE;
+		for (float[] position : previous.values()) {
+			left = Math.min(left, position[0]);
+			right = Math.max(right, position[0]);
+			bottom = Math.min(bottom, position[1]);
+			top = Math.max(top, position[1]);
+		}
+		float jitter = Math.max(right - left, top - bottom) * 0.01f + 1f;
+
+		Set<Node> placed = new HashSet<Node>();
+		List<Node> unplaced = new ArrayList<Node>();
+		for (Node node : nodes) {
+			float[] position = previous.get(node.getNodeData().getId());
+			if (position != null) {
+				node.getNodeData().setX(position[0]);
+				node.getNodeData().setY(position[1]);
+				placed.add(node);
+			} else {
+				unplaced.add(node);
+			}
+		}
+		int newNodes = unplaced.size();
+		for (Node node : unplaced) {
+			Random random = new Random(node.getNodeData().getId().hashCode());
+			float x = 0, y = 0;
+			int neighbours = 0;
+			for (Node neighbour : graph.getNeighbors(node)) {
+				if (placed.contains(neighbour)) {
+					x += neighbour.getNodeData().x();
+					y += neighbour.getNodeData().y();
+					neighbours++;
+				}
+			}
+			if (neighbours > 0) {
+				x = x / neighbours + (random.nextFloat() - 0.5f) * jitter;
+				y = y / neighbours + (random.nextFloat() - 0.5f) * jitter;
+			} else {
+				x = left + random.nextFloat() * (right - left);
+				y = bottom + random.nextFloat() * (top - bottom);
+			}
+			node.getNodeData().setX(x);
+			node.getNodeData().setY(y);
+			placed.add(node);
+		}
+		return (double) newNodes / nodes.length;
+	}
+
+	/**
+	 * @return progress of the last layout run, or null if no layout ran
+	 */
+	public LayoutRun getRun() {
+		return run;
+	}
+
 	/**
 	 * Applying YiFanLayOut
 	 * 
@@ -50,7 +205,20 @@ public class LayoutManager {
 	 * @param iteration
 	 */
 
-	public void YiFanLayOut(GraphModel graphModel, int distance, int iteration) {
+	public static void YiFanLayOut(GraphModel graphModel, int distance, int iteration) {
+		YiFanLayOut(graphModel, distance, new LayoutRun("YifanHuLayout",
+				iteration, null));
+	}
+
+	/**
+	 * Applying YiFanLayOut for as long as @run proceeds
+	 * 
+	 * @param graphModel
+	 * @param distance
+	 * @param run
+	 */
+	public static void YiFanLayOut(GraphModel graphModel, int distance,
+			LayoutRun run) {
 		
 		YifanHuLayout layout = new YifanHuLayout(null, new StepDisplacement(1f));
 
@@ -59,9 +227,7 @@ public class LayoutManager {
 		layout.setOptimalDistance((float) distance);
 		layout.initAlgo();
 
-		for (int i = 0; i < iteration && layout.canAlgo(); i++) {
-			layout.goAlgo();
-		}
+		iterate(layout, graphModel, run);
 
 		layout.endAlgo();
 		
@@ -74,8 +240,20 @@ public class LayoutManager {
 	 * @param conf
 	 */
 
-	public void FruchtermanReingold(GraphModel graphModel, float area,
+	public static void FruchtermanReingold(GraphModel graphModel, float area,
 			double speed, double gravity, int iteration) {
+		FruchtermanReingold(graphModel, area, speed, gravity, new LayoutRun(
+				"FruchtermanReingold", iteration, null));
+	}
+
+	/**
+	 * Applying FruchtermanReingold for as long as @run proceeds
+	 * 
+	 * @param graphModel
+	 * @param run
+	 */
+	public static void FruchtermanReingold(GraphModel graphModel, float area,
+			double speed, double gravity, LayoutRun run) {
 		FruchtermanReingold layout = new FruchtermanReingold(null);
 		layout.setGraphModel(graphModel);
 		layout.resetPropertiesValues();
@@ -86,10 +264,21 @@ public class LayoutManager {
 
 		layout.initAlgo();
 
-		for (int i = 0; i < iteration && layout.canAlgo(); i++) {
-			layout.goAlgo();
-		}
+		iterate(layout, graphModel, run);
 
 		layout.endAlgo();
 	}
+
+	private static void iterate(org.gephi.layout.spi.Layout layout,
+			GraphModel graphModel, LayoutRun run) {
+		run.track(graphModel.getGraphVisible().getNodes().toArray());
+		while (run.proceed()) {
+			if (!layout.canAlgo()) {
+				run.converged();
+				break;
+			}
+			layout.goAlgo();
+			run.iterationDone();
+		}
+	}
 }
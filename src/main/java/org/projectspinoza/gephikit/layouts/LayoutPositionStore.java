@@ -0,0 +1,95 @@
+package org.projectspinoza.gephikit.layouts;
+
+import java.io.File;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import org.gephi.graph.api.Graph;
+import org.gephi.graph.api.Node;
+import org.gephi.graph.api.NodeData;
+import org.projectspinoza.gephikit.configuration.Configuration;
+import org.projectspinoza.gephikit.datasource.ElasticSearchDocuments;
+
+/**
+ * Node positions of the last layout of each query, so a repeated query can
+ * start from the previous picture instead of random positions. Queries are
+ * evicted least recently used first once maxEntries is exceeded. Stored
+ * position maps are never modified after they are put.
+ */
+public class LayoutPositionStore {
+
+	private final int maxEntries;
+	private final LinkedHashMap<String, Map<String, float[]>> entries;
+
+	public LayoutPositionStore(WarmStart settings) {
+		this(settings.getMaxEntries());
+	}
+
+	public LayoutPositionStore(int maxEntries) {
+		this.maxEntries = maxEntries;
+		this.entries = new LinkedHashMap<String, Map<String, float[]>>(16,
+				0.75f, true);
+	}
+
+	/**
+	 * identifies a query independently of its document limit or the size of
+	 * the file, so growing result sets share their positions
+	 * 
+	 * @param layoutName
+	 * @param configuration
+	 * @return key
+	 */
+	public static String key(String layoutName, Configuration configuration) {
+		if (configuration.getSelectedDataSource().trim().equals("file")) {
+			return layoutName + "|file:"
+					+ new File(configuration.getDatasource().getFilePath())
+							.getAbsolutePath();
+		}
+		ElasticSearchDocuments es = configuration.getDatasource()
+				.getElasticsearchDocument();
+		return layoutName + "|elasticsearch:" + es.getHost() + ":"
+				+ es.getPort() + ":" + es.getClusterName() + "/"
+				+ es.getIndex() + "/" + es.getType() + ":"
+				+ es.getSearchFields() + ":" + es.getSearchValue();
+	}
+
+	/**
+	 * @param key
+	 * @return node id to {x, y} of the last layout, or null
+	 */
+	public synchronized Map<String, float[]> get(String key) {
+		return entries.get(key);
+	}
+
+	/**
+	 * records the current positions of all nodes of @graph; an empty graph,
+	 * e.g. of a search without hits, is not recorded, as the key doesn't
+	 * tell it from the same query with hits
+	 * 
+	 * @param key
+	 * @param graph
+	 */
+	public void put(String key, Graph graph) {
+		if (graph.getNodeCount() == 0) {
+			return;
+		}
+		Map<String, float[]> positions = new HashMap<String, float[]>(
+				graph.getNodeCount() * 2);
+		for (Node node : graph.getNodes()) {
+			NodeData nodeData = node.getNodeData();
+			positions.put(nodeData.getId(), new float[] { nodeData.x(),
+					nodeData.y() });
+		}
+		synchronized (this) {
+			entries.put(key, positions);
+			while (entries.size() > maxEntries) {
+				entries.remove(entries.keySet().iterator().next());
+			}
+		}
+	}
+
+	public synchronized int size() {
+		return entries.size();
+	}
+}
@@ -0,0 +1,163 @@
+package org.projectspinoza.gephikit.layouts;
+
+import org.gephi.graph.api.Node;
+import org.gephi.graph.api.NodeData;
+
+/**
+ * Progress of a single layout run. Engines report every iteration and ask
+ * whether to go on; a run stops after its iterations, when the mean node
+ * displacement of an iteration falls below convergenceThreshold times the
+ * size of the layout, or when timeBudgetMillis is used up. The getters are
+ * returned to the client with the graph.
+ */
+public class LayoutRun {
+
+	public static final String STOPPED_BY_ITERATIONS = "iterations";
+	public static final String STOPPED_BY_CONVERGENCE = "convergence";
+	public static final String STOPPED_BY_TIME_BUDGET = "timeBudget";
+
+	private final String layout;
+	private final int maxIterations;
+	private final long timeBudgetMillis;
+	private final double convergenceThreshold;
+	private final long start;
+	private int iterations;
+	private double energy;
+	private double displacement;
+	private String stoppedBy;
+	private long elapsedMillis;
+
+	private Node[] nodes;
+	private float[] lastX;
+	private float[] lastY;
+
+	/**
+	 * @param layout
+	 * @param maxIterations
+	 * @param budget
+	 *            time and convergence limits, or null for none
+	 */
+	public LayoutRun(String layout, int maxIterations, LayoutBudget budget) {
+		this.layout = layout;
+		this.maxIterations = maxIterations;
+		this.timeBudgetMillis = budget != null ? budget.getTimeBudgetMillis()
+				: 0;
+		this.convergenceThreshold = budget != null ? budget
+				.getConvergenceThreshold() : 0;
+		this.start = System.nanoTime();
+	}
+
+	/**
+	 * @return true if the engine should run another iteration
+	 */
+	public boolean proceed() {
+		if (stoppedBy != null) {
+			return false;
+		}
+		if (iterations >= maxIterations) {
+			stop(STOPPED_BY_ITERATIONS);
+		} else if (iterations > 1 && displacement < convergenceThreshold) {
+			stop(STOPPED_BY_CONVERGENCE);
+		} else if (timeBudgetMillis > 0
+				&& System.nanoTime() - start >= timeBudgetMillis * 1000000L) {
+			stop(STOPPED_BY_TIME_BUDGET);
+		}
+		return stoppedBy == null;
+	}
+
+	/**
+	 * records an iteration
+	 *
+	 * @param energy
+	 *            sum of the squared node displacements of the iteration
+	 * @param meanDisplacement
+	 * @param extent
+	 *            width or height of the layout, whichever is larger
+	 */
+	public void iterationDone(double energy, double meanDisplacement,
+			double extent) {
+		iterations++;
+		this.energy = energy;
+		this.displacement = extent > 0 ? meanDisplacement / extent : 0;
+	}
+
+	/**
+	 * remembers the positions of @nodes, for engines that move nodes through
+	 * their node data and report with {@link #iterationDone()}
+	 *
+	 * @param nodes
+	 */
+	public void track(Node[] nodes) {
+		this.nodes = nodes;
+		lastX = new float[nodes.length];
+		lastY = new float[nodes.length];
+		for (int i = 0; i < nodes.length; i++) {
+			lastX[i] = nodes[i].getNodeData().x();
+			lastY[i] = nodes[i].getNodeData().y();
+		}
+	}
+
+	/**
+	 * records an iteration of a tracked graph, measuring how far the nodes
+	 * moved since the last one
+	 */
+	public void iterationDone() {
+		double energy = 0;
+		double moved = 0;
+		float left = Float.MAX_VALUE, bottom = Float.MAX_VALUE;
+		float right = -Float.MAX_VALUE, top = -Float.MAX_VALUE;
+		for (int i = 0; i < nodes.length; i++) {
+			NodeData nodeData = nodes[i].getNodeData();
+			float x = nodeData.x();
+			float y = nodeData.y();
+			double dx = x - lastX[i];
+			double dy = y - lastY[i];
+			double squared = dx * dx + dy * dy;
+			energy += squared;
+			moved += Math.sqrt(squared);
+			lastX[i] = x;
+			lastY[i] = y;
+			left = Math.min(left, x);
+			right = Math.max(right, x);
+			bottom = Math.min(bottom, y);
+			top = Math.max(top, y);
+		}
+		iterationDone(energy, nodes.length > 0 ? moved / nodes.length : 0,
+				Math.max(right - left, top - bottom));
+	}
+
+	/**
+	 * ends the run for engines that detect convergence on their own
+	 */
+	public void converged() {
+		if (stoppedBy == null) {
+			stop(STOPPED_BY_CONVERGENCE);
+		}
+	}
+
+	private void stop(String reason) {
+		stoppedBy = reason;
+		elapsedMillis = (System.nanoTime() - start) / 1000000L;
+	}
+
+	public String getLayout() {
+		return layout;
+	}
+
+	public int getIterations() {
+		return iterations;
+	}
+
+	public double getEnergy() {
+		return energy;
+	}
+
+	public String getStoppedBy() {
+		return stoppedBy;
+	}
+
+	public long getElapsedMillis() {
+		return stoppedBy != null ? elapsedMillis
+				: (System.nanoTime() - start) / 1000000L;
+	}
+}
@@ -0,0 +1,32 @@
+package org.projectspinoza.gephikit.layouts;
+
+public class WarmStart {
+	boolean enabled;
+	int maxEntries = 32;
+	double iterationRatio = 0.2;
+
+	public boolean isEnabled() {
+		return enabled;
+	}
+
+	public void setEnabled(boolean enabled) {
+		this.enabled = enabled;
+	}
+
+	public int getMaxEntries() {
+		return maxEntries;
+	}
+
+	public void setMaxEntries(int maxEntries) {
+		this.maxEntries = maxEntries;
+	}
+
+	public double getIterationRatio() {
+		return iterationRatio;
+	}
+
+	public void setIterationRatio(double iterationRatio) {
+		this.iterationRatio = iterationRatio;
+	}
+
+}
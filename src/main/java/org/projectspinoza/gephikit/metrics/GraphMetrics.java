@@ -0,0 +1,142 @@
+package org.projectspinoza.gephikit.metrics;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Latency per stage of the graph requests, request and graph size counters
+ * and the heap allocated per request, added up since the server started and
+ * written in the Prometheus text exposition format.
+ */
+public class GraphMetrics {
+
+	public static final String CONTENT_TYPE = "text/plain; version=0.0.4; charset=utf-8";
+
+	/** outcome of a graph request */
+	public enum Result {
+		OK, CACHED, ERROR
+	}
+
+	private static final double[] QUANTILES = { 0.5, 0.95, 0.99 };
+	private static final String TOTAL = "total";
+
+	private final Map<String, Histogram> stages = new ConcurrentSkipListMap<String, Histogram>();
+	private final Map<String, AtomicLong> requests = new ConcurrentSkipListMap<String, AtomicLong>();
+	private final Histogram allocatedBytes = new Histogram();
+	private final AtomicLong documents = new AtomicLong();
+	private final AtomicLong nodes = new AtomicLong();
+	private final AtomicLong edges = new AtomicLong();
+
+	/**
+	 * adds a finished request; stage times and sizes are only taken from
+	 * requests that built their graph
+	 *
+	 * @param route
+	 * @param result
+	 * @param timings
+	 */
+	public void record(String route, Result result, RequestTimings timings) {
+		requests.computeIfAbsent(
+				"route=\"" + escape(route) + "\",result=\""
+						+ result.name().toLowerCase() + "\"",
+				key -> new AtomicLong()).incrementAndGet();
+		if (result != Result.OK) {
+			return;
+		}
+		for (Map.Entry<String, Long> stage : timings.getStageNanos()
+				.entrySet()) {
+			stage(stage.getKey()).record(stage.getValue());
+		}
+		stage(TOTAL).record(timings.elapsedNanos());
+		documents.addAndGet(timings.getDocuments());
+		nodes.addAndGet(timings.getNodes());
+		edges.addAndGet(timings.getEdges());
+		long allocated = timings.allocatedBytesSoFar();
+		if (allocated >= 0) {
+			allocatedBytes.record(allocated);
+		}
+	}
+
+	private Histogram stage(String name) {
+		return stages.computeIfAbsent(name, key -> new Histogram());
+	}
+
+	/** the latency histogram of @stage, or null if it never ran */
+	public Histogram getStage(String stage) {
+		return stages.get(stage);
+	}
+
+	/**
+	 * @return all metrics in the Prometheus text format
+	 */
+	public String toPrometheus() {
+		StringBuilder out = new StringBuilder();
+		header(out, "gsakkit_graph_requests_total", "counter",
+				"Graph requests by route and result.");
+		for (Map.Entry<String, AtomicLong> request : requests.entrySet()) {
+			out.append("gsakkit_graph_requests_total{")
+					.append(request.getKey()).append("} ")
+					.append(request.getValue().get()).append('\n');
+		}
+
+		header(out, "gsakkit_stage_duration_seconds", "summary",
+				"Time spent in each stage of the graph requests that built a graph.");
+		for (Map.Entry<String, Histogram> stage : stages.entrySet()) {
+			summary(out, "gsakkit_stage_duration_seconds", "stage=\""
+					+ stage.getKey() + "\",", stage.getValue(), 1e-9);
+		}
+
+		header(out, "gsakkit_request_allocated_bytes", "summary",
+				"Heap allocated by the thread of a graph request.");
+		summary(out, "gsakkit_request_allocated_bytes", "", allocatedBytes, 1);
+
+		counter(out, "gsakkit_documents_total",
+				"Documents and lines graphs were built from.", documents.get());
+		counter(out, "gsakkit_nodes_total", "Nodes of the built graphs.",
+				nodes.get());
+		counter(out, "gsakkit_edges_total", "Edges of the built graphs.",
+				edges.get());
+		return out.toString();
+	}
+
+	private static void header(StringBuilder out, String name, String type,
+			String help) {
+		out.append("# HELP ").append(name).append(' ').append(help)
+				.append('\n');
+		out.append("# TYPE ").append(name).append(' ').append(type)
+				.append('\n');
+	}
+
+	private static void counter(StringBuilder out, String name, String help,
+			long value) {
+		header(out, name, "counter", help);
+		out.append(name).append(' ').append(value).append('\n');
+	}
+
+	/**
+	 * @param labels
+	 *            empty or label pairs ending with a comma
+	 * @param scale
+	 *            converts recorded values to the unit of @name
+	 */
+	private static void summary(StringBuilder out, String name,
+			String labels, Histogram histogram, double scale) {
+		for (double quantile : QUANTILES) {
+			out.append(name).append('{').append(labels).append("quantile=\"")
+					.append(quantile).append("\"} ")
+					.append(histogram.quantile(quantile) * scale).append('\n');
+		}
+		String plain = labels.isEmpty() ? "" : "{"
+				+ labels.substring(0, labels.length() - 1) + "}";
+		out.append(name).append("_sum").append(plain).append(' ')
+				.append(histogram.getSum() * scale).append('\n');
+		out.append(name).append("_count").append(plain).append(' ')
+				.append(histogram.getCount()).append('\n');
+	}
+
+	private static String escape(String value) {
+		return value.replace("\\", "\\\\").replace("\"", "\\\"")
+				.replace("\n", "\\n");
+	}
+}
@@ -0,0 +1,92 @@
+package org.projectspinoza.gephikit.metrics;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Counts non-negative values in logarithmic buckets, four per power of two,
+ * so quantiles are known within about 10% using a fixed 2 KB of counters no
+ * matter how many values are recorded. Values are recorded without locks.
+ */
+public class Histogram {
+
+	private static final int BUCKETS_PER_DOUBLING = 4;
+	private static final int BUCKETS = 64 * BUCKETS_PER_DOUBLING;
+
+	private final AtomicLongArray buckets = new AtomicLongArray(BUCKETS);
+	private final AtomicLong count = new AtomicLong();
+	private final AtomicLong sum = new AtomicLong();
+	private final AtomicLong max = new AtomicLong();
+
+	/**
+	 * @param value
+	 *            negative values are counted as 0
+	 */
+	public void record(long value) {
+		value = Math.max(0, value);
+		buckets.incrementAndGet(bucket(value));
+		count.incrementAndGet();
+		sum.addAndGet(value);
+		max.accumulateAndGet(value, Math::max);
+	}
+
+	public long getCount() {
+		return count.get();
+	}
+
+	public long getSum() {
+		return sum.get();
+	}
+
+	public long getMax() {
+		return max.get();
+	}
+
+	/**
+	 * @param quantile
+	 *            between 0 and 1
+	 * @return estimate of the value below which @quantile of the recorded
+	 *         values lie, or 0 if nothing was recorded
+	 */
+	public long quantile(double quantile) {
+		long total = count.get();
+		if (total == 0) {
+			return 0;
+		}
+		long rank = Math.max(1, (long) Math.ceil(quantile * total));
+		long seen = 0;
+		for (int i = 0; i < BUCKETS; i++) {
+			seen += buckets.get(i);
+			if (seen >= rank) {
+				// middle of the bucket, never above the largest value
+				long lower = lowerBound(i);
+				return Math.min(max.get(), lower + (lowerBound(i + 1) - lower)
+						/ 2);
+			}
+		}
+		return max.get();
+	}
+
+	private static int bucket(long value) {
+		if (value < BUCKETS_PER_DOUBLING) {
+			return (int) value;
+		}
+		int exponent = 63 - Long.numberOfLeadingZeros(value);
+		// the two bits below the highest one pick the quarter
+		int quarter = (int) (value >>> (exponent - 2)) & 3;
+		return Math.min(BUCKETS - 1, (exponent - 1) * BUCKETS_PER_DOUBLING
+				+ quarter);
+	}
+
+	private static long lowerBound(int bucket) {
+		if (bucket < BUCKETS_PER_DOUBLING) {
+			return bucket;
+		}
+		int exponent = bucket / BUCKETS_PER_DOUBLING + 1;
+		int quarter = bucket % BUCKETS_PER_DOUBLING;
+		if (exponent >= 63) {
+			return Long.MAX_VALUE;
+		}
+		return (4L + quarter) << (exponent - 2);
+	}
+}
@@ -0,0 +1,125 @@
+package org.projectspinoza.gephikit.metrics;
+
+import java.lang.management.ManagementFactory;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Time spent in each stage of one graph request, the size of its graph and
+ * the heap its thread allocated. Created on the thread that handles the
+ * request and only used there; stages run on helper threads, like the
+ * edge pipeline, are timed but their allocations are not counted.
+ */
+public class RequestTimings {
+
+	public static final String FETCH = "fetch";
+	public static final String LOAD = "load";
+	public static final String IMPORT = "import";
+	public static final String SNAPSHOT_LOAD = "snapshot_load";
+	public static final String SNAPSHOT_SAVE = "snapshot_save";
+	public static final String PAGERANK = "pagerank";
+	public static final String DEGREE = "degree";
+	public static final String BETWEENNESS = "betweenness";
+	public static final String FILTER = "filter";
+	public static final String LAYOUT = "layout";
+	public static final String CLUSTERING = "clustering";
+	public static final String SERIALIZATION = "serialization";
+
+	private static final com.sun.management.ThreadMXBean THREADS = threads();
+
+	private final long started = System.nanoTime();
+	private final long allocatedAtStart = allocatedBytes();
+	private final Map<String, Long> stageNanos = new LinkedHashMap<String, Long>();
+	private int documents;
+	private int nodes;
+	private int edges;
+
+	private static com.sun.management.ThreadMXBean threads() {
+		if (!(ManagementFactory.getThreadMXBean() instanceof com.sun.management.ThreadMXBean)) {
+			return null;
+		}
+		com.sun.management.ThreadMXBean threads = (com.sun.management.ThreadMXBean) ManagementFactory
+				.getThreadMXBean();
+		if (!threads.isThreadAllocatedMemorySupported()) {
+			return null;
+		}
+		if (!threads.isThreadAllocatedMemoryEnabled()) {
+			threads.setThreadAllocatedMemoryEnabled(true);
+		}
+		return threads;
+	}
+
+	/** bytes allocated by the current thread so far, or -1 if unknown */
+	private static long allocatedBytes() {
+		return THREADS != null ? THREADS.getThreadAllocatedBytes(Thread
+				.currentThread().getId()) : -1;
+	}
+
+	/**
+	 * adds the time since @startNanos to @stage
+	 *
+	 * @param stage
+	 * @param startNanos
+	 *            System.nanoTime() when the stage started
+	 */
+	public void stageDone(String stage, long startNanos) {
+		stageNanos.merge(stage, System.nanoTime() - startNanos, Long::sum);
+	}
+
+	/** stages in the order they ran, with their time in nanoseconds */
+	public Map<String, Long> getStageNanos() {
+		return stageNanos;
+	}
+
+	/** nanoseconds since the request started */
+	public long elapsedNanos() {
+		return System.nanoTime() - started;
+	}
+
+	/** bytes the request thread allocated so far, or -1 if unknown */
+	public long allocatedBytesSoFar() {
+		if (allocatedAtStart < 0) {
+			return -1;
+		}
+		return allocatedBytes() - allocatedAtStart;
+	}
+
+	public int getDocuments() {
+		return documents;
+	}
+
+	/** documents or lines the graph was built from */
+	public void setDocuments(int documents) {
+		this.documents = documents;
+	}
+
+	public int getNodes() {
+		return nodes;
+	}
+
+	public int getEdges() {
+		return edges;
+	}
+
+	public void setGraphSize(int nodes, int edges) {
+		this.nodes = nodes;
+		this.edges = edges;
+	}
+
+	/**
+	 * @return milliseconds per stage and so far in total, graph size and
+	 *         allocated bytes, for the timings block of a response
+	 */
+	public Map<String, Object> toMap() {
+		Map<String, Object> map = new LinkedHashMap<String, Object>();
+		for (Map.Entry<String, Long> stage : stageNanos.entrySet()) {
+			map.put(stage.getKey() + "Millis", stage.getValue() / 1000000);
+		}
+		map.put("totalMillis", elapsedNanos() / 1000000);
+		map.put("documents", documents);
+		map.put("nodes", nodes);
+		map.put("edges", edges);
+		map.put("allocatedBytes", allocatedBytesSoFar());
+		return map;
+	}
+}
@@ -0,0 +1,67 @@
+package org.projectspinoza.gephikit.statistics;
+
+/**
+ * betweenness block of the configuration; betweenness is only computed for
+ * requests with a nodeCentrailityThreashhold filter
+ */
+public class BetweennessSettings {
+	public static final String NATIVE = "native";
+	public static final String GEPHI = "gephi";
+
+	String implementation = NATIVE;
+	boolean directed;
+	int maxExactNodes = 5000;
+	int samples = 256;
+	Long seed = 1L;
+
+	/** native for {@link CsrBetweenness}, gephi for gephi's GraphDistance */
+	public String getImplementation() {
+		return implementation;
+	}
+
+	public void setImplementation(String implementation) {
+		this.implementation = implementation;
+	}
+
+	public boolean isNative() {
+		return !GEPHI.equals(implementation);
+	}
+
+	public boolean isDirected() {
+		return directed;
+	}
+
+	public void setDirected(boolean directed) {
+		this.directed = directed;
+	}
+
+	/**
+	 * graphs with more nodes get sampled betweenness; 0 or less always
+	 * computes it exactly
+	 */
+	public int getMaxExactNodes() {
+		return maxExactNodes;
+	}
+
+	public void setMaxExactNodes(int maxExactNodes) {
+		this.maxExactNodes = maxExactNodes;
+	}
+
+	/** number of source nodes sampled above maxExactNodes */
+	public int getSamples() {
+		return samples;
+	}
+
+	public void setSamples(int samples) {
+		this.samples = samples;
+	}
+
+	/** seed of the sampled sources, or null for new sources on every run */
+	public Long getSeed() {
+		return seed;
+	}
+
+	public void setSeed(Long seed) {
+		this.seed = seed;
+	}
+}
@@ -0,0 +1,57 @@
+package org.projectspinoza.gephikit.statistics;
+
+/**
+ * clustering block of the configuration
+ */
+public class ClusteringSettings {
+	public static final String NATIVE = "native";
+	public static final String GEPHI = "gephi";
+
+	String implementation = NATIVE;
+	int maxIterations = 20;
+	double convergenceThreshold = 0.001;
+	Long seed = 1L;
+
+	/** native for {@link CsrChineseWhispers}, gephi for the gephi-cw plugin */
+	public String getImplementation() {
+		return implementation;
+	}
+
+	public void setImplementation(String implementation) {
+		this.implementation = implementation;
+	}
+
+	public boolean isNative() {
+		return !GEPHI.equals(implementation);
+	}
+
+	public int getMaxIterations() {
+		return maxIterations;
+	}
+
+	public void setMaxIterations(int maxIterations) {
+		this.maxIterations = maxIterations;
+	}
+
+	/**
+	 * clustering stops once at most this fraction of the nodes would still
+	 * change their class; 0 runs until no node changes or maxIterations is
+	 * reached
+	 */
+	public double getConvergenceThreshold() {
+		return convergenceThreshold;
+	}
+
+	public void setConvergenceThreshold(double convergenceThreshold) {
+		this.convergenceThreshold = convergenceThreshold;
+	}
+
+	/** seed of the random choices, or null for a new seed on every run */
+	public Long getSeed() {
+		return seed;
+	}
+
+	public void setSeed(Long seed) {
+		this.seed = seed;
+	}
+}
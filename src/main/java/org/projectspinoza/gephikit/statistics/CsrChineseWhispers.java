@@ -0,0 +1,333 @@
+package org.projectspinoza.gephikit.statistics;
+
+import java.awt.Color;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.gephi.data.attributes.api.AttributeColumn;
+import org.gephi.data.attributes.api.AttributeModel;
+import org.gephi.data.attributes.api.AttributeOrigin;
+import org.gephi.data.attributes.api.AttributeRow;
+import org.gephi.data.attributes.api.AttributeTable;
+import org.gephi.data.attributes.api.AttributeType;
+import org.gephi.graph.api.GraphModel;
+import org.gephi.graph.api.NodeData;
+
+/**
+ * Chinese Whispers clustering (Biemann 2006) on an undirected
+ * {@link CsrGraph} snapshot. Every node starts in a class of its own and
+ * repeatedly joins the class with the largest summed edge weight among its
+ * neighbours.
+ * <p>
+ * Nodes are split into ranges of fixed size that do not depend on the
+ * number of threads. Within a range nodes are visited one after another in
+ * a rotated order and see the classes their range neighbours got earlier in
+ * the step; nodes of other ranges are seen with their class of the last
+ * step. Ranges therefore run on parallelism threads and the result does not
+ * depend on the number of threads. All random choices are hashes of the
+ * seed, the step and node ids, so a fixed seed always gives the same
+ * clusters for the same graph.
+ */
+public class CsrChineseWhispers {
+
+	/** id of the node column holding the class, 0 being the largest */
+	public static final String CLASS = "chinesewhispers";
+
+	private static final int MIN_RANGE_SIZE = 2048;
+
+	private int maxIterations = 20;
+	private double convergenceThreshold = 0.001;
+	private long seed = 1;
+	private int parallelism = 1;
+	private int iterations;
+
+	public void setMaxIterations(int maxIterations) {
+		this.maxIterations = maxIterations;
+	}
+
+	/**
+	 * @param convergenceThreshold
+	 *            fraction of nodes that may still want to change their class
+	 *            when clustering stops
+	 */
+	public void setConvergenceThreshold(double convergenceThreshold) {
+		this.convergenceThreshold = convergenceThreshold;
+	}
+
+	public void setSeed(long seed) {
+		this.seed = seed;
+	}
+
+	/** applies the settings of the clustering configuration block */
+	public void setSettings(ClusteringSettings settings) {
+		maxIterations = settings.getMaxIterations();
+		convergenceThreshold = settings.getConvergenceThreshold();
+		seed = settings.getSeed() != null ? settings.getSeed()
+				: ThreadLocalRandom.current().nextLong();
+	}
+
+	/** threads used for graphs above a few thousand nodes */
+	public void setParallelism(int parallelism) {
+		this.parallelism = parallelism;
+	}
+
+	/** steps taken by the last clustering */
+	public int getIterations() {
+		return iterations;
+	}
+
+	/**
+	 * clusters the visible graph of @graphModel; the class of every node is
+	 * stored in the chinesewhispers column and each class gets a colour
+	 *
+	 * @param graphModel
+	 * @param attributeModel
+	 * @return number of classes
+	 */
+	public int execute(GraphModel graphModel, AttributeModel attributeModel) {
+		CsrGraph graph = CsrGraph.of(graphModel.getGraphVisible(), false);
+		int[] classes = calculate(graph);
+		int count = 0;
+		for (int i = 0; i < graph.n; i++) {
+			count = Math.max(count, classes[i] + 1);
+		}
+		write(graph, classes, count, attributeModel);
+		return count;
+	}
+
+	/**
+	 * @param graph
+	 *            undirected snapshot
+	 * @return class of every node index, numbered by falling class size
+	 */
+	public int[] calculate(CsrGraph graph) {
+		int n = graph.n;
+		int[] keys = new int[n];
+		for (int i = 0; i < n; i++) {
+			keys[i] = graph.idHash(i);
+		}
+		int[] labels = new int[n];
+		for (int i = 0; i < n; i++) {
+			labels[i] = i;
+		}
+		int[] next = new int[n];
+		ThreadLocal<double[]> weights = ThreadLocal
+				.withInitial(() -> new double[n]);
+		ThreadLocal<int[]> stamps = ThreadLocal.withInitial(() -> new int[n]);
+		AtomicInteger unsettled = new AtomicInteger();
+		ForkJoinPool pool = parallelism > 1 && n > MIN_RANGE_SIZE ? new ForkJoinPool(
+				parallelism) : null;
+		iterations = 0;
+		try {
+			while (iterations < maxIterations && n > 0) {
+				unsettled.set(0);
+				Step step = new Step(graph, keys, labels, next, iterations,
+						weights, stamps, unsettled, 0, n);
+				if (pool != null) {
+					pool.invoke(step);
+				} else {
+					step.run();
+				}
+				int[] swap = labels;
+				labels = next;
+				next = swap;
+				iterations++;
+				if (unsettled.get() <= convergenceThreshold * n) {
+					break;
+				}
+			}
+		} finally {
+			if (pool != null) {
+				pool.shutdown();
+			}
+			// the calling thread is a pooled server thread, pool threads end
+			// with the pool
+			weights.remove();
+			stamps.remove();
+		}
+		return number(labels, keys);
+	}
+
+	/**
+	 * renumbers the classes by falling size, ties ordered by the id hash of
+	 * the node that named the class
+	 */
+	private static int[] number(int[] labels, int[] keys) {
+		int n = labels.length;
+		int[] sizes = new int[n];
+		for (int label : labels) {
+			sizes[label]++;
+		}
+		Integer[] named = new Integer[n];
+		int count = 0;
+		for (int i = 0; i < n; i++) {
+			if (sizes[i] > 0) {
+				named[count++] = i;
+			}
+		}
+		Arrays.sort(named, 0, count, Comparator
+				.comparingInt((Integer label) -> -sizes[label])
+				.thenComparingInt(label -> keys[label])
+				.thenComparingInt(label -> label));
+		int[] number = new int[n];
+		for (int i = 0; i < count; i++) {
+			number[named[i]] = i;
+		}
+		int[] classes = new int[n];
+		for (int i = 0; i < n; i++) {
+			classes[i] = number[labels[i]];
+		}
+		return classes;
+	}
+
+	/**
+	 * stores the classes in the chinesewhispers column and colours the
+	 * nodes of each class alike
+	 */
+	static void write(CsrGraph graph, int[] classes, int count,
+			AttributeModel attributeModel) {
+		AttributeTable nodeTable = attributeModel.getNodeTable();
+		AttributeColumn column = nodeTable.getColumn(CLASS);
+		if (column == null) {
+			column = nodeTable.addColumn(CLASS, "Chinese Whispers Class",
+					AttributeType.INT, AttributeOrigin.COMPUTED,
+					Integer.valueOf(0));
+		}
+		float[][] colors = new float[count][];
+		for (int c = 0; c < count; c++) {
+			// golden ratio steps keep the hues of large classes apart
+			colors[c] = new Color(Color.HSBtoRGB(
+					(float) ((c * 0.618033988749895) % 1), 0.65f, 0.9f))
+					.getRGBColorComponents(null);
+		}
+		for (int i = 0; i < graph.n; i++) {
+			NodeData nodeData = graph.node(i).getNodeData();
+			((AttributeRow) nodeData.getAttributes()).setValue(column,
+					classes[i]);
+			float[] color = colors[classes[i]];
+			nodeData.setColor(color[0], color[1], color[2]);
+		}
+	}
+
+	/** mixes @a and @b into a well spread hash */
+	private static long mix(long a, long b) {
+		long h = a * 0x9E3779B97F4A7C15L + b;
+		h = (h ^ (h >>> 30)) * 0xBF58476D1CE4E5B9L;
+		h = (h ^ (h >>> 27)) * 0x94D049BB133111EBL;
+		return h ^ (h >>> 31);
+	}
+
+	/** one synchronous step over a range of nodes */
+	@SuppressWarnings("serial")
+	private class Step extends RecursiveAction {
+		private final CsrGraph graph;
+		private final int[] keys;
+		private final int[] labels;
+		private final int[] next;
+		private final int iteration;
+		private final ThreadLocal<double[]> weights;
+		private final ThreadLocal<int[]> stamps;
+		private final AtomicInteger unsettled;
+		private final int from;
+		private final int to;
+
+		Step(CsrGraph graph, int[] keys, int[] labels, int[] next,
+				int iteration, ThreadLocal<double[]> weights,
+				ThreadLocal<int[]> stamps, AtomicInteger unsettled, int from,
+				int to) {
+			this.graph = graph;
+			this.keys = keys;
+			this.labels = labels;
+			this.next = next;
+			this.iteration = iteration;
+			this.weights = weights;
+			this.stamps = stamps;
+			this.unsettled = unsettled;
+			this.from = from;
+			this.to = to;
+		}
+
+		@Override
+		protected void compute() {
+			if (to - from > MIN_RANGE_SIZE) {
+				int middle = (from + to) >>> 1;
+				invokeAll(new Step(graph, keys, labels, next, iteration,
+						weights, stamps, unsettled, from, middle), new Step(
+						graph, keys, labels, next, iteration, weights, stamps,
+						unsettled, middle, to));
+				return;
+			}
+			whisper();
+		}
+
+		/** visits the same ranges as {@link #compute()}, on this thread */
+		void run() {
+			if (to - from > MIN_RANGE_SIZE) {
+				int middle = (from + to) >>> 1;
+				new Step(graph, keys, labels, next, iteration, weights, stamps,
+						unsettled, from, middle).run();
+				new Step(graph, keys, labels, next, iteration, weights, stamps,
+						unsettled, middle, to).run();
+				return;
+			}
+			whisper();
+		}
+
+		void whisper() {
+			// nodes of this range see the classes their range neighbours got
+			// earlier in this step, other nodes those of the last step
+			System.arraycopy(labels, from, next, from, to - from);
+			// weight[label] is only valid where stamp[label] is the stamp of
+			// the node being visited, so nothing has to be cleared
+			double[] weight = weights.get();
+			int[] stamp = stamps.get();
+			long stepSeed = mix(seed, iteration);
+			int length = to - from;
+			int offset = (int) ((mix(stepSeed, from) >>> 1) % length);
+			int rangeUnsettled = 0;
+			for (int j = 0; j < length; j++) {
+				int i = from + (offset + j) % length;
+				int current = next[i];
+				int visit = iteration * graph.n + i + 1;
+				double best = 0;
+				for (int k = graph.offsets[i]; k < graph.offsets[i + 1]; k++) {
+					int label = label(graph.neighbors[k]);
+					if (stamp[label] != visit) {
+						stamp[label] = visit;
+						weight[label] = 0;
+					}
+					weight[label] += graph.weights[k];
+					best = Math.max(best, weight[label]);
+				}
+				int chosen = current;
+				if (graph.offsets[i + 1] > graph.offsets[i]) {
+					// ties between the heaviest classes are broken at random
+					long lowest = Long.MAX_VALUE;
+					for (int k = graph.offsets[i]; k < graph.offsets[i + 1]; k++) {
+						int label = label(graph.neighbors[k]);
+						if (weight[label] == best) {
+							long draw = mix(stepSeed, keys[label]);
+							if (draw < lowest) {
+								lowest = draw;
+								chosen = label;
+							}
+						}
+					}
+				}
+				if (chosen != current) {
+					rangeUnsettled++;
+					next[i] = chosen;
+				}
+			}
+			unsettled.addAndGet(rangeUnsettled);
+		}
+
+		private int label(int node) {
+			return node >= from && node < to ? next[node] : labels[node];
+		}
+	}
+}
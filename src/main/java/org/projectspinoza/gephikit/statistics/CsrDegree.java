@@ -0,0 +1,249 @@
+package org.projectspinoza.gephikit.statistics;
+
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+import org.gephi.data.attributes.api.AttributeColumn;
+import org.gephi.data.attributes.api.AttributeModel;
+import org.gephi.data.attributes.api.AttributeOrigin;
+import org.gephi.data.attributes.api.AttributeRow;
+import org.gephi.data.attributes.api.AttributeTable;
+import org.gephi.data.attributes.api.AttributeType;
+import org.gephi.graph.api.Graph;
+
+/**
+ * In, out and total degree, their weighted sums and the number of distinct
+ * neighbours of every node, computed in one pass over a directed
+ * {@link CsrGraph} snapshot on parallelism threads. The degree columns use
+ * the ids of gephi's Degree and WeightedDegree statistics; the neighbour
+ * count goes to the NeighborCount column the neighbour filter ranks by.
+ */
+public class CsrDegree {
+
+	public static final String INDEGREE = "indegree";
+	public static final String OUTDEGREE = "outdegree";
+	public static final String DEGREE = "degree";
+	public static final String WEIGHTED_INDEGREE = "weighted indegree";
+	public static final String WEIGHTED_OUTDEGREE = "weighted outdegree";
+	public static final String WEIGHTED_DEGREE = "weighted degree";
+	/** nodes linked to a node by an edge in either direction, itself not counted */
+	public static final String NEIGHBOR_COUNT = "NeighborCount";
+
+	private static final int MIN_RANGE_SIZE = 4096;
+
+	private int parallelism = 1;
+
+	/** threads used for graphs above a few thousand nodes */
+	public void setParallelism(int parallelism) {
+		this.parallelism = parallelism;
+	}
+
+	/**
+	 * the column a nodeSizeBy setting sizes nodes by: degree, indegree,
+	 * outdegree, wdegree or neighbors
+	 *
+	 * @param nodeSizeBy
+	 * @return column id, or null if @nodeSizeBy is none of these
+	 */
+	public static String sizeColumn(String nodeSizeBy) {
+		if (nodeSizeBy == null) {
+			return null;
+		}
+		switch (nodeSizeBy.trim()) {
+		case "degree":
+			return DEGREE;
+		case "indegree":
+			return INDEGREE;
+		case "outdegree":
+			return OUTDEGREE;
+		case "wdegree":
+			return WEIGHTED_DEGREE;
+		case "neighbors":
+			return NEIGHBOR_COUNT;
+		default:
+			return null;
+		}
+	}
+
+	/**
+	 * computes the degrees of the nodes of @graph and stores them in the
+	 * degree columns of @attributeModel
+	 *
+	 * @param graph
+	 * @param attributeModel
+	 */
+	public void execute(Graph graph, AttributeModel attributeModel) {
+		CsrGraph csr = CsrGraph.of(graph, true);
+		write(csr, calculate(csr), attributeModel);
+	}
+
+	/**
+	 * @param graph
+	 *            directed snapshot
+	 * @return degrees of every node index
+	 */
+	public Degrees calculate(CsrGraph graph) {
+		int n = graph.n;
+		// the snapshot lists incoming edges; the outgoing ones are needed to
+		// tell which neighbours are linked both ways
+		int[] outOffsets = new int[n + 1];
+		for (int i = 0; i < n; i++) {
+			outOffsets[i + 1] = outOffsets[i] + graph.outDegree[i];
+		}
+		int[] outNeighbors = new int[outOffsets[n]];
+		int[] next = new int[n];
+		System.arraycopy(outOffsets, 0, next, 0, n);
+		for (int i = 0; i < n; i++) {
+			for (int k = graph.offsets[i]; k < graph.offsets[i + 1]; k++) {
+				outNeighbors[next[graph.neighbors[k]]++] = i;
+			}
+		}
+		Degrees degrees = new Degrees(graph);
+		ThreadLocal<int[]> stamps = ThreadLocal.withInitial(() -> new int[n]);
+		Range all = new Range(graph, outOffsets, outNeighbors, degrees,
+				stamps, 0, n);
+		try {
+			if (parallelism > 1 && n > MIN_RANGE_SIZE) {
+				ForkJoinPool pool = new ForkJoinPool(parallelism);
+				try {
+					pool.invoke(all);
+				} finally {
+					pool.shutdown();
+				}
+			} else {
+				all.count();
+			}
+		} finally {
+			// the calling thread is a pooled server thread, pool threads end
+			// with the pool
+			stamps.remove();
+		}
+		return degrees;
+	}
+
+	/**
+	 * stores @degrees in the degree columns, adding the columns if needed
+	 */
+	static void write(CsrGraph graph, Degrees degrees,
+			AttributeModel attributeModel) {
+		AttributeTable nodeTable = attributeModel.getNodeTable();
+		AttributeColumn in = intColumn(nodeTable, INDEGREE, "In-Degree");
+		AttributeColumn out = intColumn(nodeTable, OUTDEGREE, "Out-Degree");
+		AttributeColumn degree = intColumn(nodeTable, DEGREE, "Degree");
+		AttributeColumn weightedIn = doubleColumn(nodeTable,
+				WEIGHTED_INDEGREE, "Weighted In-Degree");
+		AttributeColumn weightedOut = doubleColumn(nodeTable,
+				WEIGHTED_OUTDEGREE, "Weighted Out-Degree");
+		AttributeColumn weighted = doubleColumn(nodeTable, WEIGHTED_DEGREE,
+				"Weighted Degree");
+		AttributeColumn neighbors = intColumn(nodeTable, NEIGHBOR_COUNT,
+				"Neighbor Count");
+		for (int i = 0; i < graph.n; i++) {
+			AttributeRow row = (AttributeRow) graph.node(i).getNodeData()
+					.getAttributes();
+			row.setValue(in, degrees.inDegree[i]);
+			row.setValue(out, graph.outDegree[i]);
+			row.setValue(degree, degrees.inDegree[i] + graph.outDegree[i]);
+			row.setValue(weightedIn, degrees.inWeight[i]);
+			row.setValue(weightedOut, graph.outWeight[i]);
+			row.setValue(weighted, degrees.inWeight[i] + graph.outWeight[i]);
+			row.setValue(neighbors, degrees.neighborCount[i]);
+		}
+	}
+
+	private static AttributeColumn intColumn(AttributeTable nodeTable,
+			String id, String title) {
+		AttributeColumn column = nodeTable.getColumn(id);
+		return column != null ? column : nodeTable.addColumn(id, title,
+				AttributeType.INT, AttributeOrigin.COMPUTED,
+				Integer.valueOf(0));
+	}
+
+	private static AttributeColumn doubleColumn(AttributeTable nodeTable,
+			String id, String title) {
+		AttributeColumn column = nodeTable.getColumn(id);
+		return column != null ? column : nodeTable.addColumn(id, title,
+				AttributeType.DOUBLE, AttributeOrigin.COMPUTED, new Double(0));
+	}
+
+	/**
+	 * degrees by node index; out-degrees and their weights are those of the
+	 * snapshot
+	 */
+	public static class Degrees {
+		final int[] inDegree;
+		final double[] inWeight;
+		final int[] neighborCount;
+
+		Degrees(CsrGraph graph) {
+			inDegree = new int[graph.n];
+			inWeight = new double[graph.n];
+			neighborCount = new int[graph.n];
+		}
+	}
+
+	/** counts the degrees of a range of nodes */
+	@SuppressWarnings("serial")
+	private static class Range extends RecursiveAction {
+		private final CsrGraph graph;
+		private final int[] outOffsets;
+		private final int[] outNeighbors;
+		private final Degrees degrees;
+		private final ThreadLocal<int[]> stamps;
+		private final int from;
+		private final int to;
+
+		Range(CsrGraph graph, int[] outOffsets, int[] outNeighbors,
+				Degrees degrees, ThreadLocal<int[]> stamps, int from, int to) {
+			this.graph = graph;
+			this.outOffsets = outOffsets;
+			this.outNeighbors = outNeighbors;
+			this.degrees = degrees;
+			this.stamps = stamps;
+			this.from = from;
+			this.to = to;
+		}
+
+		@Override
+		protected void compute() {
+			if (to - from > MIN_RANGE_SIZE) {
+				int middle = (from + to) >>> 1;
+				invokeAll(new Range(graph, outOffsets, outNeighbors, degrees,
+						stamps, from, middle), new Range(graph, outOffsets,
+						outNeighbors, degrees, stamps, middle, to));
+				return;
+			}
+			count();
+		}
+
+		void count() {
+			// a neighbour is counted when its stamp is not yet that of the
+			// node being visited, so nothing has to be cleared
+			int[] stamp = stamps.get();
+			for (int i = from; i < to; i++) {
+				int visit = i + 1;
+				stamp[i] = visit;
+				int count = 0;
+				double weight = 0;
+				for (int k = graph.offsets[i]; k < graph.offsets[i + 1]; k++) {
+					weight += graph.weights[k];
+					int neighbor = graph.neighbors[k];
+					if (stamp[neighbor] != visit) {
+						stamp[neighbor] = visit;
+						count++;
+					}
+				}
+				for (int k = outOffsets[i]; k < outOffsets[i + 1]; k++) {
+					int neighbor = outNeighbors[k];
+					if (stamp[neighbor] != visit) {
+						stamp[neighbor] = visit;
+						count++;
+					}
+				}
+				degrees.inDegree[i] = graph.offsets[i + 1] - graph.offsets[i];
+				degrees.inWeight[i] = weight;
+				degrees.neighborCount[i] = count;
+			}
+		}
+	}
+}
@@ -0,0 +1,133 @@
+package org.projectspinoza.gephikit.statistics;
+
+import java.util.HashMap;
+import java.util.Map;
+
+import org.gephi.graph.api.Edge;
+import org.gephi.graph.api.Graph;
+import org.gephi.graph.api.Node;
+
+/**
+ * Snapshot of a gephi graph in compressed sparse row form. Nodes are
+ * numbered 0 to nodeCount() - 1; the neighbours of node i are
+ * neighbors[offsets[i]] up to neighbors[offsets[i + 1] - 1], and the weight
+ * of each edge is stored at the same position. A directed snapshot lists
+ * the nodes with an edge into node i, an undirected one lists every edge in
+ * both directions. Statistics run on the arrays without touching gephi's
+ * object graph or its locks.
+ */
+public class CsrGraph {
+
+	final int n;
+	final int[] offsets;
+	final int[] neighbors;
+	final float[] weights;
+	/** outgoing edges per node, all edges if undirected */
+	final int[] outDegree;
+	/** summed weight of the outgoing edges per node */
+	final double[] outWeight;
+	private final Node[] nodes;
+
+	/**
+	 * @param nodes
+	 *            gephi node of every index, or null
+	 * @param n
+	 *            number of nodes
+	 * @param sources
+	 * @param targets
+	 * @param edgeWeights
+	 * @param edges
+	 *            number of edges in the arrays
+	 * @param directed
+	 */
+	CsrGraph(Node[] nodes, int n, int[] sources, int[] targets,
+			float[] edgeWeights, int edges, boolean directed) {
+		this.nodes = nodes;
+		this.n = n;
+		offsets = new int[n + 1];
+		outDegree = new int[n];
+		outWeight = new double[n];
+		for (int e = 0; e < edges; e++) {
+			offsets[targets[e] + 1]++;
+			outDegree[sources[e]]++;
+			outWeight[sources[e]] += edgeWeights[e];
+			if (!directed) {
+				offsets[sources[e] + 1]++;
+				outDegree[targets[e]]++;
+				outWeight[targets[e]] += edgeWeights[e];
+			}
+		}
+		for (int i = 0; i < n; i++) {
+			offsets[i + 1] += offsets[i];
+		}
+		neighbors = new int[offsets[n]];
+		weights = new float[offsets[n]];
+		int[] next = new int[n];
+		System.arraycopy(offsets, 0, next, 0, n);
+		for (int e = 0; e < edges; e++) {
+			int position = next[targets[e]]++;
+			neighbors[position] = sources[e];
+			weights[position] = edgeWeights[e];
+			if (!directed) {
+				position = next[sources[e]]++;
+				neighbors[position] = targets[e];
+				weights[position] = edgeWeights[e];
+			}
+		}
+	}
+
+	/**
+	 * copies the nodes and edges of @graph while holding its read lock
+	 *
+	 * @param graph
+	 * @param directed
+	 *            whether edges are followed from source to target only
+	 * @return snapshot
+	 */
+	public static CsrGraph of(Graph graph, boolean directed) {
+		graph.readLock();
+		try {
+			Node[] nodes = graph.getNodes().toArray();
+			Map<Integer, Integer> index = new HashMap<Integer, Integer>(
+					nodes.length * 2);
+			for (int i = 0; i < nodes.length; i++) {
+				index.put(nodes[i].getId(), i);
+			}
+			Edge[] edges = graph.getEdges().toArray();
+			int[] sources = new int[edges.length];
+			int[] targets = new int[edges.length];
+			float[] weights = new float[edges.length];
+			for (int e = 0; e < edges.length; e++) {
+				sources[e] = index.get(edges[e].getSource().getId());
+				targets[e] = index.get(edges[e].getTarget().getId());
+				weights[e] = edges[e].getWeight();
+			}
+			return new CsrGraph(nodes, nodes.length, sources, targets,
+					weights, edges.length, directed);
+		} finally {
+			graph.readUnlock();
+		}
+	}
+
+	public int nodeCount() {
+		return n;
+	}
+
+	/** number of stored neighbour entries */
+	public int entryCount() {
+		return neighbors.length;
+	}
+
+	/** the gephi node of index @i */
+	public Node node(int i) {
+		return nodes[i];
+	}
+
+	/**
+	 * hash of the id of node @i, the same for a node in every snapshot no
+	 * matter in which order gephi returns the nodes
+	 */
+	public int idHash(int i) {
+		return nodes != null ? nodes[i].getNodeData().getId().hashCode() : i;
+	}
+}
@@ -0,0 +1,212 @@
+package org.projectspinoza.gephikit.statistics;
+
+import java.util.Arrays;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import org.gephi.data.attributes.api.AttributeColumn;
+import org.gephi.data.attributes.api.AttributeModel;
+import org.gephi.data.attributes.api.AttributeOrigin;
+import org.gephi.data.attributes.api.AttributeRow;
+import org.gephi.data.attributes.api.AttributeTable;
+import org.gephi.data.attributes.api.AttributeType;
+import org.gephi.graph.api.Graph;
+import org.gephi.graph.api.GraphModel;
+
+/**
+ * PageRank computed on a {@link CsrGraph} snapshot. It uses the power
+ * iteration, teleport share and stop rule of gephi's PageRank statistic, so
+ * the values match gephi's, but every step is a pass over flat arrays that
+ * runs on parallelism threads. Ranks are written into the pageranks column
+ * once, after the last step.
+ */
+public class CsrPageRank {
+
+	/** id of the node column, the one gephi's PageRank writes */
+	public static final String PAGERANK = "pageranks";
+
+	private static final int MIN_RANGE_SIZE = 4096;
+
+	private boolean directed = true;
+	private double epsilon = 0.001;
+	private double probability = 0.85;
+	private boolean useEdgeWeight;
+	private int parallelism = 1;
+	private int iterations;
+
+	public void setDirected(boolean directed) {
+		this.directed = directed;
+	}
+
+	/** a step that raises no rank by this fraction or more is the last */
+	public void setEpsilon(double epsilon) {
+		this.epsilon = epsilon;
+	}
+
+	/** probability of following an edge instead of jumping anywhere */
+	public void setProbability(double probability) {
+		this.probability = probability;
+	}
+
+	/** splits the rank of a node by edge weight instead of evenly */
+	public void setUseEdgeWeight(boolean useEdgeWeight) {
+		this.useEdgeWeight = useEdgeWeight;
+	}
+
+	/** threads used for graphs above a few thousand nodes */
+	public void setParallelism(int parallelism) {
+		this.parallelism = parallelism;
+	}
+
+	/** steps taken by the last calculation */
+	public int getIterations() {
+		return iterations;
+	}
+
+	/**
+	 * ranks the visible graph of @graphModel and stores the ranks in the
+	 * pageranks column of @attributeModel
+	 *
+	 * @param graphModel
+	 * @param attributeModel
+	 */
+	public void execute(GraphModel graphModel, AttributeModel attributeModel) {
+		Graph graph = directed ? graphModel.getDirectedGraphVisible()
+				: graphModel.getUndirectedGraphVisible();
+		CsrGraph csr = CsrGraph.of(graph, directed);
+		write(csr, calculate(csr), attributeModel);
+	}
+
+	/**
+	 * @param graph
+	 *            snapshot taken with the same directedness as this ranking
+	 * @return rank of every node index
+	 */
+	public double[] calculate(CsrGraph graph) {
+		int n = graph.n;
+		double[] ranks = new double[n];
+		iterations = 0;
+		if (n == 0) {
+			return ranks;
+		}
+		Arrays.fill(ranks, 1.0 / n);
+		double[] next = new double[n];
+		double[] share = new double[n];
+		AtomicBoolean changed = new AtomicBoolean();
+		ForkJoinPool pool = parallelism > 1 && n > MIN_RANGE_SIZE ? new ForkJoinPool(
+				parallelism) : null;
+		try {
+			do {
+				// rank a node passes on along each edge, and the rank
+				// spread over all nodes by teleports and dangling nodes
+				double teleport = 0;
+				for (int i = 0; i < n; i++) {
+					if (graph.outDegree[i] > 0) {
+						teleport += (1.0 - probability) * ranks[i] / n;
+						share[i] = probability * ranks[i]
+								/ (useEdgeWeight ? graph.outWeight[i]
+										: graph.outDegree[i]);
+					} else {
+						teleport += ranks[i] / n;
+						share[i] = 0;
+					}
+				}
+				changed.set(false);
+				Step step = new Step(graph, share, ranks, next, teleport,
+						changed, 0, n);
+				if (pool != null) {
+					pool.invoke(step);
+				} else {
+					step.rank();
+				}
+				double[] swap = ranks;
+				ranks = next;
+				next = swap;
+				iterations++;
+			} while (changed.get());
+		} finally {
+			if (pool != null) {
+				pool.shutdown();
+			}
+		}
+		return ranks;
+	}
+
+	/**
+	 * stores @ranks in the pageranks column, adding the column if needed
+	 */
+	static void write(CsrGraph graph, double[] ranks,
+			AttributeModel attributeModel) {
+		AttributeTable nodeTable = attributeModel.getNodeTable();
+		AttributeColumn column = nodeTable.getColumn(PAGERANK);
+		if (column == null) {
+			column = nodeTable.addColumn(PAGERANK, "PageRank",
+					AttributeType.DOUBLE, AttributeOrigin.COMPUTED,
+					new Double(0));
+		}
+		for (int i = 0; i < graph.n; i++) {
+			AttributeRow row = (AttributeRow) graph.node(i).getNodeData()
+					.getAttributes();
+			row.setValue(column, ranks[i]);
+		}
+	}
+
+	/** one power iteration step over a range of nodes */
+	@SuppressWarnings("serial")
+	private class Step extends RecursiveAction {
+		private final CsrGraph graph;
+		private final double[] share;
+		private final double[] ranks;
+		private final double[] next;
+		private final double teleport;
+		private final AtomicBoolean changed;
+		private final int from;
+		private final int to;
+
+		Step(CsrGraph graph, double[] share, double[] ranks, double[] next,
+				double teleport, AtomicBoolean changed, int from, int to) {
+			this.graph = graph;
+			this.share = share;
+			this.ranks = ranks;
+			this.next = next;
+			this.teleport = teleport;
+			this.changed = changed;
+			this.from = from;
+			this.to = to;
+		}
+
+		@Override
+		protected void compute() {
+			if (to - from > MIN_RANGE_SIZE) {
+				int middle = (from + to) >>> 1;
+				invokeAll(new Step(graph, share, ranks, next, teleport,
+						changed, from, middle), new Step(graph, share, ranks,
+						next, teleport, changed, middle, to));
+				return;
+			}
+			rank();
+		}
+
+		void rank() {
+			boolean rangeChanged = false;
+			for (int i = from; i < to; i++) {
+				double rank = 0;
+				for (int k = graph.offsets[i]; k < graph.offsets[i + 1]; k++) {
+					int neighbor = graph.neighbors[k];
+					rank += useEdgeWeight ? share[neighbor] * graph.weights[k]
+							: share[neighbor];
+				}
+				rank += teleport;
+				next[i] = rank;
+				// gephi's stop rule: only a relative rise counts
+				if ((rank - ranks[i]) / ranks[i] >= epsilon) {
+					rangeChanged = true;
+				}
+			}
+			if (rangeChanged) {
+				changed.set(true);
+			}
+		}
+	}
+}
@@ -0,0 +1,44 @@
+package org.projectspinoza.gephikit.statistics;
+
+import java.util.EnumSet;
+import java.util.Set;
+
+/**
+ * The statistics already computed for one graph, so that a statistic a
+ * filter ranked by is reused for sizing and the response instead of being
+ * computed again.
+ */
+public class GraphStatistics {
+
+	private final Set<Statistic> computed = EnumSet.noneOf(Statistic.class);
+
+	public boolean isComputed(Statistic statistic) {
+		return computed.contains(statistic);
+	}
+
+	/** records @statistic as computed, e.g. when loaded with its graph */
+	public void markComputed(Statistic statistic) {
+		computed.add(statistic);
+	}
+
+	/** the statistics computed so far */
+	public Set<Statistic> getComputed() {
+		return EnumSet.copyOf(computed);
+	}
+
+	/**
+	 * runs @computation unless @statistic was computed already
+	 *
+	 * @param statistic
+	 * @param computation
+	 * @return whether @computation ran
+	 */
+	public boolean compute(Statistic statistic, Runnable computation) {
+		if (computed.contains(statistic)) {
+			return false;
+		}
+		computation.run();
+		computed.add(statistic);
+		return true;
+	}
+}
@@ -0,0 +1,52 @@
+package org.projectspinoza.gephikit.statistics;
+
+/**
+ * pageRank block of the configuration; fields missing from the block keep
+ * the values gephi's PageRank was always run with
+ */
+public class PageRankSettings {
+	public static final String NATIVE = "native";
+	public static final String GEPHI = "gephi";
+
+	String implementation = NATIVE;
+	double epsilon = 0.001;
+	double probability = 0.85;
+	boolean useEdgeWeight;
+
+	/** native for {@link CsrPageRank}, gephi for gephi's statistic */
+	public String getImplementation() {
+		return implementation;
+	}
+
+	public void setImplementation(String implementation) {
+		this.implementation = implementation;
+	}
+
+	public boolean isNative() {
+		return !GEPHI.equals(implementation);
+	}
+
+	public double getEpsilon() {
+		return epsilon;
+	}
+
+	public void setEpsilon(double epsilon) {
+		this.epsilon = epsilon;
+	}
+
+	public double getProbability() {
+		return probability;
+	}
+
+	public void setProbability(double probability) {
+		this.probability = probability;
+	}
+
+	public boolean isUseEdgeWeight() {
+		return useEdgeWeight;
+	}
+
+	public void setUseEdgeWeight(boolean useEdgeWeight) {
+		this.useEdgeWeight = useEdgeWeight;
+	}
+}
@@ -0,0 +1,33 @@
+package org.projectspinoza.gephikit.statistics;
+
+/**
+ * statistics a graph request can compute, with the name a client asks for
+ * them by in the fields parameter
+ */
+public enum Statistic {
+	PAGERANK("pagerank"), DEGREE("degree"), BETWEENNESS("betweenness"), CLUSTERS(
+			"clusters");
+
+	private final String field;
+
+	private Statistic(String field) {
+		this.field = field;
+	}
+
+	public String getField() {
+		return field;
+	}
+
+	/**
+	 * @param field
+	 * @return the statistic named @field, or null
+	 */
+	public static Statistic forField(String field) {
+		for (Statistic statistic : values()) {
+			if (statistic.field.equalsIgnoreCase(field.trim())) {
+				return statistic;
+			}
+		}
+		return null;
+	}
+}
@@ -0,0 +1,70 @@
+package org.projectspinoza.gephikit.statistics;
+
+import java.util.Collection;
+import java.util.EnumSet;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * The statistics a graph request consumes: those its filters rank by, the
+ * one nodeSizeBy sizes nodes by and those asked for as response fields.
+ * Everything else is skipped.
+ */
+public class StatisticsPlan {
+
+	private final Set<Statistic> statistics = EnumSet.noneOf(Statistic.class);
+
+	/**
+	 * @param filterSettings
+	 *            or null
+	 * @param nodeSizeBy
+	 * @param fields
+	 *            statistics the response should carry, by field name
+	 * @param cluster
+	 *            whether the route clusters the graph at all
+	 * @return plan of the request
+	 */
+	public static StatisticsPlan of(Map<String, Object> filterSettings,
+			String nodeSizeBy, Collection<String> fields, boolean cluster) {
+		StatisticsPlan plan = new StatisticsPlan();
+		if (filterSettings != null) {
+			if (filterSettings.containsKey("pageRankThreashhold")) {
+				plan.statistics.add(Statistic.PAGERANK);
+			}
+			if (filterSettings.containsKey("nodeCentrailityThreashhold")) {
+				plan.statistics.add(Statistic.BETWEENNESS);
+			}
+			if (filterSettings.containsKey("neighborRangeThreashhold")) {
+				plan.statistics.add(Statistic.DEGREE);
+			}
+		}
+		if (nodeSizeBy != null) {
+			String sizeBy = nodeSizeBy.trim();
+			if (sizeBy.equals("pr") || sizeBy.equals("exp_pr")) {
+				plan.statistics.add(Statistic.PAGERANK);
+			} else if (CsrDegree.sizeColumn(sizeBy) != null) {
+				plan.statistics.add(Statistic.DEGREE);
+			}
+		}
+		if (fields != null) {
+			for (String field : fields) {
+				Statistic statistic = Statistic.forField(field);
+				if (statistic != null) {
+					plan.statistics.add(statistic);
+				}
+			}
+		}
+		if (!cluster) {
+			plan.statistics.remove(Statistic.CLUSTERS);
+		}
+		return plan;
+	}
+
+	public boolean needs(Statistic statistic) {
+		return statistics.contains(statistic);
+	}
+
+	public Set<Statistic> getStatistics() {
+		return statistics;
+	}
+}
@@ -0,0 +1,161 @@
+package org.projectspinoza.gephikit;
+
+import io.vertx.core.Vertx;
+import io.vertx.core.VertxOptions;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.HttpURLConnection;
+import java.net.URL;
+import java.net.URLEncoder;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+
+import junit.framework.TestCase;
+
+import org.codehaus.jackson.JsonNode;
+import org.codehaus.jackson.map.ObjectMapper;
+import org.codehaus.jackson.node.ObjectNode;
+
+/**
+ * Fires mixed graph requests at a running server in parallel and checks that
+ * every response matches the one the same request gets when sent alone.
+ */
+public class DeployServerConcurrencyTest extends TestCase {
+
+	private static final int PORT = 18282;
+	private static final int REQUESTS = 32;
+
+	private static final String[] QUERIES = {
+			"/gephi",
+			"/layout?layoutSettings="
+					+ encode("{\"name\":\"YifanHuLayout\",\"distance\":100,\"iteration\":5}"),
+			"/filter?filterSettings="
+					+ encode("{\"pageRankThreashhold\":0.001}"),
+			"/gsakkit?layoutSettings="
+					+ encode("{\"name\":\"YifanHuLayout\",\"distance\":100,\"iteration\":5}")
+					+ "&filterSettings="
+					+ encode("{\"pageRankThreashhold\":0.001}") };
+
+	private final ObjectMapper mapper = new ObjectMapper();
+	private Vertx vertx;
+	private File configurationFile;
+
+	@Override
+	protected void setUp() throws Exception {
+		ObjectNode configuration = (ObjectNode) mapper.readTree(new File(
+				"configuration.json"));
+		configuration.put("port", PORT);
+		configuration.put("selectedDataSource", "file");
+		configuration.put("workerPoolSize", 8);
+		((ObjectNode) configuration.get("cache")).put("enabled", false);
+		((ObjectNode) configuration.get("datasource")).put("filePath",
+				new File("tweets.txt").getAbsolutePath());
+		configurationFile = File.createTempFile("gsakkit", ".json");
+		mapper.writeValue(configurationFile, configuration);
+
+		vertx = Vertx.vertx(new VertxOptions().setWorkerPoolSize(8));
+		CountDownLatch deployed = new CountDownLatch(1);
+		AtomicReference<Throwable> failure = new AtomicReference<Throwable>();
+		vertx.deployVerticle(
+				new DeployServer(configurationFile.getAbsolutePath()),
+				result -> {
+					failure.set(result.cause());
+					deployed.countDown();
+				});
+		assertTrue(deployed.await(30, TimeUnit.SECONDS));
+		assertNull(failure.get());
+	}
+
+	@Override
+	protected void tearDown() throws Exception {
+		CountDownLatch closed = new CountDownLatch(1);
+		vertx.close(result -> closed.countDown());
+		closed.await(30, TimeUnit.SECONDS);
+		configurationFile.delete();
+	}
+
+	public void testParallelRequestsMatchSequentialOnes() throws Exception {
+		String[] expected = new String[QUERIES.length];
+		for (int i = 0; i < QUERIES.length; i++) {
+			expected[i] = graph(get(QUERIES[i]));
+		}
+
+		ExecutorService clients = Executors.newFixedThreadPool(16);
+		try {
+			List<Future<String>> graphs = new ArrayList<Future<String>>();
+			for (int i = 0; i < REQUESTS; i++) {
+				final String query = QUERIES[i % QUERIES.length];
+				graphs.add(clients.submit(new Callable<String>() {
+					public String call() throws Exception {
+						return graph(get(query));
+					}
+				}));
+			}
+			for (int i = 0; i < REQUESTS; i++) {
+				assertEquals(QUERIES[i % QUERIES.length],
+						expected[i % QUERIES.length],
+						graphs.get(i).get(120, TimeUnit.SECONDS));
+			}
+		} finally {
+			clients.shutdownNow();
+		}
+	}
+
+	/**
+	 * @return the sorted node ids and the sorted source, target and weight
+	 *         of the edges of the graph in a graph route response; positions
+	 *         are left out, layouts start from random ones
+	 */
+	private String graph(String response) throws IOException {
+		JsonNode body = mapper.readTree(response);
+		assertFalse(response, body.has("error"));
+		JsonNode graph = body.get("graph");
+		List<String> nodes = new ArrayList<String>();
+		for (JsonNode node : graph.get("nodes")) {
+			nodes.add(node.get("id").getTextValue());
+		}
+		List<String> edges = new ArrayList<String>();
+		for (JsonNode edge : graph.get("edges")) {
+			edges.add(edge.get("source").getTextValue() + " "
+					+ edge.get("target").getTextValue() + " "
+					+ edge.get("size").asText());
+		}
+		Collections.sort(nodes);
+		Collections.sort(edges);
+		return nodes + "\n" + edges;
+	}
+
+	private String get(String query) throws IOException {
+		HttpURLConnection connection = (HttpURLConnection) new URL(
+				"http://localhost:" + PORT + query).openConnection();
+		assertEquals(200, connection.getResponseCode());
+		try (InputStream in = connection.getInputStream()) {
+			ByteArrayOutputStream body = new ByteArrayOutputStream();
+			byte[] buffer = new byte[8192];
+			int read;
+			while ((read = in.read(buffer)) != -1) {
+				body.write(buffer, 0, read);
+			}
+			return body.toString("UTF-8");
+		}
+	}
+
+	private static String encode(String value) {
+		try {
+			return URLEncoder.encode(value, "UTF-8");
+		} catch (IOException e) {
+			throw new IllegalStateException(e);
+		}
+	}
+}
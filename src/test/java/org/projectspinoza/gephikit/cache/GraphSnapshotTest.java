@@ -0,0 +1,121 @@
+package org.projectspinoza.gephikit.cache;
+
+import java.io.File;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.EnumSet;
+
+import junit.framework.TestCase;
+
+import org.gephi.data.attributes.api.AttributeType;
+import org.projectspinoza.gephikit.statistics.Statistic;
+
+/**
+ * Encodes snapshot contents, saves them with a {@link GraphSnapshotStore}
+ * and reads them back from the mapped file.
+ */
+public class GraphSnapshotTest extends TestCase {
+
+	private File directory;
+
+	@Override
+	protected void setUp() throws Exception {
+		directory = Files.createTempDirectory("snapshots").toFile();
+	}
+
+	@Override
+	protected void tearDown() throws Exception {
+		File[] files = directory.listFiles();
+		if (files != null) {
+			for (File file : files) {
+				file.delete();
+			}
+		}
+		directory.delete();
+	}
+
+	private static GraphSnapshot.Contents contents() {
+		GraphSnapshot.Contents contents = new GraphSnapshot.Contents();
+		contents.ids = new String[] { "#java", "#gephi", "#\u00dcnicodeTag" };
+		contents.labels = new String[] { "#java", "Gephi", null };
+		contents.nodeFloats = new float[][] { { -20, 0, 10.5f },
+				{ 3, -3.25f, 0 }, { 1, 2, 3 }, { 0, 0.5f, 1 },
+				{ 0.5f, 0.5f, 0.5f }, { 1, 0.5f, 0 } };
+		contents.sources = new int[] { 0, 1, 2 };
+		contents.targets = new int[] { 1, 2, 0 };
+		contents.weights = new float[] { 1.5f, 2, 7 };
+		contents.directed = new boolean[] { true, false, true };
+		contents.columnIds.add("pageranks");
+		contents.columnTitles.add("PageRank");
+		contents.columnTypes.add(AttributeType.DOUBLE);
+		contents.values.add(new double[] { 0.25, 0.5, 0.25 });
+		contents.columnIds.add("degree");
+		contents.columnTitles.add("Degree");
+		contents.columnTypes.add(AttributeType.INT);
+		contents.values.add(new double[] { 2, 2, 2 });
+		contents.statistics = 1 << Statistic.PAGERANK.ordinal()
+				| 1 << Statistic.DEGREE.ordinal();
+		contents.meta = "{\"documentCount\":3}"
+				.getBytes(StandardCharsets.UTF_8);
+		return contents;
+	}
+
+	public void testRoundTrip() {
+		GraphSnapshotStore store = new GraphSnapshotStore(directory, 4, false);
+		store.save("graph", contents().encode());
+		GraphSnapshot snapshot = store.open("graph");
+		assertNotNull(snapshot);
+
+		assertEquals(3, snapshot.nodeCount());
+		assertEquals(3, snapshot.edgeCount());
+		assertEquals(2, snapshot.columnCount());
+		assertEquals(EnumSet.of(Statistic.PAGERANK, Statistic.DEGREE),
+				snapshot.getStatistics());
+		assertEquals("#\u00dcnicodeTag", snapshot.nodeId(2));
+		assertEquals("#java", snapshot.nodeLabel(0));
+		assertEquals("Gephi", snapshot.nodeLabel(1));
+		assertNull(snapshot.nodeLabel(2));
+		assertEquals(10.5f, snapshot.x(2));
+		assertEquals(-3.25f, snapshot.y(1));
+		assertEquals(3f, snapshot.size(2));
+		assertEquals(2, snapshot.source(2));
+		assertEquals(0, snapshot.target(2));
+		assertEquals(1.5f, snapshot.weight(0));
+		assertTrue(snapshot.isDirected(0));
+		assertFalse(snapshot.isDirected(1));
+		assertEquals("degree", snapshot.columnId(1));
+		assertEquals("PageRank", snapshot.columnTitle(0));
+		assertEquals(AttributeType.INT, snapshot.columnType(1));
+		assertEquals(0.5, snapshot.value(0, 1));
+		assertEquals(2.0, snapshot.value(1, 2));
+		assertEquals("{\"documentCount\":3}", new String(snapshot.getMeta(),
+				StandardCharsets.UTF_8));
+	}
+
+	public void testMissingAndCorruptSnapshots() throws Exception {
+		GraphSnapshotStore store = new GraphSnapshotStore(directory, 4, false);
+		assertNull(store.open("missing"));
+		Files.write(new File(directory, "corrupt" + GraphSnapshotStore.SUFFIX)
+				.toPath(), new byte[] { 1, 2, 3 });
+		assertNull(store.open("corrupt"));
+		ByteBuffer truncated = contents().encode();
+		truncated.limit(truncated.limit() - 16);
+		store.save("truncated", truncated);
+		assertNull(store.open("truncated"));
+	}
+
+	public void testOldestSnapshotsAreEvicted() throws Exception {
+		GraphSnapshotStore store = new GraphSnapshotStore(directory, 2, false);
+		for (int i = 0; i < 3; i++) {
+			store.save("graph" + i, contents().encode());
+			new File(directory, "graph" + i + GraphSnapshotStore.SUFFIX)
+					.setLastModified(1000000L * (i + 1));
+		}
+		store.save("graph3", contents().encode());
+		assertNull(store.open("graph0"));
+		assertNull(store.open("graph1"));
+		assertNotNull(store.open("graph2"));
+		assertNotNull(store.open("graph3"));
+	}
+}
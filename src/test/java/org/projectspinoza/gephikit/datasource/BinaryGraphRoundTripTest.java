@@ -0,0 +1,113 @@
+package org.projectspinoza.gephikit.datasource;
+
+import java.io.ByteArrayOutputStream;
+
+import junit.framework.TestCase;
+
+import org.gephi.graph.api.Edge;
+import org.gephi.graph.api.Graph;
+import org.gephi.graph.api.GraphModel;
+import org.gephi.graph.api.Node;
+import org.projectspinoza.gephikit.GephiWorkspace;
+import org.projectspinoza.gephikit.configuration.Configuration;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+/**
+ * Decodes the binary export of a graph and compares it with the sigma json
+ * written for the same graph.
+ */
+public class BinaryGraphRoundTripTest extends TestCase {
+
+	private final ObjectMapper mapper = new ObjectMapper();
+	private GephiWorkspace workspace;
+	private Graph graph;
+	private Configuration configuration;
+
+	@Override
+	protected void setUp() throws Exception {
+		workspace = GephiWorkspace.open();
+		GraphModel graphModel = workspace.getGraphModel();
+		graph = graphModel.getDirectedGraph();
+		String[] tags = { "#java", "#gephi", "#graph", "#sigma", "#\u00dcnicodeTag" };
+		Node[] nodes = new Node[tags.length];
+		for (int i = 0; i < tags.length; i++) {
+			nodes[i] = graphModel.factory().newNode(tags[i]);
+			nodes[i].getNodeData().setLabel(tags[i]);
+			nodes[i].getNodeData().setX(i * 10.5f - 20);
+			nodes[i].getNodeData().setY(i * -3.25f);
+			nodes[i].getNodeData().setSize(1 + i);
+			nodes[i].getNodeData().setColor(i / 5f, 0.5f, 1 - i / 5f);
+			graph.addNode(nodes[i]);
+		}
+		for (int i = 0; i < tags.length; i++) {
+			for (int j = i + 1; j < tags.length; j += 2) {
+				Edge edge = graphModel.factory().newEdge(nodes[i], nodes[j],
+						i + j + 0.5f, true);
+				if (j % 3 == 0) {
+					edge.getEdgeData().setColor(0.2f, 0.4f, 0.6f);
+				}
+				graph.addEdge(edge);
+			}
+		}
+		configuration = new Configuration();
+		configuration.setNodeSizeBy("size");
+	}
+
+	@Override
+	protected void tearDown() throws Exception {
+		workspace.close();
+	}
+
+	public void testBinaryMatchesJson() throws Exception {
+		ByteArrayOutputStream json = new ByteArrayOutputStream();
+		try (JsonGenerator generator = mapper.getFactory().createGenerator(
+				json)) {
+			new SigmaGraphWriter().write(generator, graph, configuration);
+		}
+		JsonNode expected = mapper.readTree(json.toByteArray());
+		BinaryGraphDecoder decoded = new BinaryGraphDecoder(
+				new BinaryGraphWriter().write(graph, configuration,
+						"{\"documents\":[]}".getBytes("UTF-8")));
+
+		JsonNode nodes = expected.get("nodes");
+		assertEquals(nodes.size(), decoded.getNodeCount());
+		for (int i = 0; i < nodes.size(); i++) {
+			JsonNode node = nodes.get(i);
+			assertEquals(node.get("id").asText(), decoded.getNodeId(i));
+			assertEquals(node.get("label").asText(), decoded.getNodeLabel(i));
+			assertEquals(node.get("x").floatValue(), decoded.getX(i));
+			assertEquals(node.get("y").floatValue(), decoded.getY(i));
+			assertEquals(node.get("size").floatValue(), decoded.getSize(i));
+			assertEquals(node.get("color").asText(),
+					SigmaGraphWriter.rgb(decoded.getNodeColor(i)));
+		}
+
+		JsonNode edges = expected.get("edges");
+		assertEquals(edges.size(), decoded.getEdgeCount());
+		for (int i = 0; i < edges.size(); i++) {
+			JsonNode edge = edges.get(i);
+			assertEquals(edge.get("id").asText(),
+					String.valueOf(decoded.getEdgeId(i)));
+			assertEquals(edge.get("source").asText(),
+					decoded.getNodeId(decoded.getSource(i)));
+			assertEquals(edge.get("target").asText(),
+					decoded.getNodeId(decoded.getTarget(i)));
+			assertEquals(edge.get("size").floatValue(), decoded.getWeight(i));
+			assertEquals(edge.get("color").asText(),
+					SigmaGraphWriter.rgb(decoded.getEdgeColor(i)));
+		}
+
+		assertEquals("{\"documents\":[]}", decoded.getMeta());
+	}
+
+	public void testSectionsAreAligned() throws Exception {
+		byte[] encoded = new BinaryGraphWriter().write(graph, configuration,
+				null);
+		BinaryGraphDecoder decoded = new BinaryGraphDecoder(encoded);
+		assertEquals(0, encoded.length % 4);
+		assertEquals("", decoded.getMeta());
+	}
+}
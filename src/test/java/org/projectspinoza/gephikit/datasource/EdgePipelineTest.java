@@ -0,0 +1,133 @@
+package org.projectspinoza.gephikit.datasource;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import junit.framework.TestCase;
+
+/**
+ * Runs {@link EdgePipeline} with tokenizers that succeed, fail and block,
+ * and checks its result, its failure and abort paths and its backpressure.
+ */
+public class EdgePipelineTest extends TestCase {
+
+	private static final long TIMEOUT_MILLIS = 10000;
+
+	/** one line per document, tagged with its "tags" field split at spaces */
+	private static List<List<String>> tags(List<Map<String, Object>> page) {
+		List<List<String>> tagLists = new ArrayList<List<String>>();
+		for (Map<String, Object> document : page) {
+			tagLists.add(Arrays.asList(document.get("tags").toString()
+					.split(" ")));
+		}
+		return tagLists;
+	}
+
+	private static List<Map<String, Object>> page(String... documents) {
+		List<Map<String, Object>> page = new ArrayList<Map<String, Object>>();
+		for (String document : documents) {
+			page.add(Collections.<String, Object> singletonMap("tags",
+					document));
+		}
+		return page;
+	}
+
+	public void testAggregatesAllPages() throws Exception {
+		EdgePipeline pipeline = new EdgePipeline(EdgePipelineTest::tags, 1,
+				new PipelineStats());
+		pipeline.addPage(page("a b", "b c"));
+		pipeline.addPage(page("a b c"));
+		pipeline.addPage(page("d"));
+		CoOccurrenceAccumulator accumulator = pipeline.finish();
+		assertEquals(3, accumulator.nodeCount());
+		assertEquals(3, accumulator.edgeCount());
+		assertTrue(pipeline.awaitStopped(TIMEOUT_MILLIS));
+	}
+
+	public void testFailingTokenizerStopsThePipeline() throws Exception {
+		RuntimeException failure = new RuntimeException("bad page");
+		EdgePipeline pipeline = new EdgePipeline(page -> {
+			if (page.size() == 2) {
+				throw failure;
+			}
+			return tags(page);
+		}, 1, new PipelineStats());
+		pipeline.addPage(page("a b"));
+		pipeline.addPage(page("a b", "b c"));
+		// the failure is seen by the fetch thread at the latest once the
+		// queue is full
+		try {
+			for (int i = 0; i < 100; i++) {
+				pipeline.addPage(page("c d"));
+				Thread.sleep(10);
+			}
+			fail("addPage after a failed stage");
+		} catch (IllegalStateException e) {
+			assertSame(failure, e.getCause());
+		}
+		try {
+			pipeline.finish();
+			fail("finish after a failed stage");
+		} catch (IllegalStateException e) {
+			assertSame(failure, e.getCause());
+		}
+		assertTrue(pipeline.awaitStopped(TIMEOUT_MILLIS));
+	}
+
+	public void testAbortStopsThePipeline() throws Exception {
+		EdgePipeline pipeline = new EdgePipeline(EdgePipelineTest::tags, 1,
+				new PipelineStats());
+		pipeline.addPage(page("a b"));
+		pipeline.abort();
+		assertTrue(pipeline.awaitStopped(TIMEOUT_MILLIS));
+		try {
+			pipeline.addPage(page("c d"));
+			fail("addPage after abort");
+		} catch (IllegalStateException e) {
+			// expected
+		}
+	}
+
+	public void testFetchBlocksWhileTheQueueIsFull() throws Exception {
+		CountDownLatch release = new CountDownLatch(1);
+		PipelineStats stats = new PipelineStats();
+		EdgePipeline pipeline = new EdgePipeline(page -> {
+			try {
+				release.await();
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+			}
+			return tags(page);
+		}, 1, stats);
+		ExecutorService fetch = Executors.newSingleThreadExecutor();
+		try {
+			// the tokenizer holds the first page, the queue the second, so
+			// the third has to wait
+			Future<?> fetched = fetch.submit(() -> {
+				pipeline.addPage(page("a b"));
+				pipeline.addPage(page("b c"));
+				pipeline.addPage(page("c d"));
+				return null;
+			});
+			Thread.sleep(500);
+			assertFalse(fetched.isDone());
+			assertEquals(1, pipeline.tokenizeQueueDepth());
+			release.countDown();
+			fetched.get(TIMEOUT_MILLIS, TimeUnit.MILLISECONDS);
+			assertEquals(3, pipeline.finish().edgeCount());
+			assertTrue(stats.getFetch().getBlockedMillis() >= 400);
+		} finally {
+			release.countDown();
+			fetch.shutdownNow();
+			pipeline.abort();
+		}
+	}
+}
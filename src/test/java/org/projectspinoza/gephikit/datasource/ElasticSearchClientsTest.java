@@ -0,0 +1,108 @@
+package org.projectspinoza.gephikit.datasource;
+
+import java.io.File;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import junit.framework.TestCase;
+
+import org.elasticsearch.common.settings.ImmutableSettings;
+import org.elasticsearch.node.Node;
+import org.elasticsearch.node.NodeBuilder;
+
+/**
+ * Runs searches against an elasticsearch node inside the test jvm and checks
+ * that all of them share one client.
+ */
+public class ElasticSearchClientsTest extends TestCase {
+
+	private static final String CLUSTER = "gsakkit-clients-test";
+	private static final int PORT = 19300;
+	private static final int REQUESTS = 1000;
+
+	private Node node;
+	private File data;
+	private ElasticSearchClients clients;
+
+	@Override
+	protected void setUp() throws Exception {
+		data = File.createTempFile("es-clients", "");
+		data.delete();
+		node = NodeBuilder
+				.nodeBuilder()
+				.clusterName(CLUSTER)
+				.settings(
+						ImmutableSettings.settingsBuilder()
+								.put("path.data", data.getAbsolutePath())
+								.put("http.enabled", false)
+								.put("transport.tcp.port", PORT)
+								.put("discovery.zen.ping.multicast.enabled",
+										false)
+								.put("index.number_of_shards", 1)
+								.put("index.number_of_replicas", 0)).node();
+		for (int i = 0; i < 10; i++) {
+			Map<String, Object> source = new HashMap<String, Object>();
+			source.put("description", "graph document " + i);
+			source.put("keywords", "#graph,#tag" + i);
+			node.client().prepareIndex("docs", "doc", String.valueOf(i))
+					.setSource(source).execute().actionGet();
+		}
+		node.client().admin().indices().prepareRefresh("docs").execute()
+				.actionGet();
+		clients = new ElasticSearchClients();
+	}
+
+	@Override
+	protected void tearDown() throws Exception {
+		clients.close();
+		node.close();
+		delete(data);
+	}
+
+	public void testClientsAreReusedAcrossRequests() throws Exception {
+		List<String> searchFields = Arrays.asList("description");
+		List<String> returnFields = Arrays.asList("description", "keywords");
+		search(searchFields, returnFields);
+		int threads = Thread.activeCount();
+		for (int i = 1; i < REQUESTS; i++) {
+			search(searchFields, returnFields);
+		}
+		assertEquals(1, clients.size());
+		assertEquals(1, clients.getCreated());
+		assertEquals(REQUESTS - 1, clients.getReused());
+		assertTrue(clients.isHealthy());
+		// a client per request would leave its transport threads behind
+		assertTrue(Thread.activeCount() < threads + 10);
+	}
+
+	public void testClosedClientsCannotBeUsed() {
+		clients.get("localhost", PORT, CLUSTER);
+		clients.close();
+		assertEquals(0, clients.size());
+		try {
+			clients.get("localhost", PORT, CLUSTER);
+			fail("closed clients handed out a client");
+		} catch (IllegalStateException expected) {
+		}
+	}
+
+	private void search(List<String> searchFields, List<String> returnFields)
+			throws Exception {
+		ElasticSearchDocuments documents = new ElasticSearchDocuments(clients,
+				"localhost", PORT, CLUSTER, "docs", "doc", searchFields,
+				"graph", returnFields, 5);
+		assertEquals(5, documents.getDocuments().size());
+	}
+
+	private static void delete(File file) {
+		File[] children = file.listFiles();
+		if (children != null) {
+			for (File child : children) {
+				delete(child);
+			}
+		}
+		file.delete();
+	}
+}
@@ -0,0 +1,102 @@
+package org.projectspinoza.gephikit.datasource;
+
+import java.io.BufferedReader;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.util.HashSet;
+import java.util.Set;
+
+import junit.framework.TestCase;
+
+/**
+ * Checks that {@link HashtagScanner} finds exactly the tags the replaceAll
+ * chain it replaced found, on every line of tweets.txt and on edge cases.
+ */
+public class HashtagScannerTest extends TestCase {
+
+	private static final String[] EDGE_CASES = { "", "#", "##", "#a", "#ab",
+			"#a#b", "#ab#cd", "#ab#c#de#", "#tag1#tag2", "x#tag", "#rt",
+			"#RT #rt #rts", "#ab\r\n#cd\n#ef", "#ab\t#cd", "#ab  #cd ",
+			"#foo/-/#bar", "#foo/a/#bar", "#foo/#/bar", "#foo/ /bar",
+			"#a/%/b #c/%/", "/%/#ab", "/%", "#ab/", "#ab/-", "/\u00e9/#ab",
+			"#caf\u00e9 #na\u00efve #\u00fcber", "\u00e9#ab",
+			"#tag\ud83d\ude00 #a\ud83d\ude00b", "\ud83d\ude00#ab",
+			"#ab/\ud83d\ude00/#cd", "#under_score-dash", "#a!b?c", "#a.b",
+			"#abcdefghijklmnopqrs", "#abcdefghijklmnopqrst",
+			"#abcdefghij#klmnopqrs", "#abcdefghij#klmnopqrst",
+			"RT @user: #java #gephi, #graph." };
+
+	public void testEdgeCasesMatchLegacy() {
+		for (String text : EDGE_CASES) {
+			assertSameTags(text);
+		}
+	}
+
+	public void testTweetsFileMatchesLegacy() throws IOException {
+		int lines = 0;
+		try (BufferedReader reader = new BufferedReader(new InputStreamReader(
+				new FileInputStream("tweets.txt"), StandardCharsets.UTF_8))) {
+			String line;
+			while ((line = reader.readLine()) != null) {
+				assertSameTags(line);
+				lines++;
+			}
+		}
+		assertTrue(lines > 0);
+	}
+
+	public void testWordLengthLimits() {
+		Set<String> tags = new HashSet<String>();
+		HashtagScanner.scan("#abcdefghijklmnopqrs #abcdefghijklmnopqrst", tags);
+		assertEquals(1, tags.size());
+		assertTrue(tags.contains("abcdefghijklmnopqrs"));
+	}
+
+	private static void assertSameTags(String text) {
+		Set<String> expected = new HashSet<String>();
+		legacyExtractTags(text, expected);
+		Set<String> actual = new HashSet<String>();
+		HashtagScanner.scan(text, actual);
+		assertEquals(text, expected, actual);
+	}
+
+	/**
+	 * FileLoader.extractTags before it was replaced by HashtagScanner
+	 */
+	private static void legacyExtractTags(String tweet, Set<String> tags) {
+
+		String parts[] = tweet.replaceAll("/[^A-Za-z0-9 #]/", " ")
+				.replace("\n", " ").replace("\r", " ")
+				.replaceAll("\\P{Print}", " ").split(" ");
+
+		for (String part : parts) {
+			part = part.trim();
+			if (part.length() < 2 || part.length() > 20)
+				continue;
+			if (part.equals("#rt"))
+				continue;
+
+			if (part.startsWith("#")) {
+				// . splits hashtags of type: #tag1#tag2...
+				if ((part.length() - part.replace("#", "").length()) > 1) {
+					String[] subParts = part.split("#");
+					for (String sb : subParts) {
+						sb = sb.replaceAll("[^a-zA-Z0-9_-]", "").trim();
+						sb = sb.replace("\\s", "");
+						if (sb.length() > 1) {
+							tags.add(sb);
+						}
+					}
+					continue;
+				}
+				part = part.replaceAll("[^a-zA-Z0-9_-]", "").trim();
+				part = part.replace("\\s", "");
+				if (part.length() > 1) {
+					tags.add(part);
+				}
+			}
+		}
+	}
+}
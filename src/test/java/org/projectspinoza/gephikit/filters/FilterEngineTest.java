@@ -0,0 +1,77 @@
+package org.projectspinoza.gephikit.filters;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Random;
+
+import junit.framework.TestCase;
+
+/**
+ * Compares the nodes {@link FilterEngine} removes with those removed by
+ * sorting and cutting once per filter, as GraphFilter used to.
+ */
+public class FilterEngineTest extends TestCase {
+
+	public void testMatchesSortingPerFilter() {
+		Random random = new Random(3);
+		for (int round = 0; round < 200; round++) {
+			int n = random.nextInt(300);
+			int filters = 1 + random.nextInt(3);
+			double[][] values = new double[filters][];
+			double[] fractions = new double[filters];
+			for (int f = 0; f < filters; f++) {
+				// few distinct values, so most cut-offs fall on ties
+				int distinct = 1 + random.nextInt(20);
+				values[f] = new double[n];
+				for (int i = 0; i < n; i++) {
+					values[f][i] = random.nextInt(distinct) / 7.0;
+				}
+				fractions[f] = random.nextInt(101) / 100.0;
+			}
+			if (random.nextInt(5) == 0) {
+				values[random.nextInt(filters)] = null;
+			}
+			assertTrue(Arrays.equals(sortAndCut(values, fractions, n),
+					FilterEngine.select(values, fractions, n)));
+		}
+	}
+
+	public void testSelect() {
+		double[] values = { 5, 1, 4, 1, 5, 9, 2, 6, 5, 3 };
+		double[] sorted = values.clone();
+		Arrays.sort(sorted);
+		for (int k = 0; k < values.length; k++) {
+			assertEquals(sorted[k],
+					FilterEngine.select(values.clone(), values.length, k));
+		}
+	}
+
+	private static boolean[] sortAndCut(final double[][] values,
+			double[] fractions, int n) {
+		boolean[] removed = new boolean[n];
+		List<Integer> nodes = new ArrayList<Integer>();
+		for (int i = 0; i < n; i++) {
+			nodes.add(i);
+		}
+		for (int f = 0; f < fractions.length; f++) {
+			final double[] column = values[f];
+			List<Integer> sorted = new ArrayList<Integer>(nodes);
+			if (column != null) {
+				Collections.sort(sorted, new Comparator<Integer>() {
+					public int compare(Integer o1, Integer o2) {
+						return Double.compare(column[o1], column[o2]);
+					}
+				});
+			}
+			int cut = (int) Math.ceil(sorted.size() * fractions[f]);
+			for (int j = 0; j < cut; j++) {
+				removed[sorted.get(j)] = true;
+				nodes.remove(sorted.get(j));
+			}
+		}
+		return removed;
+	}
+}
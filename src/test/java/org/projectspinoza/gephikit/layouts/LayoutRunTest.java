@@ -0,0 +1,88 @@
+package org.projectspinoza.gephikit.layouts;
+
+import junit.framework.TestCase;
+
+/**
+ * Drives a {@link LayoutRun} like an engine does and checks that it stops
+ * on its iteration limit, its time budget and on convergence, and what it
+ * reports when it stops.
+ */
+public class LayoutRunTest extends TestCase {
+
+	private static LayoutBudget budget(long timeBudgetMillis,
+			double convergenceThreshold) {
+		LayoutBudget budget = new LayoutBudget();
+		budget.setTimeBudgetMillis(timeBudgetMillis);
+		budget.setConvergenceThreshold(convergenceThreshold);
+		return budget;
+	}
+
+	public void testStopsAfterItsIterations() {
+		LayoutRun run = new LayoutRun("test", 3, null);
+		int steps = 0;
+		while (run.proceed()) {
+			steps++;
+			run.iterationDone(100 + steps, 10, 100);
+		}
+		assertEquals(3, steps);
+		assertEquals(3, run.getIterations());
+		assertEquals(103.0, run.getEnergy());
+		assertEquals(LayoutRun.STOPPED_BY_ITERATIONS, run.getStoppedBy());
+		assertEquals("test", run.getLayout());
+		assertFalse(run.proceed());
+	}
+
+	public void testStopsOnConvergence() {
+		// mean displacements relative to an extent of 100: 0.5, 0.2, 0.05,
+		// 0.005, 0.0005
+		double[] displacements = { 50, 20, 5, 0.5, 0.05 };
+		LayoutRun run = new LayoutRun("test", 100, budget(0, 0.01));
+		int steps = 0;
+		while (run.proceed()) {
+			run.iterationDone(displacements[steps] * displacements[steps],
+					displacements[steps], 100);
+			steps++;
+		}
+		assertEquals(4, run.getIterations());
+		assertEquals(0.25, run.getEnergy(), 1e-12);
+		assertEquals(LayoutRun.STOPPED_BY_CONVERGENCE, run.getStoppedBy());
+	}
+
+	public void testFirstIterationNeverConverges() {
+		LayoutRun run = new LayoutRun("test", 100, budget(0, 0.01));
+		assertTrue(run.proceed());
+		run.iterationDone(0, 0, 100);
+		assertTrue(run.proceed());
+		run.iterationDone(0, 0, 100);
+		assertFalse(run.proceed());
+		assertEquals(2, run.getIterations());
+		assertEquals(LayoutRun.STOPPED_BY_CONVERGENCE, run.getStoppedBy());
+	}
+
+	public void testStopsWhenTheTimeBudgetIsUsedUp() throws Exception {
+		LayoutRun run = new LayoutRun("test", 1000, budget(100, 0));
+		while (run.proceed()) {
+			Thread.sleep(20);
+			run.iterationDone(1, 1, 100);
+		}
+		assertEquals(LayoutRun.STOPPED_BY_TIME_BUDGET, run.getStoppedBy());
+		assertTrue(run.getIterations() >= 2);
+		assertTrue(run.getIterations() < 1000);
+		long elapsed = run.getElapsedMillis();
+		assertTrue(elapsed >= 100);
+		assertTrue(elapsed < 5000);
+		// the elapsed time is taken when the run stops
+		Thread.sleep(50);
+		assertEquals(elapsed, run.getElapsedMillis());
+	}
+
+	public void testEngineConvergence() {
+		LayoutRun run = new LayoutRun("test", 100, null);
+		assertTrue(run.proceed());
+		run.iterationDone(1, 1, 100);
+		run.converged();
+		assertFalse(run.proceed());
+		assertEquals(1, run.getIterations());
+		assertEquals(LayoutRun.STOPPED_BY_CONVERGENCE, run.getStoppedBy());
+	}
+}
@@ -0,0 +1,193 @@
+package org.projectspinoza.gephikit.layouts;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Random;
+
+import junit.framework.TestCase;
+
+import org.gephi.graph.api.Graph;
+import org.gephi.graph.api.GraphModel;
+import org.gephi.graph.api.Node;
+import org.projectspinoza.gephikit.GephiWorkspace;
+import org.projectspinoza.gephikit.configuration.Configuration;
+import org.projectspinoza.gephikit.datasource.DataSource;
+
+/**
+ * Lays out a graph with a {@link LayoutPositionStore}, adds a few nodes and
+ * lays it out again: known nodes have to start where the first layout left
+ * them, new nodes next to their neighbours, and fewer iterations have to
+ * run. An empty layout is not stored and doesn't warm start the next one.
+ */
+public class WarmStartTest extends TestCase {
+
+	private static final String LAYOUT = "WarmStartTestLayout";
+	private static final int ITERATIONS = 50;
+
+	private GephiWorkspace workspace;
+	private GraphModel graphModel;
+	private Graph graph;
+	private Configuration configuration;
+	private RecordingEngine engine;
+
+	/** ForceAtlas2, remembering the positions each layout starts from */
+	private static class RecordingEngine extends ForceAtlas2Engine {
+		Map<String, float[]> start;
+
+		@Override
+		public void apply(GraphModel graphModel, Configuration configuration,
+				LayoutRun run) {
+			start = positions(graphModel.getGraphVisible());
+			super.apply(graphModel, configuration, run);
+		}
+	}
+
+	@Override
+	protected void setUp() throws Exception {
+		workspace = GephiWorkspace.open();
+		graphModel = workspace.getGraphModel();
+		graph = graphModel.getUndirectedGraph();
+		Random random = new Random(3);
+		Node[] nodes = new Node[20];
+		for (int i = 0; i < nodes.length; i++) {
+			nodes[i] = addNode("n" + i, random);
+		}
+		for (int i = 0; i < nodes.length; i++) {
+			graph.addEdge(graphModel.factory().newEdge(nodes[i],
+					nodes[(i + 1) % nodes.length], 1f, false));
+			graph.addEdge(graphModel.factory().newEdge(nodes[i],
+					nodes[(i + 7) % nodes.length], 1f, false));
+		}
+
+		configuration = new Configuration();
+		configuration.setSelectedDataSource("file");
+		DataSource dataSource = new DataSource();
+		dataSource.setFilePath("tweets.txt");
+		configuration.setDatasource(dataSource);
+		Layout layout = new Layout();
+		ForceAtlas2 forceAtlas2 = new ForceAtlas2();
+		forceAtlas2.setIteration(ITERATIONS);
+		layout.setForceAtlas2(forceAtlas2);
+		WarmStart warmStart = new WarmStart();
+		warmStart.setEnabled(true);
+		warmStart.setIterationRatio(0.2);
+		layout.setWarmStart(warmStart);
+		configuration.setLayout(layout);
+
+		engine = new RecordingEngine();
+		LayoutManager.register(LAYOUT, engine);
+	}
+
+	@Override
+	protected void tearDown() throws Exception {
+		workspace.close();
+	}
+
+	private Node addNode(String id, Random random) {
+		Node node = graphModel.factory().newNode(id);
+		node.getNodeData().setX(random.nextFloat() * 1000 - 500);
+		node.getNodeData().setY(random.nextFloat() * 1000 - 500);
+		graph.addNode(node);
+		return node;
+	}
+
+	private static Map<String, float[]> positions(Graph graph) {
+		Map<String, float[]> positions = new HashMap<String, float[]>();
+		for (Node node : graph.getNodes()) {
+			positions.put(node.getNodeData().getId(), new float[] {
+					node.getNodeData().x(), node.getNodeData().y() });
+		}
+		return positions;
+	}
+
+	public void testSecondLayoutStartsFromTheFirst() {
+		LayoutPositionStore store = new LayoutPositionStore(4);
+		LayoutManager first = new LayoutManager(LAYOUT, graphModel,
+				configuration, store);
+		assertEquals(ITERATIONS, first.getRun().getIterations());
+		assertEquals(1, store.size());
+		Map<String, float[]> laidOut = positions(graph);
+
+		// one new node between n2 and n4, one hanging off n11
+		Random random = new Random(4);
+		Node between = addNode("between", random);
+		Node leaf = addNode("leaf", random);
+		graph.addEdge(graphModel.factory().newEdge(between,
+				graph.getNode("n2"), 1f, false));
+		graph.addEdge(graphModel.factory().newEdge(between,
+				graph.getNode("n4"), 1f, false));
+		graph.addEdge(graphModel.factory().newEdge(leaf, graph.getNode("n11"),
+				1f, false));
+
+		LayoutManager second = new LayoutManager(LAYOUT, graphModel,
+				configuration, store);
+
+		for (Map.Entry<String, float[]> entry : laidOut.entrySet()) {
+			float[] start = engine.start.get(entry.getKey());
+			assertEquals(entry.getKey(), entry.getValue()[0], start[0], 0f);
+			assertEquals(entry.getKey(), entry.getValue()[1], start[1], 0f);
+		}
+		float jitter = extent(laidOut) * 0.01f + 1f;
+		float[] n2 = laidOut.get("n2");
+		float[] n4 = laidOut.get("n4");
+		assertNear((n2[0] + n4[0]) / 2, (n2[1] + n4[1]) / 2, jitter,
+				engine.start.get("between"));
+		float[] n11 = laidOut.get("n11");
+		assertNear(n11[0], n11[1], jitter, engine.start.get("leaf"));
+
+		// 2 of 22 nodes are new, less than the iteration ratio of 0.2
+		assertEquals((int) Math.ceil(ITERATIONS * 0.2), second.getRun()
+				.getIterations());
+	}
+
+	public void testEmptyLayoutIsNotAWarmStart() {
+		LayoutPositionStore store = new LayoutPositionStore(4);
+		Map<String, float[]> nodes = positions(graph);
+		graph.clear();
+		LayoutManager empty = new LayoutManager(LAYOUT, graphModel,
+				configuration, store);
+		assertEquals(0, empty.getRun().getIterations());
+		assertEquals(0, store.size());
+
+		for (Map.Entry<String, float[]> entry : nodes.entrySet()) {
+			Node node = graphModel.factory().newNode(entry.getKey());
+			node.getNodeData().setX(entry.getValue()[0]);
+			node.getNodeData().setY(entry.getValue()[1]);
+			graph.addNode(node);
+		}
+		LayoutManager first = new LayoutManager(LAYOUT, graphModel,
+				configuration, store);
+
+		assertEquals(nodes.size(), engine.start.size());
+		for (Map.Entry<String, float[]> entry : nodes.entrySet()) {
+			float[] start = engine.start.get(entry.getKey());
+			assertEquals(entry.getKey(), entry.getValue()[0], start[0], 0f);
+			assertEquals(entry.getKey(), entry.getValue()[1], start[1], 0f);
+		}
+		assertEquals(ITERATIONS, first.getRun().getIterations());
+		for (float[] position : positions(graph).values()) {
+			assertFalse(Float.isNaN(position[0]) || Float.isInfinite(position[0]));
+			assertFalse(Float.isNaN(position[1]) || Float.isInfinite(position[1]));
+		}
+		assertEquals(1, store.size());
+	}
+
+	private static float extent(Map<String, float[]> positions) {
+		float left = Float.MAX_VALUE, bottom = Float.MAX_VALUE;
+		float right = -Float.MAX_VALUE, top = -Float.MAX_VALUE;
+		for (float[] position : positions.values()) {
+			left = Math.min(left, position[0]);
+			right = Math.max(right, position[0]);
+			bottom = Math.min(bottom, position[1]);
+			top = Math.max(top, position[1]);
+		}
+		return Math.max(right - left, top - bottom);
+	}
+
+	private static void assertNear(float x, float y, float jitter,
+			float[] position) {
+		// float rounding aside, the jitter moves a node by half of it at most
+		assertEquals(x, position[0], jitter / 2 + 0.01f);
+		assertEquals(y, position[1], jitter / 2 + 0.01f);
+	}
+}
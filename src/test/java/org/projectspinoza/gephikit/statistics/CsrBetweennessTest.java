@@ -0,0 +1,83 @@
+package org.projectspinoza.gephikit.statistics;
+
+import java.util.Random;
+
+import junit.framework.TestCase;
+
+/**
+ * Checks {@link CsrBetweenness} on graphs with known betweenness and
+ * compares its parallel and sampled runs with the exact sequential one.
+ */
+public class CsrBetweennessTest extends TestCase {
+
+	public void testUndirectedPath() {
+		// 0 - 1 - 2 - 3 - 4
+		CsrGraph graph = new CsrGraph(null, 5, new int[] { 0, 1, 2, 3 },
+				new int[] { 1, 2, 3, 4 }, new float[] { 1, 1, 1, 1 }, 4, false);
+		assertValues(new double[] { 0, 3, 4, 3, 0 },
+				new CsrBetweenness().calculate(graph));
+	}
+
+	public void testDirectedDiamond() {
+		// 0 -> 1 -> 3, 0 -> 2 -> 3, 3 -> 4: two shortest paths from 0 to 3
+		// and to 4, one through 1 and one through 2
+		CsrGraph graph = new CsrGraph(null, 5, new int[] { 0, 0, 1, 2, 3 },
+				new int[] { 1, 2, 3, 3, 4 }, new float[] { 1, 1, 1, 1, 1 }, 5,
+				true);
+		CsrBetweenness betweenness = new CsrBetweenness();
+		betweenness.setDirected(true);
+		assertValues(new double[] { 0, 1, 1, 3, 0 },
+				betweenness.calculate(graph));
+	}
+
+	public void testParallelMatchesSequential() {
+		CsrGraph graph = randomGraph(3000, 12000);
+		double[] expected = new CsrBetweenness().calculate(graph);
+		CsrBetweenness parallel = new CsrBetweenness();
+		parallel.setParallelism(4);
+		double[] actual = parallel.calculate(graph);
+		for (int i = 0; i < expected.length; i++) {
+			assertEquals(expected[i], actual[i], 1e-9 * (1 + expected[i]));
+		}
+	}
+
+	public void testSamplingEstimatesExactValues() {
+		CsrGraph graph = randomGraph(3000, 12000);
+		double[] exact = new CsrBetweenness().calculate(graph);
+		CsrBetweenness sampled = new CsrBetweenness();
+		sampled.setSamples(600);
+		double[] estimate = sampled.calculate(graph);
+		double exactTotal = 0;
+		double estimateTotal = 0;
+		int top = 0;
+		for (int i = 0; i < exact.length; i++) {
+			exactTotal += exact[i];
+			estimateTotal += estimate[i];
+			if (exact[i] > exact[top]) {
+				top = i;
+			}
+		}
+		assertEquals(exactTotal, estimateTotal, exactTotal * 0.05);
+		assertEquals(exact[top], estimate[top], exact[top] * 0.25);
+	}
+
+	private static CsrGraph randomGraph(int n, int edges) {
+		Random random = new Random(5);
+		int[] sources = new int[edges];
+		int[] targets = new int[edges];
+		float[] weights = new float[edges];
+		for (int e = 0; e < edges; e++) {
+			sources[e] = random.nextInt(n);
+			targets[e] = (sources[e] + 1 + random.nextInt(n - 1)) % n;
+			weights[e] = 1;
+		}
+		return new CsrGraph(null, n, sources, targets, weights, edges, false);
+	}
+
+	private static void assertValues(double[] expected, double[] actual) {
+		assertEquals(expected.length, actual.length);
+		for (int i = 0; i < expected.length; i++) {
+			assertEquals("node " + i, expected[i], actual[i], 1e-12);
+		}
+	}
+}
@@ -0,0 +1,80 @@
+package org.projectspinoza.gephikit.statistics;
+
+import java.util.Arrays;
+import java.util.Random;
+
+import junit.framework.TestCase;
+
+/**
+ * Clusters graphs built straight into a {@link CsrGraph}, so no gephi
+ * workspace is needed.
+ */
+public class CsrChineseWhispersTest extends TestCase {
+
+	public void testSeparatesCliques() {
+		int size = 8;
+		int[] sources = new int[size * (size - 1) + 1];
+		int[] targets = new int[sources.length];
+		float[] weights = new float[sources.length];
+		int edges = 0;
+		for (int clique = 0; clique < 2; clique++) {
+			int first = clique * size;
+			for (int i = 0; i < size; i++) {
+				for (int j = i + 1; j < size; j++) {
+					sources[edges] = first + i;
+					targets[edges] = first + j;
+					weights[edges++] = 1;
+				}
+			}
+		}
+		// a weak bridge between the cliques
+		sources[edges] = 0;
+		targets[edges] = size;
+		weights[edges++] = 0.1f;
+		CsrGraph graph = new CsrGraph(null, 2 * size, sources, targets,
+				weights, edges, false);
+
+		int[] classes = new CsrChineseWhispers().calculate(graph);
+		for (int i = 1; i < size; i++) {
+			assertEquals(classes[0], classes[i]);
+			assertEquals(classes[size], classes[size + i]);
+		}
+		assertTrue(classes[0] != classes[size]);
+	}
+
+	public void testIsolatedNodesKeepTheirClass() {
+		CsrGraph graph = new CsrGraph(null, 3, new int[0], new int[0],
+				new float[0], 0, false);
+		int[] classes = new CsrChineseWhispers().calculate(graph);
+		Arrays.sort(classes);
+		assertTrue(Arrays.equals(new int[] { 0, 1, 2 }, classes));
+	}
+
+	public void testSameSeedSameClassesOnAnyThreadCount() {
+		int n = 20000;
+		int edges = 80000;
+		Random random = new Random(11);
+		int[] sources = new int[edges];
+		int[] targets = new int[edges];
+		float[] weights = new float[edges];
+		for (int e = 0; e < edges; e++) {
+			// mostly edges within groups of 50 nodes
+			sources[e] = random.nextInt(n);
+			targets[e] = random.nextInt(10) > 0 ? sources[e] / 50 * 50
+					+ random.nextInt(50) : random.nextInt(n);
+			weights[e] = 1 + random.nextInt(3);
+		}
+		CsrGraph graph = new CsrGraph(null, n, sources, targets, weights,
+				edges, false);
+		CsrChineseWhispers sequential = new CsrChineseWhispers();
+		sequential.setSeed(5);
+		CsrChineseWhispers parallel = new CsrChineseWhispers();
+		parallel.setSeed(5);
+		parallel.setParallelism(4);
+		int[] expected = sequential.calculate(graph);
+		int[] actual = parallel.calculate(graph);
+		assertEquals(sequential.getIterations(), parallel.getIterations());
+		assertTrue(Arrays.equals(expected, actual));
+		assertTrue(Arrays.equals(expected, sequential.calculate(graph)));
+	}
+}
@@ -0,0 +1,70 @@
+package org.projectspinoza.gephikit.statistics;
+
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.Random;
+import java.util.Set;
+
+import junit.framework.TestCase;
+
+/**
+ * Checks the degrees {@link CsrDegree} counts against counts taken straight
+ * from the edge lists.
+ */
+public class CsrDegreeTest extends TestCase {
+
+	public void testSmallGraph() {
+		// 0 -> 1 (2), 1 -> 0 (3), 0 -> 2 (1), 2 -> 2 (4)
+		CsrGraph graph = new CsrGraph(null, 4, new int[] { 0, 1, 0, 2 },
+				new int[] { 1, 0, 2, 2 }, new float[] { 2, 3, 1, 4 }, 4, true);
+		CsrDegree.Degrees degrees = new CsrDegree().calculate(graph);
+		assertTrue(Arrays.equals(new int[] { 1, 1, 2, 0 }, degrees.inDegree));
+		assertTrue(Arrays.equals(new int[] { 2, 1, 1, 0 }, graph.outDegree));
+		assertTrue(Arrays.equals(new double[] { 3, 2, 5, 0 },
+				degrees.inWeight));
+		assertTrue(Arrays.equals(new double[] { 3, 3, 4, 0 },
+				graph.outWeight));
+		assertTrue(Arrays.equals(new int[] { 2, 1, 1, 0 },
+				degrees.neighborCount));
+	}
+
+	public void testParallelMatchesEdgeLists() {
+		int n = 20000;
+		int edges = 100000;
+		Random random = new Random(9);
+		int[] sources = new int[edges];
+		int[] targets = new int[edges];
+		float[] weights = new float[edges];
+		for (int e = 0; e < edges; e++) {
+			sources[e] = random.nextInt(n);
+			targets[e] = random.nextInt(n);
+			weights[e] = 1 + random.nextInt(4);
+		}
+		CsrGraph graph = new CsrGraph(null, n, sources, targets, weights,
+				edges, true);
+		CsrDegree degree = new CsrDegree();
+		degree.setParallelism(4);
+		CsrDegree.Degrees degrees = degree.calculate(graph);
+
+		int[] inDegree = new int[n];
+		double[] inWeight = new double[n];
+		@SuppressWarnings("unchecked")
+		Set<Integer>[] neighbors = new Set[n];
+		for (int i = 0; i < n; i++) {
+			neighbors[i] = new HashSet<Integer>();
+		}
+		for (int e = 0; e < edges; e++) {
+			inDegree[targets[e]]++;
+			inWeight[targets[e]] += weights[e];
+			if (sources[e] != targets[e]) {
+				neighbors[sources[e]].add(targets[e]);
+				neighbors[targets[e]].add(sources[e]);
+			}
+		}
+		for (int i = 0; i < n; i++) {
+			assertEquals(inDegree[i], degrees.inDegree[i]);
+			assertEquals(inWeight[i], degrees.inWeight[i], 0.0);
+			assertEquals(neighbors[i].size(), degrees.neighborCount[i]);
+		}
+	}
+}
@@ -0,0 +1,122 @@
+package org.projectspinoza.gephikit.statistics;
+
+import java.util.HashSet;
+import java.util.Random;
+import java.util.Set;
+
+import junit.framework.TestCase;
+
+import org.gephi.data.attributes.api.AttributeColumn;
+import org.gephi.data.attributes.api.AttributeRow;
+import org.gephi.graph.api.DirectedGraph;
+import org.gephi.graph.api.GraphFactory;
+import org.gephi.graph.api.Node;
+import org.gephi.statistics.plugin.PageRank;
+import org.projectspinoza.gephikit.GephiWorkspace;
+
+/**
+ * Ranks a random graph with gephi's PageRank and with {@link CsrPageRank}
+ * and expects the same values.
+ */
+public class CsrPageRankTest extends TestCase {
+
+	private static final int NODES = 300;
+	private static final int EDGES = 1200;
+
+	private GephiWorkspace workspace;
+	private Node[] nodes;
+
+	@Override
+	protected void setUp() {
+		workspace = GephiWorkspace.open();
+		GraphFactory factory = workspace.getGraphModel().factory();
+		DirectedGraph graph = workspace.getGraphModel().getDirectedGraph();
+		nodes = new Node[NODES];
+		for (int i = 0; i < NODES; i++) {
+			nodes[i] = factory.newNode("n" + i);
+			graph.addNode(nodes[i]);
+		}
+		Random random = new Random(42);
+		Set<Long> pairs = new HashSet<Long>();
+		while (pairs.size() < EDGES) {
+			int source = random.nextInt(NODES);
+			int target = random.nextInt(NODES);
+			if (source == target || pairs.contains((long) target * NODES + source)
+					|| !pairs.add((long) source * NODES + target)) {
+				continue;
+			}
+			graph.addEdge(factory.newEdge(nodes[source], nodes[target],
+					1 + random.nextInt(9), true));
+		}
+	}
+
+	@Override
+	protected void tearDown() {
+		workspace.close();
+	}
+
+	public void testMatchesGephi() {
+		assertMatchesGephi(false);
+	}
+
+	public void testMatchesGephiWithEdgeWeights() {
+		assertMatchesGephi(true);
+	}
+
+	public void testParallelMatchesSequential() {
+		int n = 20000;
+		int edges = 100000;
+		Random random = new Random(7);
+		int[] sources = new int[edges];
+		int[] targets = new int[edges];
+		float[] weights = new float[edges];
+		for (int e = 0; e < edges; e++) {
+			sources[e] = random.nextInt(n);
+			targets[e] = (sources[e] + 1 + random.nextInt(n - 1)) % n;
+			weights[e] = 1;
+		}
+		CsrGraph graph = new CsrGraph(null, n, sources, targets, weights,
+				edges, true);
+		CsrPageRank sequential = new CsrPageRank();
+		CsrPageRank parallel = new CsrPageRank();
+		parallel.setParallelism(4);
+		double[] expected = sequential.calculate(graph);
+		double[] actual = parallel.calculate(graph);
+		assertEquals(sequential.getIterations(), parallel.getIterations());
+		for (int i = 0; i < n; i++) {
+			assertEquals(expected[i], actual[i], 0.0);
+		}
+	}
+
+	private void assertMatchesGephi(boolean useEdgeWeight) {
+		PageRank gephi = new PageRank();
+		gephi.setDirected(true);
+		gephi.setEpsilon(0.001);
+		gephi.setProbability(0.85);
+		gephi.setUseEdgeWeight(useEdgeWeight);
+		gephi.execute(workspace.getGraphModel(), workspace.getAttributeModel());
+		double[] expected = ranks();
+
+		CsrPageRank csr = new CsrPageRank();
+		csr.setUseEdgeWeight(useEdgeWeight);
+		csr.setParallelism(4);
+		csr.execute(workspace.getGraphModel(), workspace.getAttributeModel());
+		double[] actual = ranks();
+		for (int i = 0; i < NODES; i++) {
+			assertEquals(nodes[i].getNodeData().getId(), expected[i],
+					actual[i], expected[i] * 1e-9);
+		}
+	}
+
+	private double[] ranks() {
+		AttributeColumn column = workspace.getAttributeModel().getNodeTable()
+				.getColumn(CsrPageRank.PAGERANK);
+		double[] ranks = new double[NODES];
+		for (int i = 0; i < NODES; i++) {
+			AttributeRow row = (AttributeRow) nodes[i].getNodeData()
+					.getAttributes();
+			ranks[i] = ((Number) row.getValue(column)).doubleValue();
+		}
+		return ranks;
+	}
+}
@@ -0,0 +1,66 @@
+package org.projectspinoza.gephikit.statistics;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.EnumSet;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import junit.framework.TestCase;
+
+/**
+ * Checks which statistics {@link StatisticsPlan} plans for a request.
+ */
+public class StatisticsPlanTest extends TestCase {
+
+	private static final List<String> NO_FIELDS = Collections.emptyList();
+
+	public void testNothingConsumed() {
+		StatisticsPlan plan = StatisticsPlan.of(null, "size", NO_FIELDS, true);
+		assertTrue(plan.getStatistics().isEmpty());
+	}
+
+	public void testFilters() {
+		Map<String, Object> filters = new HashMap<String, Object>();
+		filters.put("pageRankThreashhold", 10);
+		filters.put("nodeCentrailityThreashhold", 10);
+		filters.put("neighborRangeThreashhold", 10);
+		StatisticsPlan plan = StatisticsPlan.of(filters, "size", NO_FIELDS,
+				true);
+		assertEquals(EnumSet.of(Statistic.PAGERANK, Statistic.BETWEENNESS,
+				Statistic.DEGREE), plan.getStatistics());
+	}
+
+	public void testNodeSize() {
+		assertTrue(StatisticsPlan.of(null, " pr", NO_FIELDS, true).needs(
+				Statistic.PAGERANK));
+		assertTrue(StatisticsPlan.of(null, "exp_pr", NO_FIELDS, true).needs(
+				Statistic.PAGERANK));
+		assertEquals(EnumSet.of(Statistic.DEGREE),
+				StatisticsPlan.of(null, "neighbors", NO_FIELDS, true)
+						.getStatistics());
+	}
+
+	public void testFields() {
+		List<String> fields = Arrays.asList("PageRank", " clusters", "x", "");
+		assertEquals(EnumSet.of(Statistic.PAGERANK, Statistic.CLUSTERS),
+				StatisticsPlan.of(null, "size", fields, true).getStatistics());
+		assertEquals(EnumSet.of(Statistic.PAGERANK),
+				StatisticsPlan.of(null, "size", fields, false).getStatistics());
+	}
+
+	public void testComputedOnce() {
+		GraphStatistics statistics = new GraphStatistics();
+		final int[] runs = new int[1];
+		Runnable count = new Runnable() {
+			public void run() {
+				runs[0]++;
+			}
+		};
+		assertTrue(statistics.compute(Statistic.DEGREE, count));
+		assertFalse(statistics.compute(Statistic.DEGREE, count));
+		assertTrue(statistics.isComputed(Statistic.DEGREE));
+		assertEquals(1, runs[0]);
+	}
+}